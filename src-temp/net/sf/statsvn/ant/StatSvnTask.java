@@ -0,0 +1,266 @@
+/*
+ StatCvs - CVS statistics generation 
+ Copyright (C) 2002  Lukasz Pekacki <lukasz@pekacki.de>
+ http://statcvs.sf.net/
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation; either
+ version 2.1 of the License, or (at your option) any later version.
+
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ 
+ $RCSfile: StatSvnTask.java,v $
+ $Date: 2005/03/24 00:19:51 $ 
+ */
+package net.sf.statsvn.ant;
+
+import net.sf.statcvs.ant.StatCvsTask;
+import net.sf.statcvs.output.ConfigurationException;
+import net.sf.statsvn.Main;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Ant task for running StatSVN.
+ * 
+ * @author Andy Glover
+ * @author Richard Cyganiak
+ * @author Benoit Xhenseval
+ * @author Jason Kealey
+ */
+public class StatSvnTask extends StatCvsTask {
+
+	private boolean anonymize = false;
+
+	private boolean incremental = false;
+
+	private boolean snapshot = false;
+
+	private int fromRevision;
+
+	private String fromDate;
+
+	private String cacheFormat;
+
+	private String cacheDirectory;
+
+	private String svnPassword;
+
+	private String svnUsername;
+
+	private int numberSvnDiffThreads;
+
+	private int numberParseThreads;
+
+	private long thresholdInMsToUseConcurrency;
+
+	private int svnTimeout = -1;
+
+	private boolean useLegacyDiff = false;
+	
+	private boolean useSvnKit = false;
+
+	/**
+	 * Constructor for StatSvnTask.
+	 */
+	public StatSvnTask() {
+		super();
+	}
+
+	/**
+	 * Runs the task
+	 * 
+	 */
+	public void execute() {
+		try {
+			this.initProperties();
+
+			Main.init();
+
+			// main usually builds checks the command line here but we will skip
+			// that step as it is done in initProperties
+
+			Main.generate();
+		} catch (final Exception e) {
+			SvnConfigurationOptions.getTaskLogger().error(Main.printStackTrace(e));
+			
+		}
+	}
+
+	/**
+	 * method initializes the ConfigurationOptions object with received values.
+	 */
+	protected void initProperties() throws ConfigurationException {
+		super.initProperties();
+
+		SvnConfigurationOptions.setAnonymize(this.anonymize);
+		SvnConfigurationOptions.setIncremental(this.incremental);
+		SvnConfigurationOptions.setModelSnapshot(this.snapshot);
+		SvnConfigurationOptions.setFromRevision(this.fromRevision);
+		SvnConfigurationOptions.setFromDate(this.fromDate);
+		SvnConfigurationOptions.setCacheFormat(this.cacheFormat);
+
+		if (this.cacheDirectory != null) {
+			SvnConfigurationOptions.setCacheDir(this.cacheDirectory);
+		} else {
+			SvnConfigurationOptions.setCacheDirToDefault();
+		}
+		
+		if (this.svnPassword != null) {
+			SvnConfigurationOptions.setSvnPassword(this.svnPassword);
+		}
+		if (this.svnUsername != null) {
+			SvnConfigurationOptions.setSvnUsername(this.svnUsername);
+		}
+		if (this.numberSvnDiffThreads != 0) {
+			SvnConfigurationOptions.setNumberSvnDiffThreads(this.numberSvnDiffThreads);
+		}
+		if (this.numberParseThreads != 0) {
+			SvnConfigurationOptions.setNumberParseThreads(this.numberParseThreads);
+		}
+		if (this.thresholdInMsToUseConcurrency != 0) {
+			SvnConfigurationOptions.setThresholdInMsToUseConcurrency(this.thresholdInMsToUseConcurrency);
+		}
+		if (this.svnTimeout >= 0) {
+			SvnConfigurationOptions.setSvnTimeout(this.svnTimeout);
+		}
+		if (this.useLegacyDiff) { // only override if we don't want it. 
+			SvnConfigurationOptions.setLegacyDiff(true);
+		}
+        if (this.useSvnKit) { // only override if we don't want it. 
+            SvnConfigurationOptions.setUsingSvnKit(true);
+        }		
+		SvnConfigurationOptions.setTaskLogger(new AntTaskLogger(this));
+	}
+
+	/**
+	 * @param anonymize
+	 * 		      Set Stats to be anonym or not.
+	 */
+	public void setAnonymize(final boolean anonymize) {
+		this.anonymize = anonymize;
+	}
+
+	/**
+	 * @param incremental
+	 *            Only parse the svn log entries that are newer than the
+	 *            checkpoint of the previous run.
+	 */
+	public void setIncremental(final boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * @param snapshot
+	 *            Reuse the model built from the svn log while the log file
+	 *            does not change.
+	 */
+	public void setSnapshot(final boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * @param fromRevision
+	 *            Leave out the log entries older than this revision.
+	 */
+	public void setFromRevision(final int fromRevision) {
+		this.fromRevision = fromRevision;
+	}
+
+	/**
+	 * @param fromDate
+	 *            Leave out the log entries older than this date (yyyy-MM-dd).
+	 */
+	public void setFromDate(final String fromDate) {
+		this.fromDate = fromDate;
+	}
+
+	/**
+	 * @param cacheFormat
+	 *            Format of the line counts cache: xml or binary.
+	 */
+	public void setCacheFormat(final String cacheFormat) {
+		this.cacheFormat = cacheFormat;
+	}
+
+	/**
+	 * @param cacheDir
+	 *            String representing the cache directory of the program
+	 */
+	public void setCacheDir(final String cacheDir) {
+		this.cacheDirectory = cacheDir;
+	}
+
+	/**
+	 * @param password
+	 *            The svnPassword to set.
+	 */
+	public void setPassword(final String password) {
+		this.svnPassword = password;
+	}
+
+	/**
+	 * @param username
+	 *            The svnUsername to set.
+	 */
+	public void setUsername(final String username) {
+		this.svnUsername = username;
+	}
+
+	/**
+	 * @param threads
+	 *            the numberSvnDiffThreads to set
+	 */
+	public void setThreads(final int threads) {
+		this.numberSvnDiffThreads = threads;
+	}
+
+	/**
+	 * @param threads
+	 *            the numberParseThreads to set
+	 */
+	public void setParseThreads(final int threads) {
+		this.numberParseThreads = threads;
+	}
+
+	/**
+	 * @param thresholdToUseConcurrency
+	 *            the thresholdInMsToUseConcurrency to set
+	 */
+	public void setConcurrencyThreshold(final long thresholdToUseConcurrency) {
+		this.thresholdInMsToUseConcurrency = thresholdToUseConcurrency;
+	}
+
+	/**
+	 * @param seconds
+	 *            how long an svn command may run, 0 for no limit
+	 */
+	public void setSvnTimeout(final int seconds) {
+		this.svnTimeout = seconds;
+	}
+
+	/**
+	 * Should we use a one diff per-file-per-revision or should we use the newer one diff per-revision?
+	 * 
+	 * @param isLegacy true if the legacy diff should be used.  
+	 */
+	public void setLegacyDiff(final boolean isLegacy) {
+		this.useLegacyDiff = isLegacy;
+	}
+	
+    /**
+     * Should we use svn kit to query the repository?
+     * 
+     * @param isSvnKit true if we want to use svnkit.   
+     */
+    public void setSvnKit(final boolean isSvnKit) {
+        this.useSvnKit = isSvnKit;
+    }	
+}
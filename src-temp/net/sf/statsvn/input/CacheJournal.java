@@ -0,0 +1,283 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * The line counts found since the cache was last saved, appended to a small
+ * file next to the cache as each svn diff completes. Saving the whole cache
+ * is then only needed at the end of a run, and what was found before a crash
+ * is replayed into the (@link CacheBuilder) on the next run.
+ * </p>
+ *
+ * <p>
+ * Each run writes its own journal and keeps it locked, so that several
+ * StatSVN processes can share a cache: the journals that are not locked were
+ * left by runs that did not complete (see (@link #findUnused(File, String))).
+ * </p>
+ *
+ * <p>
+ * The records are buffered, and written to the file once the buffer is full
+ * or at most a second after the previous write. A record cut short by a crash
+ * is ignored and removed when replaying; the diffs of the records that were
+ * still buffered are done again on the next run.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class CacheJournal {
+	private static final int MAGIC = 0x53564E4A;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_LENGTH = 8;
+
+	private static final String JOURNAL_EXTENSION = ".journal";
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final long FLUSH_INTERVAL_MS = 1000;
+
+	private final File file;
+
+	private final RandomAccessFile access;
+
+	private final FileLock lock;
+
+	private boolean closed = false;
+
+	/** The buffered end of a journal being written, null when replaying. */
+	private DataOutputStream out = null;
+
+	private long lastFlush;
+
+	private CacheJournal(final File file, final RandomAccessFile access, final FileLock lock) {
+		this.file = file;
+		this.access = access;
+		this.lock = lock;
+	}
+
+	/**
+	 * Creates a new journal for this run, locked until it is closed.
+	 *
+	 * @param directory
+	 *            the cache directory
+	 * @param prefix
+	 *            the start of the names of the journals of the cache
+	 * @return the journal
+	 * @throws IOException
+	 *             if the journal cannot be created.
+	 */
+	public static CacheJournal create(final File directory, final String prefix) throws IOException {
+		final File file = File.createTempFile(prefix, JOURNAL_EXTENSION, directory);
+		final RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			final CacheJournal journal = new CacheJournal(file, access, access.getChannel().lock());
+			journal.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(access.getChannel()), BUFFER_SIZE));
+			journal.out.writeInt(MAGIC);
+			journal.out.writeInt(FORMAT_VERSION);
+			journal.out.flush();
+			journal.lastFlush = System.currentTimeMillis();
+			return journal;
+		} catch (final IOException e) {
+			access.close();
+			file.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds the journals of a cache that no running process holds, and locks
+	 * them.
+	 *
+	 * @param directory
+	 *            the cache directory
+	 * @param prefix
+	 *            the start of the names of the journals of the cache
+	 * @return the unused (@link CacheJournal)s, to be replayed then cleared
+	 *         or closed
+	 */
+	public static List findUnused(final File directory, final String prefix) {
+		final List journals = new ArrayList();
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return journals;
+		}
+		for (int i = 0; i < files.length; i++) {
+			final String name = files[i].getName();
+			if (!name.startsWith(prefix) || !name.endsWith(JOURNAL_EXTENSION)) {
+				continue;
+			}
+			RandomAccessFile access = null;
+			try {
+				access = new RandomAccessFile(files[i], "rw");
+				final FileLock lock = access.getChannel().tryLock();
+				// an empty journal is being created by another process
+				if (lock != null && access.length() > 0) {
+					journals.add(new CacheJournal(files[i], access, lock));
+					access = null;
+				}
+			} catch (final OverlappingFileLockException e) {
+				// held by this process
+			} catch (final IOException e) {
+				// held or removed by another process
+			} finally {
+				if (access != null) {
+					try {
+						access.close();
+					} catch (final IOException e) {
+						// nothing more can be done with it.
+					}
+				}
+			}
+		}
+		return journals;
+	}
+
+	/**
+	 * Adds the revisions of the journal to the cache and forwards their line
+	 * counts to the builders, as reading the cache does.
+	 *
+	 * @param cacheBuilder
+	 *            the cache that was just read
+	 * @return the number of revisions replayed
+	 * @throws IOException
+	 *             if the journal cannot be read.
+	 */
+	public synchronized int replay(final CacheBuilder cacheBuilder) throws IOException {
+		final byte[] content = new byte[(int) access.length()];
+		access.seek(0);
+		access.readFully(content);
+
+		int count = 0;
+		final ByteArrayInputStream bytes = new ByteArrayInputStream(content);
+		final DataInputStream in = new DataInputStream(bytes);
+		int validLength = 0;
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Invalid StatSvn cache journal.");
+			}
+			validLength = content.length - bytes.available();
+			while (true) {
+				final String name;
+				final String number;
+				final String added;
+				final String removed;
+				final String binaryStatus;
+				try {
+					name = in.readUTF();
+					number = in.readUTF();
+					added = in.readUTF();
+					removed = in.readUTF();
+					binaryStatus = in.readUTF();
+				} catch (final EOFException e) {
+					// end of the journal, or a record cut short
+					break;
+				}
+				cacheBuilder.buildPath(name, "0", CacheConfiguration.UNKNOWN);
+				cacheBuilder.buildRevision(number, added, removed, binaryStatus);
+				count++;
+				validLength = content.length - bytes.available();
+			}
+		} catch (final EOFException e) {
+			throw new IOException("Invalid StatSvn cache journal.");
+		}
+		// so that new records do not follow the one cut short
+		access.setLength(validLength);
+		return count;
+	}
+
+	/**
+	 * Appends a revision to the journal. It is written to the file with the
+	 * next ones, at most a second later. Once the journal is closed, as when
+	 * it is compacted while diffs end, the revision is ignored: it was already
+	 * added to the cache saved in its place.
+	 *
+	 * @param name
+	 *            the absolute name of the path
+	 * @param number
+	 *            the revision number
+	 * @param added
+	 *            the number of lines added
+	 * @param removed
+	 *            the number of lines removed
+	 * @param binaryStatus
+	 *            binary status of the revision
+	 * @throws IOException
+	 *             if the journal cannot be written.
+	 */
+	public synchronized void append(final String name, final String number, final String added, final String removed, final String binaryStatus)
+	        throws IOException {
+		if (closed) {
+			return;
+		}
+		out.writeUTF(name);
+		out.writeUTF(number);
+		out.writeUTF(added);
+		out.writeUTF(removed);
+		out.writeUTF(binaryStatus);
+		final long now = System.currentTimeMillis();
+		if (now - lastFlush >= FLUSH_INTERVAL_MS) {
+			out.flush();
+			lastFlush = now;
+		}
+	}
+
+	/**
+	 * @return the number of bytes of revisions appended so far
+	 */
+	public synchronized long length() {
+		return out == null ? 0 : out.size() - HEADER_LENGTH;
+	}
+
+	/**
+	 * Unlocks and closes the journal file, keeping it to be replayed.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (out != null) {
+			try {
+				out.flush();
+			} catch (final IOException e) {
+				// the records still buffered are lost.
+			}
+		}
+		try {
+			lock.release();
+		} catch (final IOException e) {
+			// closing the file releases it as well
+		}
+		try {
+			access.close();
+		} catch (final IOException e) {
+			// nothing more can be done with it.
+		}
+	}
+
+	/**
+	 * Removes the journal, once its revisions were saved in the cache.
+	 */
+	public synchronized void clear() {
+		// removed while still locked where the platform allows it
+		final boolean deleted = file.delete();
+		close();
+		if (!deleted) {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package net.sf.statsvn.input;
+
+import java.io.IOException;
+
+/**
+ * Receives the content of the line counts cache from the (@link CacheBuilder)
+ * when it is saved: the paths, each followed by its revisions.
+ *
+ * @version $Id$
+ */
+interface CacheWriter {
+	/**
+	 * Starts the cache.
+	 *
+	 * @param project
+	 *            the name of the project
+	 */
+	void startCache(String project) throws IOException;
+
+	/**
+	 * Starts a path, to be followed by <code>revisionCount</code> calls to
+	 * (@link #writeRevision(String, String, String, String)).
+	 *
+	 * @param name
+	 *            the absolute name of the path
+	 * @param latestRevision
+	 *            the latest revision for which the binary status is known
+	 * @param binaryStatus
+	 *            binary status of the latest revision
+	 * @param revisionCount
+	 *            the number of revisions of the path
+	 */
+	void writePath(String name, String latestRevision, String binaryStatus, int revisionCount) throws IOException;
+
+	/**
+	 * Writes a revision of the current path.
+	 *
+	 * @param number
+	 *            the revision number
+	 * @param added
+	 *            the number of lines added
+	 * @param removed
+	 *            the number of lines removed
+	 * @param binaryStatus
+	 *            binary status of the revision
+	 */
+	void writeRevision(String number, String added, String removed, String binaryStatus) throws IOException;
+
+	/**
+	 * Ends the cache, once all paths were written.
+	 */
+	void endCache() throws IOException;
+}
@@ -0,0 +1,431 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sf.statsvn.util.MappedFileInputStream;
+
+/**
+ * <p>
+ * Binary copy of the model built from the svn log once the implicit actions
+ * have been verified and the directories removed, so that a run on an
+ * unchanged log does not need to parse it again. The snapshot is only used if
+ * the hash of the log file and the settings it was built with still match.
+ * </p>
+ *
+ * <p>
+ * The revisions are stored column by column: one commit table (revision, date,
+ * author id, comment) followed by one column per revision field, in the order
+ * of the files. The whole snapshot is read in a single sequential pass.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class ModelSnapshot {
+	private static final int MAGIC = 0x53564E53;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int FLAG_EXP = 1;
+
+	private static final int FLAG_DEAD = 2;
+
+	private static final int FLAG_ADDED = 4;
+
+	private static final int FLAG_NO_LINES = 8;
+
+	private static final int HASH_BUFFER_SIZE = 65536;
+
+	private final File file;
+
+	private final String logHash;
+
+	private final String signature;
+
+	/**
+	 * @param file
+	 *            the snapshot file.
+	 * @param logHash
+	 *            the hash of the svn log (see (@link #hash(File))).
+	 * @param signature
+	 *            the settings that influence the model.
+	 */
+	public ModelSnapshot(final File file, final String logHash, final String signature) {
+		this.file = file;
+		this.logHash = logHash;
+		this.signature = signature;
+	}
+
+	/**
+	 * Computes the MD5 hash of a file.
+	 *
+	 * @param logFile
+	 *            the svn log file.
+	 * @return the hash, in hexadecimal.
+	 * @throws IOException
+	 *             errors while reading file.
+	 */
+	public static String hash(final File logFile) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException("MD5 not available: " + e.getMessage());
+		}
+		final InputStream in = new MappedFileInputStream(logFile);
+		try {
+			final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+
+		final byte[] bytes = digest.digest();
+		final StringBuffer hex = new StringBuffer(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16)).append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Rebuilds the model from the snapshot.
+	 *
+	 * @param builder
+	 *            an empty builder.
+	 * @param repositoryFileManager
+	 *            receives the directories that were detected while verifying
+	 *            the implicit actions.
+	 * @return false if there is no snapshot for this log and these settings,
+	 *         in which case the builder was left untouched.
+	 * @throws IOException
+	 *             errors while reading file.
+	 */
+	public boolean restore(final Builder builder, final RepositoryFileManager repositoryFileManager) throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new MappedFileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !logHash.equals(LogCheckpoint.readString(in))
+			        || !signature.equals(LogCheckpoint.readString(in))) {
+				return false;
+			}
+
+			final String projectName = LogCheckpoint.readString(in);
+			final Date startDate = LogCheckpoint.readDate(in);
+
+			final int tagMapCount = in.readInt();
+			final Map[] tagsMaps = new Map[tagMapCount];
+			final Map[] tagsDateMaps = new Map[tagMapCount];
+			for (int i = 0; i < tagMapCount; i++) {
+				tagsMaps[i] = new HashMap();
+				tagsDateMaps[i] = new HashMap();
+				final int tagCount = in.readInt();
+				for (int j = 0; j < tagCount; j++) {
+					final String tag = LogCheckpoint.readString(in);
+					tagsMaps[i].put(tag, LogCheckpoint.readString(in));
+					tagsDateMaps[i].put(tag, LogCheckpoint.readDate(in));
+				}
+			}
+
+			final String[] atticFileNames = readStrings(in);
+			final String[] directories = readStrings(in);
+			final String[] authors = readStrings(in);
+			final String[] copyfromStrings = readStrings(in);
+
+			final int commitCount = in.readInt();
+			final String[] revisionNumbers = new String[commitCount];
+			for (int i = 0; i < commitCount; i++) {
+				revisionNumbers[i] = String.valueOf(in.readInt());
+			}
+			final Date[] dates = new Date[commitCount];
+			for (int i = 0; i < commitCount; i++) {
+				dates[i] = LogCheckpoint.readDate(in);
+			}
+			final int[] authorIds = readInts(in, commitCount);
+			final CommitInfo[] commitInfos = new CommitInfo[commitCount];
+			for (int i = 0; i < commitCount; i++) {
+				commitInfos[i] = new CommitInfo(dates[i], authorIds[i] < 0 ? null : authors[authorIds[i]], LogCheckpoint.readString(in));
+			}
+
+			final int fileCount = in.readInt();
+			final String[] names = new String[fileCount];
+			final boolean[] binaries = new boolean[fileCount];
+			final int[] tagMapIds = new int[fileCount];
+			final int[] revisionCounts = new int[fileCount];
+			for (int i = 0; i < fileCount; i++) {
+				names[i] = LogCheckpoint.readString(in);
+				binaries[i] = in.readBoolean();
+				tagMapIds[i] = in.readInt();
+				revisionCounts[i] = in.readInt();
+			}
+
+			final int revisionCount = in.readInt();
+			final int[] commits = readInts(in, revisionCount);
+			final byte[] flags = new byte[revisionCount];
+			in.readFully(flags);
+			final int[] linesAdded = readInts(in, revisionCount);
+			final int[] linesRemoved = readInts(in, revisionCount);
+			final int[] copyfromPaths = readInts(in, revisionCount);
+			final int[] copyfromRevisions = readInts(in, revisionCount);
+
+			builder.buildModule(projectName);
+			int revision = 0;
+			for (int i = 0; i < fileCount; i++) {
+				final int tagMapId = tagMapIds[i];
+				builder.buildFile(names[i], binaries[i], false, tagMapId < 0 ? new HashMap() : tagsMaps[tagMapId], tagMapId < 0 ? new HashMap()
+				        : tagsDateMaps[tagMapId]);
+				for (int j = 0; j < revisionCounts[i]; j++, revision++) {
+					final int commit = commits[revision];
+					final RevisionData data = new RevisionData();
+					data.setRevisionNumber(revisionNumbers[commit]);
+					data.setCommit(commitInfos[commit]);
+					data.setStateExp((flags[revision] & FLAG_EXP) != 0);
+					data.setStateDead((flags[revision] & FLAG_DEAD) != 0);
+					data.setStateAdded((flags[revision] & FLAG_ADDED) != 0);
+					if ((flags[revision] & FLAG_NO_LINES) == 0) {
+						data.setLines(linesAdded[revision], linesRemoved[revision]);
+					}
+					data.setCopyfromPath(copyfromPaths[revision] < 0 ? null : copyfromStrings[copyfromPaths[revision]]);
+					data.setCopyfromRevision(copyfromRevisions[revision] < 0 ? null : copyfromStrings[copyfromRevisions[revision]]);
+					builder.buildRevision(data);
+				}
+			}
+			for (int i = 0; i < atticFileNames.length; i++) {
+				builder.addToAttic(atticFileNames[i]);
+			}
+			builder.setStartDate(startDate);
+			for (int i = 0; i < directories.length; i++) {
+				repositoryFileManager.addDirectory(directories[i]);
+			}
+			return true;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the model. A temporary file is written first so
+	 * that an interrupted run does not leave a truncated snapshot behind.
+	 *
+	 * @param builder
+	 *            the builder holding the model.
+	 * @param directories
+	 *            the directories detected while verifying the implicit
+	 *            actions.
+	 * @throws IOException
+	 *             errors while writing file.
+	 * @throws NumberFormatException
+	 *             a revision number is not an integer.
+	 */
+	public void write(final Builder builder, final Collection directories) throws IOException {
+		final Map fileBuilders = new TreeMap(builder.getFileBuilders());
+		final Map tagMapIds = new IdentityHashMap();
+		final List tagsMaps = new ArrayList();
+		final List tagsDateMaps = new ArrayList();
+		final StringTable authors = new StringTable();
+		final StringTable copyfromStrings = new StringTable();
+		final List commits = new ArrayList();
+		final Map commitByRevision = new HashMap();
+
+		int revisionCount = 0;
+		for (final Iterator it = fileBuilders.values().iterator(); it.hasNext();) {
+			final FileBuilder fileBuilder = (FileBuilder) it.next();
+			if (fileBuilder.getRevBySymnames() != null && !tagMapIds.containsKey(fileBuilder.getRevBySymnames())) {
+				tagMapIds.put(fileBuilder.getRevBySymnames(), new Integer(tagsMaps.size()));
+				tagsMaps.add(fileBuilder.getRevBySymnames());
+				tagsDateMaps.add(fileBuilder.getDateBySymnames());
+			}
+			revisionCount += fileBuilder.getRevisions().size();
+		}
+
+		final int[] commitIds = new int[revisionCount];
+		final byte[] flags = new byte[revisionCount];
+		final int[] linesAdded = new int[revisionCount];
+		final int[] linesRemoved = new int[revisionCount];
+		final int[] copyfromPaths = new int[revisionCount];
+		final int[] copyfromRevisions = new int[revisionCount];
+		int revision = 0;
+		for (final Iterator it = fileBuilders.values().iterator(); it.hasNext();) {
+			final FileBuilder fileBuilder = (FileBuilder) it.next();
+			for (final Iterator revs = fileBuilder.getRevisions().iterator(); revs.hasNext(); revision++) {
+				final RevisionData data = (RevisionData) revs.next();
+				commitIds[revision] = findCommit(data, commits, commitByRevision);
+				flags[revision] = (byte) ((data.isStateExp() ? FLAG_EXP : 0) | (data.isStateDead() ? FLAG_DEAD : 0) | (data.isStateAdded() ? FLAG_ADDED : 0) | (data
+				        .hasNoLines() ? FLAG_NO_LINES : 0));
+				linesAdded[revision] = data.getLinesAdded();
+				linesRemoved[revision] = data.getLinesRemoved();
+				copyfromPaths[revision] = copyfromStrings.getId(data.getCopyfromPath());
+				copyfromRevisions[revision] = copyfromStrings.getId(data.getCopyfromRevision());
+			}
+		}
+		final int[] commitRevisions = new int[commits.size()];
+		final int[] authorIds = new int[commits.size()];
+		for (int i = 0; i < commits.size(); i++) {
+			final RevisionData commit = (RevisionData) commits.get(i);
+			commitRevisions[i] = Integer.parseInt(commit.getRevisionNumber());
+			authorIds[i] = authors.getId(commit.getLoginName());
+		}
+
+		final File tempFile = new File(file.getPath() + ".tmp");
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			LogCheckpoint.writeString(out, logHash);
+			LogCheckpoint.writeString(out, signature);
+			LogCheckpoint.writeString(out, builder.getProjectName());
+			LogCheckpoint.writeDate(out, builder.getStartDate());
+
+			out.writeInt(tagsMaps.size());
+			for (int i = 0; i < tagsMaps.size(); i++) {
+				final Map tagsMap = (Map) tagsMaps.get(i);
+				final Map tagsDateMap = (Map) tagsDateMaps.get(i);
+				out.writeInt(tagsMap.size());
+				for (final Iterator it = tagsMap.entrySet().iterator(); it.hasNext();) {
+					final Map.Entry tag = (Map.Entry) it.next();
+					LogCheckpoint.writeString(out, (String) tag.getKey());
+					LogCheckpoint.writeString(out, (String) tag.getValue());
+					LogCheckpoint.writeDate(out, tagsDateMap == null ? null : (Date) tagsDateMap.get(tag.getKey()));
+				}
+			}
+
+			writeStrings(out, builder.getAtticFileNames());
+			writeStrings(out, directories);
+			writeStrings(out, authors.getStrings());
+			writeStrings(out, copyfromStrings.getStrings());
+
+			out.writeInt(commits.size());
+			writeInts(out, commitRevisions);
+			for (final Iterator it = commits.iterator(); it.hasNext();) {
+				LogCheckpoint.writeDate(out, ((RevisionData) it.next()).getDate());
+			}
+			writeInts(out, authorIds);
+			for (final Iterator it = commits.iterator(); it.hasNext();) {
+				LogCheckpoint.writeString(out, ((RevisionData) it.next()).getComment());
+			}
+
+			out.writeInt(fileBuilders.size());
+			for (final Iterator it = fileBuilders.values().iterator(); it.hasNext();) {
+				final FileBuilder fileBuilder = (FileBuilder) it.next();
+				LogCheckpoint.writeString(out, fileBuilder.getName());
+				out.writeBoolean(fileBuilder.isBinary());
+				final Integer tagMapId = (Integer) tagMapIds.get(fileBuilder.getRevBySymnames());
+				out.writeInt(tagMapId == null ? -1 : tagMapId.intValue());
+				out.writeInt(fileBuilder.getRevisions().size());
+			}
+
+			out.writeInt(revisionCount);
+			writeInts(out, commitIds);
+			out.write(flags);
+			writeInts(out, linesAdded);
+			writeInts(out, linesRemoved);
+			writeInts(out, copyfromPaths);
+			writeInts(out, copyfromRevisions);
+		} finally {
+			out.close();
+		}
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not replace " + file);
+		}
+		if (!tempFile.renameTo(file)) {
+			throw new IOException("Could not rename " + tempFile + " to " + file);
+		}
+	}
+
+	/**
+	 * All the files of a revision normally share author, date and comment;
+	 * revisions that don't get their own commit.
+	 */
+	private static int findCommit(final RevisionData data, final List commits, final Map commitByRevision) {
+		final Integer id = (Integer) commitByRevision.get(data.getRevisionNumber());
+		if (id != null) {
+			final RevisionData commit = (RevisionData) commits.get(id.intValue());
+			if (commit.getCommit().equals(data.getCommit())) {
+				return id.intValue();
+			}
+		}
+		commits.add(data);
+		if (id == null) {
+			commitByRevision.put(data.getRevisionNumber(), new Integer(commits.size() - 1));
+		}
+		return commits.size() - 1;
+	}
+
+	private static void writeStrings(final DataOutputStream out, final Collection strings) throws IOException {
+		out.writeInt(strings.size());
+		for (final Iterator it = strings.iterator(); it.hasNext();) {
+			LogCheckpoint.writeString(out, (String) it.next());
+		}
+	}
+
+	private static String[] readStrings(final DataInputStream in) throws IOException {
+		final String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = LogCheckpoint.readString(in);
+		}
+		return strings;
+	}
+
+	private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	private static int[] readInts(final DataInputStream in, final int count) throws IOException {
+		final int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Gives an id to every distinct non-null string.
+	 */
+	private static final class StringTable {
+		private final Map ids = new HashMap();
+
+		private final List strings = new ArrayList();
+
+		private int getId(final String value) {
+			if (value == null) {
+				return -1;
+			}
+			Integer id = (Integer) ids.get(value);
+			if (id == null) {
+				id = new Integer(strings.size());
+				ids.put(value, id);
+				strings.add(value);
+			}
+			return id.intValue();
+		}
+
+		private List getStrings() {
+			return strings;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package net.sf.statsvn.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * (@link SvnLogEntryBuilder) that only remembers the files and revisions it is
+ * given, so that they can be handed over to the real builder later on, from
+ * another thread.
+ *
+ * Pattern matching is delegated to the real builder, which must therefore be
+ * safe to query concurrently.
+ *
+ * @version $Id$
+ */
+public class RecordingLogBuilder implements SvnLogEntryBuilder {
+	private final SvnLogEntryBuilder delegate;
+
+	private final List entries = new ArrayList();
+
+	private String currentFilename;
+
+	private boolean currentIsBinary;
+
+	private boolean currentIsInAttic;
+
+	private RevisionData oldestFilteredRevision;
+
+	/**
+	 * @param delegate
+	 *            the builder used for pattern matching.
+	 */
+	public RecordingLogBuilder(final SvnLogEntryBuilder delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @return the recorded (@link Entry)s, in the order they were built.
+	 */
+	public List getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Ignored; the module is built once by the caller.
+	 */
+	public void buildModule(final String moduleName) {
+	}
+
+	public void buildFile(final String filename, final boolean isBinary, final boolean isInAttic, final Map revBySymnames, final Map dateBySymnames) {
+		currentFilename = filename;
+		currentIsBinary = isBinary;
+		currentIsInAttic = isInAttic;
+	}
+
+	public void buildRevision(final RevisionData data) {
+		entries.add(new Entry(currentFilename, currentIsBinary, currentIsInAttic, data));
+	}
+
+	/**
+	 * Only the oldest filtered revision is kept, as that is all the real
+	 * builder uses them for.
+	 */
+	public void buildFilteredRevision(final RevisionData data) {
+		if (oldestFilteredRevision == null || oldestFilteredRevision.getDate().compareTo(data.getDate()) > 0) {
+			oldestFilteredRevision = data;
+		}
+	}
+
+	/**
+	 * @return the oldest revision given to (@link #buildFilteredRevision(RevisionData)), or null.
+	 */
+	public RevisionData getOldestFilteredRevision() {
+		return oldestFilteredRevision;
+	}
+
+	public boolean matchesPatterns(final String filename) {
+		return delegate.matchesPatterns(filename);
+	}
+
+	public boolean matchesTagPatterns(final String tag) {
+		return delegate.matchesTagPatterns(tag);
+	}
+
+	/**
+	 * One <tt>buildFile</tt> invocation followed by one
+	 * <tt>buildRevision</tt>.
+	 */
+	public static final class Entry {
+		private final String filename;
+
+		private final boolean binary;
+
+		private final boolean inAttic;
+
+		private final RevisionData revisionData;
+
+		Entry(final String filename, final boolean binary, final boolean inAttic, final RevisionData revisionData) {
+			this.filename = filename;
+			this.binary = binary;
+			this.inAttic = inAttic;
+			this.revisionData = revisionData;
+		}
+
+		public String getFilename() {
+			return filename;
+		}
+
+		public boolean isBinary() {
+			return binary;
+		}
+
+		public boolean isInAttic() {
+			return inAttic;
+		}
+
+		public RevisionData getRevisionData() {
+			return revisionData;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package net.sf.statsvn.input;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * <p>
+ * This class receives information from the (@link net.sf.statsvn.input.SvnXmlRepositoriesFileHandler)
+ * to build a DOM-based XML structure containing the names of all repositories and associated line counts xml files.
+ * It then allows to retrieve the line counts file name for a given repository, and the format of that file.
+ * </p>
+ * 
+ * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
+ * 
+ * @version $Id: RepositoriesBuilder.java 351 2008-03-28 18:46:26Z benoitx $
+ * 
+ */
+public class RepositoriesBuilder {
+	private static final String FILE_EXTENSION = ".xml";
+
+	private static final String BINARY_FILE_EXTENSION = ".bin";
+
+	private static final String FILE_PREFIX = "cache_";
+
+	private static final String REPOSITORIES = "repositories";
+
+	private static final String UUID = "uuid";
+
+	private static final String FILE = "file";
+
+	private static final String PROJECT = "project";
+
+	private static final String REPOSITORY = "repository";
+
+	private static final String FORMAT = "format";
+
+	private Document document = null;
+
+	private Element repositories = null;
+
+	/**
+	 * Constructs the RepositoriesBuilder
+	 * 
+	 */
+	public RepositoriesBuilder() {
+	}
+
+	/**
+	 * Finds a repository in the DOM.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @return the repository or null if the repository does not exist
+	 */
+	private Element findRepository(final String uuid) {
+		final NodeList paths = repositories.getChildNodes();
+		for (int i = 0; i < paths.getLength(); i++) {
+			final Element path = (Element) paths.item(i);
+			if (uuid.equals(path.getAttribute(UUID))) {
+				return path;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a repository to the DOM structure.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param file
+	 *            the filename for the XML line counts file
+	 */
+	public Element buildRepository(final String uuid, final String file) {
+		return buildRepository(uuid, file, null);
+	}
+
+	/**
+	 * Adds a repository to the DOM structure.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param file
+	 *            the filename for the line counts file
+	 * @param format
+	 *            the format of the line counts file, null for the xml format
+	 *            of the files written before formats were recorded.
+	 */
+	public Element buildRepository(final String uuid, final String file, final String format) {
+		final Element repository = document.createElement(REPOSITORY);
+		repository.setAttribute(UUID, uuid);
+		repository.setAttribute(FILE, file);
+		repository.setAttribute(PROJECT, ConfigurationOptions.getProjectName());
+		repository.setAttribute(FORMAT, format == null ? SvnConfigurationOptions.CACHE_FORMAT_XML : format);
+		repositories.appendChild(repository);
+		return repository;
+	}
+
+	/**
+	 * Builds the DOM root.
+	 * 
+	 * @throws ParserConfigurationException
+	 */
+	public void buildRoot() throws ParserConfigurationException {
+		final DocumentBuilderFactory factoryDOM = DocumentBuilderFactory.newInstance();
+		DocumentBuilder builderDOM;
+		builderDOM = factoryDOM.newDocumentBuilder();
+		document = builderDOM.newDocument();
+		repositories = document.createElement(REPOSITORIES);
+		document.appendChild(repositories);
+	}
+
+	/**
+	 * Retrieves the file name of the line counts xml file for a given repository.
+	 * Creates a new file name if the line counts xml file does not exist.
+	 * 
+	 * If the repositories xml file does not exist (i.e. the document is null), 
+	 * a new document is created.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 *            
+	 * @return the file name or "" if an unexpected error occurs          
+	 */
+	public String getFileName(final String uuid) {
+		return getFileName(uuid, SvnConfigurationOptions.CACHE_FORMAT_XML);
+	}
+
+	/**
+	 * Retrieves the file name of the line counts file for a given repository.
+	 * Creates a new file name, in the given format, if the repository is not
+	 * known yet.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param format
+	 *            the format of the line counts file of a new repository
+	 * @return the file name or "" if an unexpected error occurs
+	 */
+	public String getFileName(final String uuid, final String format) {
+		final Element repository = getRepository(uuid, format);
+		return repository == null ? "" : repository.getAttribute(FILE);
+	}
+
+	/**
+	 * Retrieves the format of the line counts file of a given repository, as
+	 * (@link SvnConfigurationOptions#getCacheFormat()). Repositories recorded
+	 * without a format use xml files.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @return the format of the file
+	 */
+	public String getFormat(final String uuid) {
+		final Element repository = getRepository(uuid, SvnConfigurationOptions.CACHE_FORMAT_XML);
+		if (repository == null || repository.getAttribute(FORMAT).length() == 0) {
+			return SvnConfigurationOptions.CACHE_FORMAT_XML;
+		}
+		return repository.getAttribute(FORMAT);
+	}
+
+	/**
+	 * Records that the line counts of a repository are now kept in another
+	 * format, in a file named accordingly.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param format
+	 *            the new format
+	 * @return the new file name or "" if an unexpected error occurs
+	 */
+	public String setFormat(final String uuid, final String format) {
+		final Element repository = getRepository(uuid, format);
+		if (repository == null) {
+			return "";
+		}
+		repository.setAttribute(FILE, createFileName(uuid, format));
+		repository.setAttribute(FORMAT, format);
+		return repository.getAttribute(FILE);
+	}
+
+	private Element getRepository(final String uuid, final String format) {
+		if (document == null) {
+			try {
+				buildRoot();
+			} catch (final ParserConfigurationException e) {
+				document = null;
+			}
+		}
+		if (document != null) {
+			Element repository = findRepository(uuid);
+			if (repository == null) {
+				repository = buildRepository(uuid, createFileName(uuid, format), format);
+			}
+			return repository;
+		}
+		return null;
+	}
+
+	private static String createFileName(final String uuid, final String format) {
+		if (SvnConfigurationOptions.CACHE_FORMAT_BINARY.equals(format)) {
+			return FILE_PREFIX + uuid + BINARY_FILE_EXTENSION;
+		}
+		return FILE_PREFIX + uuid + FILE_EXTENSION;
+	}
+
+	/**
+	 * Returns the DOM object when building is complete.
+	 * 
+	 * @return the DOM document.
+	 */
+	public Document getDocument() {
+		return document;
+	}
+
+}
@@ -0,0 +1,393 @@
+/*
+ StatCvs - CVS statistics generation 
+ Copyright (C) 2002  Lukasz Pekacki &lt;lukasz@pekacki.de&gt;
+ http://statcvs.sf.net/
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation; either
+ version 2.1 of the License, or (at your option) any later version.
+
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the Free Software
+ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ 
+ $RCSfile: RevisionData.java,v $
+ $Date: 2004/10/12 07:22:42 $
+ */
+package net.sf.statsvn.input;
+
+import java.util.Date;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Container for all information contained in one SVN revision.
+ * 
+ * @author Richard Cyganiak &lt;richard@cyganiak.de&gt; *
+ * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
+ * @author Jason Kealey &lt;jkealey@shade.ca&gt;
+ * 
+ * @version $Id: RevisionData.java 351 2008-03-28 18:46:26Z benoitx $
+ */
+public class RevisionData {
+	/** Value of (@link #getRevisionNumberAsInt()) for a non numeric revision. */
+	public static final int NO_REVISION = -1;
+
+	private static final byte STATE_EXP = 1;
+
+	private static final byte STATE_DEAD = 2;
+
+	private static final byte STATE_ADDED = 4;
+
+	private static final byte HAS_NO_LINES = 8;
+
+	private String revisionNumber;
+
+	private int revision = NO_REVISION;
+
+	private CommitInfo commit = CommitInfo.EMPTY;
+
+	private byte flags = HAS_NO_LINES;
+
+	private int linesAdded;
+
+	private int linesRemoved;
+
+	private String copyfromPath;
+
+	private String copyfromRevision;
+
+	public RevisionData() {
+	}
+
+	/**
+	 * @return Returns the loginName.
+	 */
+	public String getLoginName() {
+		return commit.getLoginName();
+	}
+
+	/**
+	 * @param authorName
+	 *            The loginName to set.
+	 */
+	public void setLoginName(final String authorName) {
+		commit = commit.withLoginName(authorName);
+	}
+
+	/**
+	 * @return Returns the date.
+	 */
+	public Date getDate() {
+		return commit.getDate();
+	}
+
+	/**
+	 * @param date
+	 *            The date to set.
+	 */
+	public void setDate(final Date date) {
+		commit = commit.withDate(date);
+	}
+
+	/**
+	 * @return the author, date and comment of this revision, shared with the
+	 *         other files of the commit.
+	 */
+	public CommitInfo getCommit() {
+		return commit;
+	}
+
+	/**
+	 * Sets author, date and comment at once, sharing the given instance.
+	 * 
+	 * @param commit
+	 *            the commit this revision belongs to.
+	 */
+	public void setCommit(final CommitInfo commit) {
+		this.commit = commit;
+	}
+
+	/**
+	 * @return Returns the linesAdded.
+	 */
+	public int getLinesAdded() {
+		return linesAdded;
+	}
+
+	/**
+	 * @return Returns the linesRemoved.
+	 */
+	public int getLinesRemoved() {
+		return linesRemoved;
+	}
+
+	/**
+	 * Checks if the revision contains numbers for the added and removed lines.
+	 * 
+	 * @return true if the revision contains numbers for the added and removed lines
+	 */
+	public boolean hasNoLines() {
+		return isSet(HAS_NO_LINES);
+	}
+
+	/**
+	 * Sets the number of added and removed lines.
+	 * 
+	 * @param added
+	 *            The number of added lines
+	 * @param removed
+	 *            The number of removed lines
+	 */
+	public void setLines(final int added, final int removed) {
+		this.linesAdded = added;
+		this.linesRemoved = removed;
+		set(HAS_NO_LINES, false);
+	}
+
+	private boolean isSet(final byte flag) {
+		return (flags & flag) != 0;
+	}
+
+	private void set(final byte flag, final boolean value) {
+		if (value) {
+			flags |= flag;
+		} else {
+			flags &= ~flag;
+		}
+	}
+
+	/**
+	 * @return Returns the revisionNumber.
+	 */
+	public String getRevisionNumber() {
+		return revisionNumber;
+	}
+
+	/**
+	 * Sets the revision number.
+	 * 
+	 * @param revision
+	 *            The revision number
+	 */
+	public void setRevisionNumber(final String revision) {
+		this.revisionNumber = revision;
+		this.revision = parseRevision(revision);
+	}
+
+	/**
+	 * @return the revision number as an int, or (@link #NO_REVISION) if it is
+	 *         not numeric.
+	 */
+	public int getRevisionNumberAsInt() {
+		return revision;
+	}
+
+	/**
+	 * New in StatSVN: Revisions older than the revision or date the report
+	 * starts at (see (@link SvnConfigurationOptions#getFromRevision())) are
+	 * only built to find the implicit actions on the later ones.
+	 * 
+	 * @return <tt>true</tt> if the revision is older than the first one to
+	 *         report on.
+	 */
+	public boolean isBeforeFirstRequestedRevision() {
+		final int fromRevision = SvnConfigurationOptions.getFromRevision();
+		if (fromRevision > 0 && revision != NO_REVISION && revision < fromRevision) {
+			return true;
+		}
+		final Date fromDate = SvnConfigurationOptions.getFromDate();
+		return fromDate != null && getDate() != null && getDate().before(fromDate);
+	}
+
+	static int parseRevision(final String revisionNumber) {
+		if (revisionNumber == null) {
+			return NO_REVISION;
+		}
+		try {
+			return Integer.parseInt(revisionNumber);
+		} catch (final NumberFormatException e) {
+			return NO_REVISION;
+		}
+	}
+
+	/**
+	 * Is this revision a deletion?
+	 * 
+	 * @param isDead
+	 *            <tt>true</tt> if revision is a deletion.
+	 */
+	public void setStateDead(final boolean isDead) {
+		set(STATE_DEAD, isDead);
+	}
+
+	/**
+	 * Is the revision exposed. This is CVS speak for any "live" revisionNumber, that is, if this is the current revisionNumber, then a file exists in the
+	 * working copy.
+	 * 
+	 * New in StatSVN: We use it to mean this revision is not a deletion revision. (modify, add or replace)
+	 * 
+	 * @param isExposed
+	 *            <tt>true</tt> true if the revision is not a deletion.
+	 */
+	public void setStateExp(final boolean isExposed) {
+		set(STATE_EXP, isExposed);
+	}
+
+	/**
+	 * Is this revision an addition?
+	 * 
+	 * New in StatSVN: This is no longer a still exists in working copy. We use it to mean this revision is not a deletion revision.
+	 * 
+	 * @param isAdded
+	 */
+	public void setStateAdded(final boolean isAdded) {
+		set(STATE_ADDED, isAdded);
+	}
+
+	/**
+	 * @return Returns the comment.
+	 */
+	public String getComment() {
+		return commit.getComment();
+	}
+
+	/**
+	 * @param comment
+	 *            The comment to set.
+	 */
+	public void setComment(final String comment) {
+		commit = commit.withComment(comment);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this revisionNumber is the removal of a file.
+	 * 
+	 * @return <tt>true</tt> if this revisionNumber deletes the file.
+	 * 
+	 */
+	public boolean isDeletion() {
+		return isSet(STATE_DEAD);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this revisionNumber is a normal change.
+	 * 
+	 * New in StatSVN: This was isChangeOrRestore before.
+	 * 
+	 * @return <tt>true</tt> if this is a normal change or a restore.
+	 */
+	public boolean isChange() {
+		// return stateExp && !hasNoLines;
+		return isSet(STATE_EXP) && !isSet(STATE_ADDED);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this revisionNumber is the creation of a new file or a restore.. The distinction between these two cases can be made by
+	 * looking at the previous (in time, not log order) revisionNumber. If it was a deletion, then this revisionNumber is a restore.
+	 * 
+	 * New in StatSVN: This was isCreation before.
+	 * 
+	 * @return <tt>true</tt> if this is the creation of a new file.
+	 */
+	public boolean isCreationOrRestore() {
+		// return stateExp && hasNoLines;
+		return isSet(STATE_EXP) && isSet(STATE_ADDED);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this is an Exp ("exposed"?) revisionNumber. This is CVS speak for any "live" revisionNumber, that is, if this is the current
+	 * revisionNumber, then a file exists in the working copy.
+	 * 
+	 * New in StatSVN: We use it to mean this revision is not a deletion revision. (modify, add or replace)
+	 * 
+	 * @return <tt>true</tt> if this is an Exp revisionNumber
+	 */
+	public boolean isStateExp() {
+		return isSet(STATE_EXP);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if this is a dead revisionNumber. If this is the current revisionNumber, then the file does not exist in the working copy.
+	 * 
+	 * @return <tt>true</tt> if this is a dead revisionNumber
+	 */
+	public boolean isStateDead() {
+		return isSet(STATE_DEAD);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the file was added or replaced in this revisionNumber.
+	 * 
+	 * @return <tt>true</tt> if this is an added revisionNumber
+	 */
+	public boolean isStateAdded() {
+		return isSet(STATE_ADDED);
+	}
+
+	/**
+	 * Returns the current revision data in string format.
+	 */
+	public String toString() {
+		return "RevisionData " + revisionNumber;
+	}
+
+	/**
+	 * Returns a new instance of the RevisionData, with the same fields as the current one.
+	 * 
+	 * @return the clone
+	 */
+	public RevisionData createCopy() {
+		return new RevisionData(revisionNumber, revision, commit, flags, linesAdded, linesRemoved);
+	}
+
+	/**
+	 * Private constructor used by (@link #clone())
+	 * 
+	 * @param revisionNumber
+	 *            the revision number
+	 * @param revision
+	 *            the revision number as an int
+	 * @param commit
+	 *            the author, date and comment of the revision
+	 * @param flags
+	 *            the state of the revision and whether we have set the line counts
+	 * @param linesAdded
+	 *            number of lines added
+	 * @param linesRemoved
+	 *            number of lines removed
+	 */
+	private RevisionData(final String revisionNumber, final int revision, final CommitInfo commit, final byte flags, final int linesAdded,
+	        final int linesRemoved) {
+		super();
+		this.revisionNumber = revisionNumber;
+		this.revision = revision;
+		this.commit = commit;
+		this.flags = flags;
+		this.linesAdded = linesAdded;
+		this.linesRemoved = linesRemoved;
+	}
+
+	public String getCopyfromPath() {
+		return copyfromPath;
+	}
+
+	public void setCopyfromPath(final String copyfromPath) {
+		this.copyfromPath = copyfromPath;
+	}
+
+	public String getCopyfromRevision() {
+		return copyfromRevision;
+	}
+
+	public void setCopyfromRevision(final String copyfromRevision) {
+		this.copyfromRevision = copyfromRevision;
+	}
+
+}
\ No newline at end of file
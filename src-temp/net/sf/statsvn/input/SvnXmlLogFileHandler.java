@@ -0,0 +1,581 @@
+package net.sf.statsvn.input;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.XMLUtil;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * This is the SAX parser for the svn log in xml format. It feeds information to
+ * the (@link net.sf.statsvn.input.SvnLogBuilder).
+ * 
+ * @author Jason Kealey &lt;jkealey@shade.ca&gt;
+ * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
+ * 
+ * @version $Id: SvnXmlLogFileHandler.java 351 2008-03-28 18:46:26Z benoitx $
+ */
+public class SvnXmlLogFileHandler extends DefaultHandler {
+
+	private static final String INVALID_SVN_LOG_FILE = "Invalid SVN log file.";
+
+	private static final String AUTHOR = "author";
+
+	private static final String DATE = "date";
+
+	private static final String FATAL_ERROR_MESSAGE = INVALID_SVN_LOG_FILE;
+
+	private static final String LOG = "log";
+
+	private static final String LOGENTRY = "logentry";
+
+	private static final String MSG = "msg";
+
+	private static final String PATH = "path";
+
+	private static final String PATHS = "paths";
+
+	private final SvnLogEntryBuilder builder;
+
+	private ArrayList currentFilenames;
+
+	private RevisionData currentRevisionData;
+
+	private ArrayList currentRevisions;
+
+	private String lastElement = "";
+
+	private String pathAction = "";
+
+	private final StringBuffer stringData = new StringBuffer();
+
+	private final TimeZone localZone = TimeZone.getDefault();
+
+	private String copyfromRev = "";
+
+	private String copyfromPath = "";
+
+	private final RepositoryFileManager repositoryFileManager;
+
+	private final HashMap tagsMap = new HashMap();
+
+	private final HashMap tagsDateMap = new HashMap();
+
+	private final boolean loadRepositoryInfo;
+
+	private int lastKnownRevision = -1;
+
+	private boolean stopAtLastKnownRevision;
+
+	private boolean lastKnownRevisionFound;
+
+	private boolean skipLogEntry;
+
+	private int firstRevision = -1;
+
+	private int lastRevision = -1;
+
+	private int highestRevision = -1;
+
+	private boolean hasFilteredPaths;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param builder
+	 *            where to send the information
+	 * @param repositoryFileManager
+	 *            the repository file manager needed to obtain some information.
+	 */
+	public SvnXmlLogFileHandler(final SvnLogEntryBuilder builder, final RepositoryFileManager repositoryFileManager) {
+		this(builder, repositoryFileManager, true);
+	}
+
+	/**
+	 * Constructor used when only a part of the log is handled by this
+	 * instance.
+	 * 
+	 * @param builder
+	 *            where to send the information
+	 * @param repositoryFileManager
+	 *            the repository file manager needed to obtain some information.
+	 * @param loadRepositoryInfo
+	 *            <tt>false</tt> if the repository information has already
+	 *            been loaded and the module already built by the caller.
+	 */
+	SvnXmlLogFileHandler(final SvnLogEntryBuilder builder, final RepositoryFileManager repositoryFileManager, final boolean loadRepositoryInfo) {
+		this.builder = builder;
+		this.repositoryFileManager = repositoryFileManager;
+		this.loadRepositoryInfo = loadRepositoryInfo;
+	}
+
+	/**
+	 * Makes this handler ignore the log entries that were already processed
+	 * in a previous run (see (@link LogCheckpoint)).
+	 * 
+	 * @param revision
+	 *            the highest revision processed in the previous run.
+	 * @param logIsDescending
+	 *            <tt>true</tt> if the log lists the newest revisions first,
+	 *            in which case parsing ends with a
+	 *            (@link LastKnownRevisionReachedException) at the first known
+	 *            revision.
+	 */
+	void setLastKnownRevision(final int revision, final boolean logIsDescending) {
+		this.lastKnownRevision = revision;
+		this.stopAtLastKnownRevision = logIsDescending;
+	}
+
+	/**
+	 * @return <tt>true</tt> if the log contains the revision given to
+	 *         (@link #setLastKnownRevision(int, boolean)).
+	 */
+	boolean isLastKnownRevisionFound() {
+		return lastKnownRevisionFound;
+	}
+
+	/**
+	 * @return the highest revision of the log entries read so far, or -1.
+	 */
+	int getHighestRevision() {
+		return highestRevision;
+	}
+
+	/**
+	 * @return <tt>true</tt> unless the log entries read so far are listed
+	 *         oldest first.
+	 */
+	boolean isDescending() {
+		return firstRevision >= lastRevision;
+	}
+
+	/**
+	 * @return the revision (string) by tag name (string) found so far.
+	 */
+	Map getTagsMap() {
+		return tagsMap;
+	}
+
+	/**
+	 * @return the date (date) by tag name (string) found so far.
+	 */
+	Map getTagsDateMap() {
+		return tagsDateMap;
+	}
+
+	/**
+	 * Builds the string that was read; default implementation can invoke this
+	 * function multiple times while reading the data.
+	 * 
+	 * The buffer is reused from one element to the next so that long commit
+	 * messages delivered in many chunks are accumulated in linear time.
+	 */
+	public void characters(final char[] ch, final int start, final int length) throws SAXException {
+		super.characters(ch, start, length);
+		stringData.append(ch, start, length);
+	}
+
+	/**
+	 * Makes sure the last element received is appropriate.
+	 * 
+	 * @param last
+	 *            the expected last element.
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void checkLastElement(final String last) throws SAXException {
+		if (!lastElement.equals(last)) {
+			fatalError(FATAL_ERROR_MESSAGE);
+		}
+	}
+
+	/**
+	 * End of author element. Saves author to the current revision.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endAuthor() throws SAXException {
+		checkLastElement(LOGENTRY);
+		currentRevisionData.setLoginName(stringData.toString());
+	}
+
+	/**
+	 * End of date element. See (@link XMLUtil#parseXsdDateTime(String)) for
+	 * parsing of the particular datetime format.
+	 * 
+	 * Saves date to the current revision.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endDate() throws SAXException {
+		checkLastElement(LOGENTRY);
+		Date dt;
+		try {
+			dt = XMLUtil.parseXsdDateTime(stringData, localZone);
+			currentRevisionData.setDate(dt);
+		} catch (final ParseException e) {
+			warning("Invalid date specified.");
+		}
+	}
+
+	/**
+	 * Handles the end of an xml element and redirects to the appropriate end*
+	 * method.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+		super.endElement(uri, localName, qName);
+		String eName = localName; // element name
+		if ("".equals(eName)) {
+			eName = qName; // namespaceAware = false
+		}
+		if (eName.equals(LOG)) {
+			endLog();
+		} else if (eName.equals(LOGENTRY)) {
+			endLogEntry();
+		} else if (eName.equals(AUTHOR)) {
+			endAuthor();
+		} else if (eName.equals(DATE)) {
+			endDate();
+		} else if (eName.equals(MSG)) {
+			endMsg();
+		} else if (eName.equals(PATHS)) {
+			endPaths();
+		} else if (eName.equals(PATH)) {
+			endPath();
+		} else {
+			fatalError(INVALID_SVN_LOG_FILE);
+		}
+	}
+
+	/**
+	 * End of log element.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endLog() throws SAXException {
+		checkLastElement(LOG);
+		lastElement = "";
+	}
+
+	/**
+	 * End of log entry element. For each file that was found, builds the file
+	 * and revision in (@link SvnLogBuilder). The entries older than the
+	 * revision or date to start at are built as well, as the folder actions
+	 * they hold act on the files of the later ones; they are removed once the
+	 * implicit actions are known (see
+	 * (@link SvnLogfileParser#verifyImplicitActions())).
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endLogEntry() throws SAXException {
+		checkLastElement(LOGENTRY);
+		lastElement = LOG;
+		if (skipLogEntry) {
+			return;
+		}
+		if (hasFilteredPaths) {
+			builder.buildFilteredRevision(currentRevisionData);
+		}
+
+		final CommitInfo commit = currentRevisionData.getCommit();
+		for (int i = 0; i < currentFilenames.size(); i++) {
+			final RevisionData revisionData = (RevisionData) currentRevisions.get(i);
+			revisionData.setCommit(commit);
+			final String currentFilename = currentFilenames.get(i).toString();
+
+			final boolean isBinary = repositoryFileManager.isBinary(currentFilename);
+			builder.buildFile(currentFilename, isBinary, revisionData.isDeletion(), tagsMap, tagsDateMap);
+			builder.buildRevision(revisionData);
+		}
+	}
+
+	/**
+	 * End of msg element. Saves comment to the current revision.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endMsg() throws SAXException {
+		checkLastElement(LOGENTRY);
+		currentRevisionData.setComment(stringData.toString());
+	}
+
+	/**
+	 * End of path element. Builds a revision data for this element using the
+	 * information that is known to date; rest is done in (@link #endLogEntry())
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endPath() throws SAXException {
+		checkLastElement(PATHS);
+		if (skipLogEntry) {
+			return;
+		}
+
+		// relies on the fact that absoluteToRelativePath returns null for paths
+		// that are not on the branch.
+		final String path = stringData.toString();
+		final String filename = repositoryFileManager.absoluteToRelativePath(path);
+
+		final String tagsStr = SvnConfigurationOptions.getTagsDirectory();
+		if (copyfromRev != null && filename == null && path.indexOf(tagsStr) >= 0) {
+			String tag = path.substring(path.indexOf(tagsStr) + tagsStr.length());
+			if (tag.indexOf("/") >= 0) {
+				tag = tag.substring(0, tag.indexOf("/"));
+			}
+
+			if (!tagsMap.containsKey(tag) && builder.matchesTagPatterns(tag)) {
+				SvnConfigurationOptions.getTaskLogger().info("= TAG " + tag + " rev:" + copyfromRev + " stringData [" + path + "]");
+				tagsMap.put(tag, copyfromRev);
+				tagsDateMap.put(tag, currentRevisionData.getDate());
+			}
+		}
+
+		if (filename == null) {
+			return; // not on this branch
+		}
+		if (isFiltered(filename)) {
+			hasFilteredPaths = true;
+			return;
+		}
+
+		// author, date and comment are only shared in endLogEntry(), no need
+		// to clone the whole current revision for every path.
+		final RevisionData data = new RevisionData();
+		data.setRevisionNumber(currentRevisionData.getRevisionNumber());
+		if (!pathAction.equals("D")) {
+			data.setStateExp(true);
+			if (pathAction.equals("A") || pathAction.equals("R")) {
+				data.setStateAdded(true);
+			}
+		} else {
+			data.setStateDead(true);
+		}
+
+		data.setCopyfromPath(copyfromPath);
+		data.setCopyfromRevision(copyfromRev);
+
+		currentRevisions.add(data);
+		currentFilenames.add(filename);
+	}
+
+	/**
+	 * Paths that do not match the include and exclude patterns are not built,
+	 * with the exception of additions, replacements and deletions of paths
+	 * that may be directories: they are needed to find the implicit actions on
+	 * the files they contain (see (@link SvnLogfileParser#verifyImplicitActions())).
+	 * 
+	 * @param filename
+	 *            the path relative to the working folder root
+	 * @return <tt>true</tt> if the path must not be built.
+	 */
+	private boolean isFiltered(final String filename) {
+		if (builder.matchesPatterns(filename)) {
+			return false;
+		}
+		if (pathAction.equals("M")) {
+			return true;
+		}
+		return repositoryFileManager.existsInWorkingCopy(filename) && !repositoryFileManager.isDirectory(filename);
+	}
+
+	/**
+	 * End of paths element.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void endPaths() throws SAXException {
+		checkLastElement(PATHS);
+		lastElement = LOGENTRY;
+	}
+
+	/**
+	 * Throws a fatal error with the specified message.
+	 * 
+	 * @param message
+	 *            the reason for the error
+	 * @throws SAXException
+	 *             the error
+	 */
+	private void fatalError(final String message) throws SAXException {
+		fatalError(new SAXParseException(message, null));
+	}
+
+	/**
+	 * Start of author, date or message.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void startAuthorDateMsg() throws SAXException {
+		checkLastElement(LOGENTRY);
+	}
+
+	/**
+	 * Handles the start of an xml element and redirects to the appropriate
+	 * start* method.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
+		super.startElement(uri, localName, qName, attributes);
+		stringData.setLength(0);
+		String eName = localName; // element name
+		if ("".equals(eName)) {
+			eName = qName; // namespaceAware = false
+		}
+		if (eName.equals(LOG)) {
+			startLog();
+		} else if (eName.equals(LOGENTRY)) {
+			startLogEntry(attributes);
+		} else if (eName.equals(AUTHOR) || eName.equals(DATE) || eName.equals(MSG)) {
+			startAuthorDateMsg();
+		} else if (eName.equals(PATHS)) {
+			startPaths();
+		} else if (eName.equals(PATH)) {
+			startPath(attributes);
+		} else {
+			fatalError(INVALID_SVN_LOG_FILE);
+		}
+	}
+
+	/**
+	 * Start of the log element.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void startLog() throws SAXException {
+		checkLastElement("");
+		lastElement = LOG;
+
+		if (!loadRepositoryInfo) {
+			return;
+		}
+
+		try {
+			repositoryFileManager.loadInfo();
+			builder.buildModule(repositoryFileManager.getModuleName());
+		} catch (final Exception e) {
+			throw new SAXException(e);
+		}
+
+	}
+
+	/**
+	 * Start of the log entry element. Initializes information, to be filled
+	 * during this log entry and used in (@link #endLogEntry())
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void startLogEntry(final Attributes attributes) throws SAXException {
+		checkLastElement(LOG);
+		lastElement = LOGENTRY;
+		currentRevisionData = new RevisionData();
+		currentRevisions = new ArrayList();
+		currentFilenames = new ArrayList();
+		hasFilteredPaths = false;
+		if (attributes != null && attributes.getValue("revision") != null) {
+			currentRevisionData.setRevisionNumber(attributes.getValue("revision"));
+		} else {
+			fatalError(INVALID_SVN_LOG_FILE);
+		}
+
+		final int revision;
+		try {
+			revision = Integer.parseInt(currentRevisionData.getRevisionNumber());
+		} catch (final NumberFormatException e) {
+			skipLogEntry = false;
+			return;
+		}
+		if (firstRevision < 0) {
+			firstRevision = revision;
+		}
+		lastRevision = revision;
+		highestRevision = Math.max(highestRevision, revision);
+
+		skipLogEntry = revision <= lastKnownRevision;
+		if (skipLogEntry) {
+			if (revision == lastKnownRevision) {
+				lastKnownRevisionFound = true;
+			}
+			if (stopAtLastKnownRevision) {
+				throw new LastKnownRevisionReachedException();
+			}
+		}
+	}
+
+	/**
+	 * Start of the path element. Saves the path action.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void startPath(final Attributes attributes) throws SAXException {
+		checkLastElement(PATHS);
+		if (attributes != null && attributes.getValue("action") != null) {
+			pathAction = attributes.getValue("action");
+		} else {
+			fatalError(INVALID_SVN_LOG_FILE);
+		}
+
+		copyfromPath = attributes.getValue("copyfrom-path");
+		copyfromRev = attributes.getValue("copyfrom-rev");
+
+	}
+
+	/**
+	 * Start of the paths element.
+	 * 
+	 * @throws SAXException
+	 *             unexpected event.
+	 */
+	private void startPaths() throws SAXException {
+		checkLastElement(LOGENTRY);
+		lastElement = PATHS;
+	}
+
+	/**
+	 * Logs a warning.
+	 * 
+	 * @param message
+	 *            the reason for the error
+	 * @throws SAXException
+	 *             the error
+	 */
+	private void warning(final String message) throws SAXException {
+		SvnConfigurationOptions.getTaskLogger().info(message);
+	}
+
+	/**
+	 * Thrown to end parsing once the remaining log entries are known to have
+	 * been processed in a previous run.
+	 */
+	static final class LastKnownRevisionReachedException extends SAXException {
+		private static final long serialVersionUID = 1L;
+
+		private LastKnownRevisionReachedException() {
+			super("last known revision reached");
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package net.sf.statsvn.util;
+
+public class BinaryDiffException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1897989743777577565L;
+
+}
@@ -0,0 +1,18 @@
+package net.sf.statsvn.util;
+
+/**
+ * Receives the line counts of each file of the diff of a revision, as soon as
+ * the diff of the file was read.
+ *
+ * @version $Id$
+ */
+public interface IDiffResultHandler {
+	/**
+	 * Called on the thread reading the diff, once per file, in the order of
+	 * the diff.
+	 *
+	 * @param result
+	 *            the line counts of the file
+	 */
+	public abstract void handleResult(DiffResult result);
+}
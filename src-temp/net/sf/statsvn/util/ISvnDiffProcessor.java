@@ -0,0 +1,64 @@
+package net.sf.statsvn.util;
+
+import java.io.IOException;
+import java.util.Vector;
+
+/**
+ * Performs svn diff queries. 
+ * @author jkealey
+ *
+ */
+public interface ISvnDiffProcessor {
+
+    /**
+     * Returns line count differences between two revisions of a file.
+     * 
+     * @param oldRevNr
+     *            old revision number
+     * @param newRevNr
+     *            new revision number
+     * @param filename
+     *            the filename
+     * @return A int[2] array of [lines added, lines removed] is returned.
+     * @throws IOException
+     *             problem parsing the stream
+     * @throws BinaryDiffException
+     *             if the error message is due to trying to diff binary files.
+     */
+    public abstract int[] getLineDiff(final String oldRevNr, final String newRevNr, final String filename) throws IOException, BinaryDiffException;
+
+    /**
+    * Returns line count differences for all files in a particular revision.
+    * 
+    * @param newRevNr
+    *            new revision number
+    * @return A vector of object[3] array of [filename, int[2](lines added, lines removed), isBinary] is returned.
+    * @throws IOException
+    *             problem parsing the stream
+    * @throws BinaryDiffException
+    *             if the error message is due to trying to diff binary files.
+    */
+    public abstract Vector getLineDiff(final String newRevNr) throws IOException, BinaryDiffException;
+
+    /**
+    * Passes the line count differences of each file in a particular
+    * revision to the handler, as soon as the diff of the file was read.
+    * 
+    * @param newRevNr
+    *            new revision number
+    * @param handler
+    *            receives the result of each file
+    * @throws IOException
+    *             problem parsing the stream
+    * @throws BinaryDiffException
+    *             if the error message is due to trying to diff binary files.
+    */
+    public abstract void getLineDiff(final String newRevNr, final IDiffResultHandler handler) throws IOException, BinaryDiffException;
+
+    /**
+     * Releases what the diffs kept open, such as repository sessions, once
+     * all the line counts were obtained. Later diffs open them again.
+     */
+    public abstract void dispose();
+
+}
\ No newline at end of file
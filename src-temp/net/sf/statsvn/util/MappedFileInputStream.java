@@ -0,0 +1,144 @@
+package net.sf.statsvn.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Reads a file, or a range of bytes of a file, through memory mapping instead
+ * of copying it through stream buffers. A single mapping cannot exceed 2 GB,
+ * so the file is mapped one window at a time, the next window being mapped
+ * once the current one has been consumed.
+ * </p>
+ *
+ * <p>
+ * Mappings are only released when garbage collected, which on some platforms
+ * keeps the file locked for a while after (@link #close()).
+ * </p>
+ *
+ * @version $Id$
+ */
+public class MappedFileInputStream extends InputStream {
+	private static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+	private final RandomAccessFile file;
+
+	private final FileChannel channel;
+
+	private final long windowSize;
+
+	private final long end;
+
+	private long windowEnd;
+
+	private MappedByteBuffer window;
+
+	/**
+	 * Reads the whole file.
+	 *
+	 * @param file
+	 *            the file to read.
+	 * @throws IOException
+	 *             the file cannot be opened or mapped.
+	 */
+	public MappedFileInputStream(final File file) throws IOException {
+		this(file, 0, file.length());
+	}
+
+	/**
+	 * Reads the bytes of a file from <code>start</code> (inclusive) to
+	 * <code>end</code> (exclusive).
+	 *
+	 * @param file
+	 *            the file to read.
+	 * @param start
+	 *            offset of the first byte to read.
+	 * @param end
+	 *            offset after the last byte to read.
+	 * @throws IOException
+	 *             the file cannot be opened or mapped.
+	 */
+	public MappedFileInputStream(final File file, final long start, final long end) throws IOException {
+		this(file, start, end, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedFileInputStream(final File file, final long start, final long end, final long windowSize) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.windowSize = windowSize;
+		this.end = Math.min(end, channel.size());
+		this.windowEnd = Math.min(start, this.end);
+		try {
+			mapNextWindow();
+		} catch (final IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	private void mapNextWindow() throws IOException {
+		final long size = Math.min(windowSize, end - windowEnd);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size);
+		windowEnd += size;
+	}
+
+	/**
+	 * @return false if everything has been read.
+	 */
+	private boolean ensureAvailable() throws IOException {
+		if (window == null) {
+			throw new IOException("Stream closed");
+		}
+		while (!window.hasRemaining()) {
+			if (windowEnd >= end) {
+				return false;
+			}
+			mapNextWindow();
+		}
+		return true;
+	}
+
+	public int read() throws IOException {
+		if (!ensureAvailable()) {
+			return -1;
+		}
+		return window.get() & 0xff;
+	}
+
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureAvailable()) {
+			return -1;
+		}
+		final int read = Math.min(len, window.remaining());
+		window.get(b, off, read);
+		return read;
+	}
+
+	public long skip(final long n) throws IOException {
+		if (n <= 0 || !ensureAvailable()) {
+			return 0;
+		}
+		final int skipped = (int) Math.min(n, window.remaining());
+		window.position(window.position() + skipped);
+		return skipped;
+	}
+
+	public int available() throws IOException {
+		if (window == null) {
+			return 0;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, window.remaining() + (end - windowEnd));
+	}
+
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+}
@@ -0,0 +1,192 @@
+package net.sf.statsvn.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Utilities class that manages calls to svn diff.
+ * 
+ * @author Jason Kealey &lt;&gt;
+ * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
+ * 
+ * @version $Id: SvnDiffUtils.java 394 2009-08-10 20:08:46Z jkealey $
+ */
+public class SvnDiffUtils implements ISvnDiffProcessor {
+    public static final int RESULT_SIZE = 3;
+
+	protected static final int PROPERTY_NAME_LINE = 4;
+
+    protected static final String PROPERTY_CHANGE = "Property changes on:";
+
+	protected static final String PROPERTY_NAME = "Name:";
+
+	protected static final String BINARY_TYPE = "Cannot display: file marked as a binary type.";
+
+	protected static final String INDEX_MARKER = "Index: ";
+	
+	protected ISvnProcessor processor;
+
+	/**
+	 * Invokes diffs using the svn diff command line. 
+	 */
+	public SvnDiffUtils(ISvnProcessor processor) {
+	    this.processor = processor;
+	}
+
+	protected ISvnProcessor getProcessor() {
+        return processor;
+    }
+
+    /**
+	 * Calls svn diff for the filename and revisions given. Will use URL
+	 * invocation, to ensure that we get diffs even for deleted files.
+	 * 
+	 * @param oldRevNr
+	 *            old revision number
+	 * @param newRevNr
+	 *            new revision number
+	 * @param filename
+	 *            filename.
+	 * @return the InputStream related to the call. If the error steam is
+	 *         non-empty, will return the error stream instead of the default
+	 *         input stream.
+	 */
+	protected ProcessUtils callSvnDiff(final String oldRevNr, final String newRevNr, String filename) throws IOException {
+		String svnDiffCommand = null;
+		filename = getProcessor().getInfoProcessor().relativePathToUrl(filename);
+		filename = StringUtils.replace(" ", "%20", filename);
+		svnDiffCommand = "svn diff --old " + filename + "@" + oldRevNr + "  --new " + filename + "@" + newRevNr + "" + SvnCommandHelper.getAuthString();
+		SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName() + " FIRING command line:\n[" + svnDiffCommand + "]");
+		return ProcessUtils.call(svnDiffCommand);
+	}
+
+	/**
+	 * Calls svn diff on all files for given revision and revision-1.  
+	 * 
+	 * @param newRevNr
+	 *            revision number
+	 * @return the InputStream related to the call. If the error steam is
+	 *         non-empty, will return the error stream instead of the default
+	 *         input stream.
+	 */
+	protected ProcessUtils callSvnDiff(final String newRevNr) throws IOException {
+		String svnDiffCommand = null;
+		svnDiffCommand = "svn diff -c " + newRevNr + " " + getProcessor().getInfoProcessor().getRootUrl() + " " + SvnCommandHelper.getAuthString();
+		SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName() + " FIRING command line:\n[" + svnDiffCommand + "]");
+		return ProcessUtils.call(svnDiffCommand);
+	}
+
+	/* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnDiffProcessor#getLineDiff(java.lang.String, java.lang.String, java.lang.String)
+     */
+	public int[] getLineDiff(final String oldRevNr, final String newRevNr, final String filename) throws IOException, BinaryDiffException {
+		int[] lineDiff;
+		ProcessUtils pUtils = null;
+		try {
+			pUtils = callSvnDiff(oldRevNr, newRevNr, filename);
+			final InputStream diffStream = pUtils.getInputStream();
+
+			lineDiff = parseSingleDiffStream(diffStream);
+
+			verifyOutput(pUtils);
+		} finally {
+			if (pUtils != null) {
+				pUtils.close();
+			}
+		}
+
+		return lineDiff;
+	}
+
+    protected int[] parseSingleDiffStream(final InputStream diffStream) throws IOException, BinaryDiffException {
+        final DiffLineCounter counter = new DiffLineCounter();
+        counter.readFully(diffStream);
+        counter.close();
+        return counter.getLineDiff();
+    }
+
+	/**
+	 * Verifies the process error stream. 
+	 * @param pUtils the process call
+	 * @throws IOException problem parsing the stream
+	 * @throws BinaryDiffException if the error message is due to trying to diff binary files.
+	 */
+	protected void verifyOutput(final ProcessUtils pUtils) throws IOException, BinaryDiffException {
+		if (pUtils.hasErrorOccured()) {
+			// The binary checking code here might be useless... as it may
+			// be output on the standard out.
+			final String msg = pUtils.getErrorMessage();
+			if (isBinaryErrorMessage(msg)) {
+				throw new BinaryDiffException();
+			} else {
+				throw new IOException(msg);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnDiffProcessor#getLineDiff(java.lang.String)
+     */
+	public Vector getLineDiff(final String newRevNr) throws IOException, BinaryDiffException {
+		final Vector answer = new Vector();
+		getLineDiff(newRevNr, new IDiffResultHandler() {
+			public void handleResult(final DiffResult result) {
+				final Object[] results = new Object[RESULT_SIZE];
+				results[0] = result.getFileName();
+				results[1] = result.getLineDiff();
+				results[2] = Boolean.valueOf(result.isBinary());
+				answer.add(results);
+			}
+		});
+		return answer;
+	}
+
+	/* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnDiffProcessor#getLineDiff(java.lang.String, net.sf.statsvn.util.IDiffResultHandler)
+     */
+	public void getLineDiff(final String newRevNr, final IDiffResultHandler handler) throws IOException, BinaryDiffException {
+		ProcessUtils pUtils = null;
+		try {
+			pUtils = callSvnDiff(newRevNr);
+			final DiffLineCounter counter = new DiffLineCounter(handler);
+			counter.readFully(pUtils.getInputStream());
+
+			verifyOutput(pUtils);
+			// the last file may have been cut short if svn failed
+			counter.close();
+		} finally {
+			if (pUtils != null) {
+				pUtils.close();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnDiffProcessor#dispose()
+     */
+	public void dispose() {
+		// each svn diff is a process of its own: nothing is kept open
+	}
+
+	/**
+	 * Returns true if msg is an error message display that the file is binary.
+	 * 
+	 * @param msg
+	 *            the error message given by ProcessUtils.getErrorMessage();
+	 * @return true if the file is binary
+	 */
+	protected boolean isBinaryErrorMessage(final String msg) {
+		/*
+		 * Index: junit.jar
+		 * ===================================================================
+		 * Cannot display: file marked as a binary type.
+		 * 
+		 * svn:mime-type = application/octet-stream
+		 */
+		return (msg.indexOf(BINARY_TYPE) >= 0);
+	}
+
+}
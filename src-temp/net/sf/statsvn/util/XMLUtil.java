@@ -0,0 +1,264 @@
+package net.sf.statsvn.util;
+
+import java.io.File;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+import org.w3c.dom.Document;
+
+/**
+ * 
+ * Utilities class to faciliate XML management.
+ * 
+ * @author Jason Kealey &lt;jkealey@shade.ca&gt;
+ * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
+ * 
+ * @version $Id: XMLUtil.java 351 2008-03-28 18:46:26Z benoitx $
+ */
+public final class XMLUtil {
+	private static final int ONE_SEC_IN_MILLISECS = 1000;
+
+	private static final int IDOT_POSITION_IFNEG = 20;
+
+	private static final int NORMAL_IDOT_POSITION = 19;
+
+	private static final long DAY_IN_MILLISECS = 24L * 60 * 60 * ONE_SEC_IN_MILLISECS;
+
+	/** Dates before the gregorian cutover are left to the calendar. */
+	private static final int MIN_FAST_YEAR = 1600;
+
+	/** Up to 8 digits, a float from the fraction is the same as Float.parseFloat. */
+	private static final long[] FRACTION_SCALES = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L };
+
+	private static final long NOT_PARSED = Long.MIN_VALUE;
+
+	/**
+	 * A utility class (only static methods) should be final and have
+	 * a private constructor.
+	 */
+	private XMLUtil() {
+	}
+
+	/**
+	 * For some reason, can't find this utility method in the java framework.
+	 * 
+	 * @param sDateTime
+	 *            an xsd:dateTime string
+	 * @return an equivalent java.util.Date
+	 * @throws ParseException
+	 */
+	public static Date parseXsdDateTime(final String sDateTime) throws ParseException {
+		return parseXsdDateTime(sDateTime, TimeZone.getDefault());
+	}
+
+	/**
+	 * Same as (@link #parseXsdDateTime(String)), the local timezone being given
+	 * by the caller so that it is not looked up for every date. The
+	 * <tt>yyyy-MM-ddTHH:mm:ss.ffffffZ</tt> layout written by svn is read
+	 * directly; other forms, and dates close to a daylight saving time change,
+	 * go through <tt>SimpleDateFormat</tt>.
+	 * 
+	 * @param sDateTime
+	 *            an xsd:dateTime string
+	 * @param localZone
+	 *            the default timezone
+	 * @return an equivalent java.util.Date
+	 * @throws ParseException
+	 */
+	public static Date parseXsdDateTime(final CharSequence sDateTime, final TimeZone localZone) throws ParseException {
+		final long time = parseSvnDateTime(sDateTime, localZone);
+		if (time == NOT_PARSED) {
+			return parseXsdDateTimeWithFormat(sDateTime.toString());
+		}
+		return new Date(time);
+	}
+
+	/**
+	 * Computes the time of a <tt>yyyy-MM-ddTHH:mm:ss[.f*]Z</tt> date the way
+	 * (@link #parseXsdDateTimeWithFormat(String)) does: the fields are read
+	 * as local time, then shifted by the current offset from GMT.
+	 * 
+	 * @return the time in milliseconds, or (@link #NOT_PARSED) if the date
+	 *         must go through the calendar.
+	 */
+	private static long parseSvnDateTime(final CharSequence sDateTime, final TimeZone localZone) {
+		final int length = sDateTime.length();
+		if (length <= NORMAL_IDOT_POSITION || sDateTime.charAt(length - 1) != 'Z' || sDateTime.charAt(4) != '-' || sDateTime.charAt(7) != '-'
+		        || sDateTime.charAt(10) != 'T' || sDateTime.charAt(13) != ':' || sDateTime.charAt(16) != ':') {
+			return NOT_PARSED;
+		}
+		final int year = parseDigits(sDateTime, 0, 4);
+		final int month = parseDigits(sDateTime, 5, 2);
+		final int day = parseDigits(sDateTime, 8, 2);
+		final int hour = parseDigits(sDateTime, 11, 2);
+		final int minute = parseDigits(sDateTime, 14, 2);
+		final int second = parseDigits(sDateTime, 17, 2);
+		if (year < MIN_FAST_YEAR || month < 1 || month > 12 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+			return NOT_PARSED;
+		}
+
+		int millis = 0;
+		final int fractionDigits = length - NORMAL_IDOT_POSITION - 2;
+		if (fractionDigits >= 0) {
+			if (sDateTime.charAt(NORMAL_IDOT_POSITION) != '.' || fractionDigits == 0 || fractionDigits >= FRACTION_SCALES.length) {
+				return NOT_PARSED;
+			}
+			final int fraction = parseDigits(sDateTime, NORMAL_IDOT_POSITION + 1, fractionDigits);
+			if (fraction < 0) {
+				return NOT_PARSED;
+			}
+			millis = Math.round(((float) ((double) fraction / FRACTION_SCALES[fractionDigits])) * ONE_SEC_IN_MILLISECS);
+		}
+
+		final long wallTime = (((daysFromEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second) * ONE_SEC_IN_MILLISECS;
+		final int offset = localZone.getOffset(wallTime - localZone.getRawOffset());
+		final long localTime = wallTime - offset;
+		if (localZone.getOffset(localTime) != offset || localZone.getOffset(localTime - DAY_IN_MILLISECS) != offset
+		        || localZone.getOffset(localTime + DAY_IN_MILLISECS) != offset) {
+			// local time may be skipped or repeated, let the calendar decide.
+			return NOT_PARSED;
+		}
+		return localTime + millis + localZone.getOffset(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the value of the ascii digits, or -1 if there is another
+	 *         character.
+	 */
+	private static int parseDigits(final CharSequence s, final int start, final int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			final char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of days between 1970-01-01 and the given date of the
+	 *         gregorian calendar; days past the end of the month continue in
+	 *         the next month.
+	 */
+	private static long daysFromEpoch(final int year, final int month, final int day) {
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = y / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * ((month + 9) % 12) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	/**
+	 * Parses any xsd:dateTime through <tt>SimpleDateFormat</tt>.
+	 * 
+	 * @param sDateTime
+	 *            an xsd:dateTime string
+	 * @return an equivalent java.util.Date
+	 * @throws ParseException
+	 */
+	static Date parseXsdDateTimeWithFormat(String sDateTime) throws ParseException {
+		final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+		int iDotPosition = NORMAL_IDOT_POSITION;
+		if (sDateTime.charAt(0) == '-') {
+			iDotPosition = IDOT_POSITION_IFNEG;
+		}
+		Date result;
+		if (sDateTime.length() <= iDotPosition) {
+			return format.parse(sDateTime + "Z");
+		}
+
+		String millis = null;
+		char c = sDateTime.charAt(iDotPosition);
+		if (c == '.') {
+			// if datetime has milliseconds, separate them
+			int eoms = iDotPosition + 1;
+			while (Character.isDigit(sDateTime.charAt(eoms))) {
+				eoms += 1;
+			}
+			millis = sDateTime.substring(iDotPosition, eoms);
+			sDateTime = sDateTime.substring(0, iDotPosition) + sDateTime.substring(eoms);
+			c = sDateTime.charAt(iDotPosition);
+		}
+		if (c == '+' || c == '-') {
+			format.setTimeZone(TimeZone.getTimeZone("GMT" + sDateTime.substring(iDotPosition)));
+			sDateTime = sDateTime.substring(0, iDotPosition) + "Z";
+		} else if (c != 'Z') {
+			throw new ParseException("Illegal timezone specification.", iDotPosition);
+		}
+
+		result = format.parse(sDateTime);
+		if (millis != null) {
+			result.setTime(result.getTime() + Math.round(Float.parseFloat(millis) * ONE_SEC_IN_MILLISECS));
+		}
+
+		result = offsetDateFromGMT(result);
+		return result;
+	}
+
+	/**
+	 * This method converts from GMT to local timezone
+	 * 
+	 * @param date
+	 * 		date in GMT timezone
+	 * @return the date in local timezone
+	 */
+	public static Date offsetDateFromGMT(final Date date) {
+		// Calculate the total offset from GMT, now, in the current OS timezone.
+		final int totalOffset = TimeZone.getDefault().getOffset(System.currentTimeMillis());
+
+		// Calculate the time in GMT
+		final long localTime = date.getTime() + totalOffset;
+
+		// Create a date using the calculated GMT time
+		final Date localDate = new Date(localTime);
+
+		return localDate;
+	}
+
+	/**
+	 * This method writes a DOM document to a file
+	 * 
+	 * @param doc
+	 *            DOM document.
+	 * @param filename
+	 *            the target file.
+	 */
+	public static void writeXmlFile(final Document doc, final String filename) {
+		try {
+			// Prepare the DOM document for writing
+			final Source source = new DOMSource(doc);
+
+			// Prepare the output file
+			final File file = new File(filename);
+			final Result result = new StreamResult(file);
+
+			// Write the DOM document to the file
+			final Transformer xformer = TransformerFactory.newInstance().newTransformer();
+			xformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			xformer.transform(source, result);
+		} catch (final TransformerConfigurationException e) {
+			SvnConfigurationOptions.getTaskLogger().error(e.toString());
+		} catch (final TransformerException e) {
+			SvnConfigurationOptions.getTaskLogger().error(e.toString());
+		}
+	}
+}
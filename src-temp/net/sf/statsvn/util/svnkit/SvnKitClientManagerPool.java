@@ -0,0 +1,91 @@
+package net.sf.statsvn.util.svnkit;
+
+import java.io.IOException;
+
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentLinkedQueue;
+import edu.emory.mathcs.backport.java.util.concurrent.Semaphore;
+
+/**
+ * A bounded pool of svnkit client managers. A client manager, and the
+ * repository sessions it opens, may only be used by one thread at a time: each
+ * diff leases one for the duration of the call, so that the diff threads run
+ * in parallel instead of sharing a single manager.
+ *
+ * @version $Id$
+ */
+public class SvnKitClientManagerPool {
+    private final SvnKitProcessor processor;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedQueue idle = new ConcurrentLinkedQueue();
+
+    private volatile boolean disposed;
+
+    /**
+     * @param processor creates the client managers
+     * @param size the maximum number of client managers leased at once
+     */
+    public SvnKitClientManagerPool(SvnKitProcessor processor, int size) {
+        this.processor = processor;
+        this.permits = new Semaphore(Math.max(1, size));
+    }
+
+    /**
+     * Leases a client manager, waiting for one to be released if all are in
+     * use.
+     *
+     * @return the client manager, to be released
+     * @throws IOException if the thread was interrupted while waiting
+     */
+    public SVNClientManager lease() throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            throw new IOException(e.toString());
+        }
+        SVNClientManager manager = (SVNClientManager) idle.poll();
+        if (manager == null) {
+            try {
+                manager = processor.createManager();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Returns a leased client manager to the pool. Once the pool was disposed,
+     * the client manager is disposed instead.
+     *
+     * @param manager the client manager
+     */
+    public void release(SVNClientManager manager) {
+        idle.offer(manager);
+        if (disposed) {
+            disposeIdle();
+        }
+        permits.release();
+    }
+
+    /**
+     * Disposes the client managers that are not leased, closing their
+     * repository sessions. The ones still leased are disposed when they are
+     * released.
+     */
+    public void dispose() {
+        disposed = true;
+        disposeIdle();
+    }
+
+    private void disposeIdle() {
+        SVNClientManager manager;
+        while ((manager = (SVNClientManager) idle.poll()) != null) {
+            manager.dispose();
+        }
+    }
+}
@@ -22,7 +22,7 @@
  */
 package net.sf.statsvn;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -171,6 +171,13 @@ public final class Main {
                         + "  -verbose           print extra progress information" + cr + "  -xdoc                 optional switch output to xdoc" + cr
                         + "  -xml                  optional switch output to xml" + cr + "  -threads <int>        how many threads for svn diff (default: 25)"
                         + cr + "  -concurrency-threshold <millisec> switch to concurrent svn diff if 1st call>threshold (default: 4000)" + cr
+                        + "  -svn-timeout <sec>    kill svn commands running longer than this (default: 3600, 0 for no limit)" + cr
+                        + "  -parse-threads <int>  how many threads for parsing the svn log (default: 1)" + cr
+                        + "  -incremental          only parse the svn log entries added since the last run" + cr
+                        + "  -snapshot             reuse the parsed svn log while the log file is unchanged" + cr
+                        + "  -from-revision <int>  leave out the log entries older than this revision" + cr
+                        + "  -from-date <yyyy-MM-dd> leave out the log entries older than this date" + cr
+                        + "  -cache-format <xml|binary> format of the line counts cache (default: xml)" + cr
                         + "  -dump                 dump the Repository content on console" + cr
                         + "  -charset <charset> specify the charset to use for html/xdoc\n"
                         + "  -tags-dir <directory> optional, specifies the director for tags (default '/tags/')" + cr + cr
@@ -275,18 +282,9 @@ public final class Main {
                         + (ConfigurationOptions.getExcludePattern() != null ? " exclude pattern '" + ConfigurationOptions.getExcludePattern() + "'"
                                 : "No exclude pattern"));
 
-        FileInputStream logFile = null;
-        Builder builder = null;
-        try {
-            logFile = new FileInputStream(ConfigurationOptions.getLogFileName());
-            builder = new Builder(repFileMan, ConfigurationOptions.getIncludePattern(), ConfigurationOptions.getExcludePattern(), ConfigurationOptions
-                    .getSymbolicNamesPattern());
-            new SvnLogfileParser(repFileMan, logFile, builder).parse();
-        } finally {
-            if (logFile != null) {
-                logFile.close();
-            }
-        }
+        Builder builder = new Builder(repFileMan, ConfigurationOptions.getIncludePattern(), ConfigurationOptions.getExcludePattern(),
+                ConfigurationOptions.getSymbolicNamesPattern());
+        new SvnLogfileParser(repFileMan, new File(ConfigurationOptions.getLogFileName()), builder).parse();
 
         if (ConfigurationOptions.getProjectName() == null) {
             ConfigurationOptions.setProjectName(builder.getProjectName());
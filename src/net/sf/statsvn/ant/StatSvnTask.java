@@ -39,6 +39,16 @@ public class StatSvnTask extends StatCvsTask {
 
 	private boolean anonymize = false;
 
+	private boolean incremental = false;
+
+	private boolean snapshot = false;
+
+	private int fromRevision;
+
+	private String fromDate;
+
+	private String cacheFormat;
+
 	private String cacheDirectory;
 
 	private String svnPassword;
@@ -47,8 +57,12 @@ public class StatSvnTask extends StatCvsTask {
 
 	private int numberSvnDiffThreads;
 
+	private int numberParseThreads;
+
 	private long thresholdInMsToUseConcurrency;
 
+	private int svnTimeout = -1;
+
 	private boolean useLegacyDiff = false;
 	
 	private boolean useSvnKit = false;
@@ -87,6 +101,11 @@ public class StatSvnTask extends StatCvsTask {
 		super.initProperties();
 
 		SvnConfigurationOptions.setAnonymize(this.anonymize);
+		SvnConfigurationOptions.setIncremental(this.incremental);
+		SvnConfigurationOptions.setModelSnapshot(this.snapshot);
+		SvnConfigurationOptions.setFromRevision(this.fromRevision);
+		SvnConfigurationOptions.setFromDate(this.fromDate);
+		SvnConfigurationOptions.setCacheFormat(this.cacheFormat);
 
 		if (this.cacheDirectory != null) {
 			SvnConfigurationOptions.setCacheDir(this.cacheDirectory);
@@ -103,9 +122,15 @@ public class StatSvnTask extends StatCvsTask {
 		if (this.numberSvnDiffThreads != 0) {
 			SvnConfigurationOptions.setNumberSvnDiffThreads(this.numberSvnDiffThreads);
 		}
+		if (this.numberParseThreads != 0) {
+			SvnConfigurationOptions.setNumberParseThreads(this.numberParseThreads);
+		}
 		if (this.thresholdInMsToUseConcurrency != 0) {
 			SvnConfigurationOptions.setThresholdInMsToUseConcurrency(this.thresholdInMsToUseConcurrency);
 		}
+		if (this.svnTimeout >= 0) {
+			SvnConfigurationOptions.setSvnTimeout(this.svnTimeout);
+		}
 		if (this.useLegacyDiff) { // only override if we don't want it. 
 			SvnConfigurationOptions.setLegacyDiff(true);
 		}
@@ -123,6 +148,48 @@ public class StatSvnTask extends StatCvsTask {
 		this.anonymize = anonymize;
 	}
 
+	/**
+	 * @param incremental
+	 *            Only parse the svn log entries that are newer than the
+	 *            checkpoint of the previous run.
+	 */
+	public void setIncremental(final boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * @param snapshot
+	 *            Reuse the model built from the svn log while the log file
+	 *            does not change.
+	 */
+	public void setSnapshot(final boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * @param fromRevision
+	 *            Leave out the log entries older than this revision.
+	 */
+	public void setFromRevision(final int fromRevision) {
+		this.fromRevision = fromRevision;
+	}
+
+	/**
+	 * @param fromDate
+	 *            Leave out the log entries older than this date (yyyy-MM-dd).
+	 */
+	public void setFromDate(final String fromDate) {
+		this.fromDate = fromDate;
+	}
+
+	/**
+	 * @param cacheFormat
+	 *            Format of the line counts cache: xml or binary.
+	 */
+	public void setCacheFormat(final String cacheFormat) {
+		this.cacheFormat = cacheFormat;
+	}
+
 	/**
 	 * @param cacheDir
 	 *            String representing the cache directory of the program
@@ -155,6 +222,14 @@ public class StatSvnTask extends StatCvsTask {
 		this.numberSvnDiffThreads = threads;
 	}
 
+	/**
+	 * @param threads
+	 *            the numberParseThreads to set
+	 */
+	public void setParseThreads(final int threads) {
+		this.numberParseThreads = threads;
+	}
+
 	/**
 	 * @param thresholdToUseConcurrency
 	 *            the thresholdInMsToUseConcurrency to set
@@ -163,6 +238,14 @@ public class StatSvnTask extends StatCvsTask {
 		this.thresholdInMsToUseConcurrency = thresholdToUseConcurrency;
 	}
 
+	/**
+	 * @param seconds
+	 *            how long an svn command may run, 0 for no limit
+	 */
+	public void setSvnTimeout(final int seconds) {
+		this.svnTimeout = seconds;
+	}
+
 	/**
 	 * Should we use a one diff per-file-per-revision or should we use the newer one diff per-revision?
 	 * 
@@ -0,0 +1,321 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Reads and writes the line counts cache in a compact binary format, an
+ * alternative to the xml file read by (@link SvnXmlCacheFileHandler) for
+ * large repositories. Numbers are variable length integers, and the paths are
+ * sorted so that each name only stores what differs from the previous one.
+ * </p>
+ *
+ * <p>
+ * The file holds a header, a record per path, a directory of the paths and
+ * the offset of the directory:
+ * </p>
+ *
+ * <pre>
+ * header:    magic, version, project
+ * record:    latest revision, binary status, revision count, and for each
+ *            revision: number, lines added, lines removed, binary status
+ * directory: path count, and for each path: length of the prefix shared with
+ *            the previous name, rest of the name, offset of the record
+ * trailer:   offset of the directory, on 8 bytes
+ * </pre>
+ *
+ * <p>
+ * The cache is written as a stream to a temporary file which then replaces
+ * the cache, as (@link XmlCacheFile) does. It is read through a memory
+ * mapping, the records being reached through the directory at the end. On
+ * Windows, where a mapped file cannot be replaced until the mapping is
+ * garbage collected, and the cache is replaced later in the same run, it is
+ * read into memory at once instead.
+ * </p>
+ *
+ * @version $Id$
+ */
+public final class BinaryCacheFile {
+	private static final byte[] MAGIC = { 'S', 'V', 'N', 'C', 'A', 'C', 'H', 'E' };
+
+	private static final int VERSION = 1;
+
+	private static final int TRAILER_LENGTH = 8;
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final String INVALID_FILE_MESSAGE = "Invalid StatSvn binary cache file.";
+
+	private static final byte NOT_BINARY = 0;
+
+	private static final byte BINARY = 1;
+
+	private static final byte UNKNOWN = 2;
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final int INITIAL_PATHS = 1024;
+
+	/** Whether a mapped file can be renamed over, as on Unix. */
+	private static final boolean MAPPING_ALLOWS_REPLACE = File.separatorChar == '/';
+
+	/**
+	 * A utility class (only static methods) should be final and have a private
+	 * constructor.
+	 */
+	private BinaryCacheFile() {
+	}
+
+	/**
+	 * Reads a binary cache into a cache builder, as
+	 * (@link SvnXmlCacheFileHandler) does for the xml format.
+	 *
+	 * @param file
+	 *            the binary cache file
+	 * @param cacheBuilder
+	 *            receives the cached paths and revisions
+	 * @throws IOException
+	 *             if the file cannot be read or is not a binary cache.
+	 */
+	public static void read(final File file, final CacheBuilder cacheBuilder) throws IOException {
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(INVALID_FILE_MESSAGE);
+			}
+			if (MAPPING_ALLOWS_REPLACE) {
+				read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), cacheBuilder);
+				return;
+			}
+			final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException(INVALID_FILE_MESSAGE);
+				}
+			}
+			buffer.flip();
+			read(buffer, cacheBuilder);
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void read(final ByteBuffer buffer, final CacheBuilder cacheBuilder) throws IOException {
+		try {
+			final byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					throw new IOException(INVALID_FILE_MESSAGE);
+				}
+			}
+			if (readVarint(buffer) != VERSION) {
+				throw new IOException(INVALID_FILE_MESSAGE);
+			}
+			readString(buffer);
+
+			buffer.position((int) buffer.getLong(buffer.limit() - TRAILER_LENGTH));
+			final int count = readVarint(buffer);
+			String name = "";
+			for (int i = 0; i < count; i++) {
+				final int shared = readVarint(buffer);
+				name = name.substring(0, shared) + readString(buffer);
+				final int offset = readVarint(buffer);
+				final int directoryPosition = buffer.position();
+				buffer.position(offset);
+				readRecord(buffer, name, cacheBuilder);
+				buffer.position(directoryPosition);
+			}
+		} catch (final BufferUnderflowException e) {
+			throw new IOException(INVALID_FILE_MESSAGE);
+		} catch (final IllegalArgumentException e) {
+			// bad position or prefix length
+			throw new IOException(INVALID_FILE_MESSAGE);
+		} catch (final IndexOutOfBoundsException e) {
+			throw new IOException(INVALID_FILE_MESSAGE);
+		} catch (final NegativeArraySizeException e) {
+			throw new IOException(INVALID_FILE_MESSAGE);
+		}
+	}
+
+	private static void readRecord(final ByteBuffer buffer, final String name, final CacheBuilder cacheBuilder) {
+		final String latestRevision = String.valueOf(readSignedVarint(buffer));
+		cacheBuilder.buildPath(name, latestRevision, decodeBinaryStatus(buffer.get()));
+		final int revisionCount = readVarint(buffer);
+		for (int i = 0; i < revisionCount; i++) {
+			final String number = String.valueOf(readSignedVarint(buffer));
+			final String added = String.valueOf(readSignedVarint(buffer));
+			final String removed = String.valueOf(readSignedVarint(buffer));
+			cacheBuilder.buildRevision(number, added, removed, decodeBinaryStatus(buffer.get()));
+		}
+	}
+
+	/**
+	 * Writes the content of a cache builder as a binary cache.
+	 *
+	 * @param cacheBuilder
+	 *            the cache
+	 * @param file
+	 *            the binary cache file
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write(final CacheBuilder cacheBuilder, final File file) throws IOException {
+		final File tempFile = new File(file.getPath() + TEMP_EXTENSION);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+		try {
+			cacheBuilder.write(new Writer(out));
+		} finally {
+			out.close();
+		}
+		XmlCacheFile.replace(tempFile, file);
+	}
+
+	private static String decodeBinaryStatus(final byte status) {
+		if (status == BINARY) {
+			return CacheConfiguration.BINARY;
+		} else if (status == NOT_BINARY) {
+			return CacheConfiguration.NOT_BINARY;
+		}
+		return CacheConfiguration.UNKNOWN;
+	}
+
+	private static byte encodeBinaryStatus(final String status) {
+		if (CacheConfiguration.BINARY.equals(status)) {
+			return BINARY;
+		} else if (CacheConfiguration.NOT_BINARY.equals(status)) {
+			return NOT_BINARY;
+		}
+		return UNKNOWN;
+	}
+
+	private static int readVarint(final ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static int readSignedVarint(final ByteBuffer buffer) {
+		final int value = readVarint(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static String readString(final ByteBuffer buffer) throws UnsupportedEncodingException {
+		final byte[] bytes = new byte[readVarint(buffer)];
+		buffer.get(bytes);
+		return new String(bytes, ENCODING);
+	}
+
+	private static void writeVarint(final DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Revision numbers and line counts are expected to be numbers; anything
+	 * else is written as -1, which marks unknown line counts.
+	 */
+	private static void writeSignedVarint(final DataOutputStream out, final String value) throws IOException {
+		int number;
+		try {
+			number = Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			number = -1;
+		}
+		writeVarint(out, (number << 1) ^ (number >> 31));
+	}
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		final byte[] bytes = value.getBytes(ENCODING);
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Streams the records and keeps the names and offsets for the directory.
+	 */
+	private static final class Writer implements CacheWriter {
+		private final DataOutputStream out;
+
+		private final List names = new ArrayList();
+
+		private int[] offsets = new int[INITIAL_PATHS];
+
+		private Writer(final DataOutputStream out) {
+			this.out = out;
+		}
+
+		public void startCache(final String project) throws IOException {
+			out.write(MAGIC);
+			writeVarint(out, VERSION);
+			writeString(out, project == null ? "" : project);
+		}
+
+		public void writePath(final String name, final String latestRevision, final String binaryStatus, final int revisionCount) throws IOException {
+			if (names.size() == offsets.length) {
+				final int[] newOffsets = new int[offsets.length * 2];
+				System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+				offsets = newOffsets;
+			}
+			offsets[names.size()] = out.size();
+			names.add(name);
+			writeSignedVarint(out, latestRevision);
+			out.writeByte(encodeBinaryStatus(binaryStatus));
+			writeVarint(out, revisionCount);
+		}
+
+		public void writeRevision(final String number, final String added, final String removed, final String binaryStatus) throws IOException {
+			writeSignedVarint(out, number);
+			writeSignedVarint(out, added);
+			writeSignedVarint(out, removed);
+			out.writeByte(encodeBinaryStatus(binaryStatus));
+		}
+
+		public void endCache() throws IOException {
+			final long directoryOffset = out.size();
+			writeVarint(out, names.size());
+			String previous = "";
+			for (int i = 0; i < names.size(); i++) {
+				final String name = (String) names.get(i);
+				int shared = 0;
+				final int max = Math.min(previous.length(), name.length());
+				while (shared < max && previous.charAt(shared) == name.charAt(shared)) {
+					shared++;
+				}
+				// don't split a surrogate pair
+				if (shared > 0 && name.charAt(shared - 1) >= '\uD800' && name.charAt(shared - 1) <= '\uDBFF') {
+					shared--;
+				}
+				writeVarint(out, shared);
+				writeString(out, name.substring(shared));
+				writeVarint(out, offsets[i]);
+				previous = name;
+			}
+			out.writeLong(directoryOffset);
+		}
+	}
+}
@@ -23,13 +23,17 @@
 package net.sf.statsvn.input;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
@@ -49,6 +53,7 @@ import net.sf.statcvs.util.FilePatternMatcher;
 import net.sf.statcvs.util.FileUtils;
 import net.sf.statcvs.util.StringUtils;
 import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.PathDictionary;
 
 /**
  * <p>
@@ -61,6 +66,11 @@ import net.sf.statsvn.output.SvnConfigurationOptions;
  * author name and path. It also provides LOC count services.
  * </p>
  * 
+ * <p>
+ * Files are referred to by their id in the path dictionary of the repository file manager: the file builders and the attic are
+ * kept by path id, and the names are derived from the dictionary when they are asked for.
+ * </p>
+ * 
  * @author Richard Cyganiak &lt;richard@cyganiak.de&gt;
  * @author Jason Kealey &lt;jkealey@shade.ca&gt;
  * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
@@ -69,7 +79,12 @@ import net.sf.statsvn.output.SvnConfigurationOptions;
  * 
  */
 public class Builder implements SvnLogBuilder {
-    private final Set atticFileNames = new HashSet();
+    private static final int INITIAL_PATHS = 1024;
+
+    /** The ids of the files in the attic. */
+    private final BitSet attic = new BitSet();
+
+    private final Set atticFileNames = new AtticFileNames();
 
     private final Map authors = new HashMap();
 
@@ -79,10 +94,17 @@ public class Builder implements SvnLogBuilder {
 
     private final FilePatternMatcher excludePattern;
 
-    private final Map fileBuilders = new HashMap();
+    /** The file builders by path id, null where the path is not a file. */
+    private FileBuilder[] fileBuildersById = new FileBuilder[INITIAL_PATHS];
+
+    private int fileBuilderCount = 0;
+
+    private final Map fileBuilders = new FileBuilderMap();
 
     private final FilePatternMatcher includePattern;
 
+    private final PathDictionary paths;
+
     private String projectName = null;
 
     private final RepositoryFileManager repositoryFileManager;
@@ -94,7 +116,7 @@ public class Builder implements SvnLogBuilder {
     private final Pattern tagsPattern;
     
     public void clean() {
-        atticFileNames.clear();
+        attic.clear();
         authors.clear();
         directories.clear();
         fileBuilders.clear();
@@ -119,6 +141,7 @@ public class Builder implements SvnLogBuilder {
         this.includePattern = includePattern;
         this.excludePattern = excludePattern;
         this.tagsPattern = tagsPattern;
+        this.paths = repositoryFileManager != null ? repositoryFileManager.getPathDictionary() : new PathDictionary();
         directories.put("", Directory.createRoot());
     }
 
@@ -132,9 +155,7 @@ public class Builder implements SvnLogBuilder {
      *            the filename to add to the attic.
      */
     public void addToAttic(final String filename) {
-        if (!atticFileNames.contains(filename)) {
-            atticFileNames.add(filename);
-        }
+        attic.set(getPathId(filename));
     }
 
     /**
@@ -159,13 +180,21 @@ public class Builder implements SvnLogBuilder {
      *            maps date (date) by symbolic name (string)
      */
     public void buildFile(final String filename, final boolean isBinary, final boolean isInAttic, final Map revBySymnames, final Map dateBySymnames) {
-        if (fileBuilders.containsKey(filename)) {
-            currentFileBuilder = (FileBuilder) fileBuilders.get(filename);
+        final int pathId = getPathId(filename);
+        final FileBuilder fileBuilder = getFileBuilder(pathId);
+        if (fileBuilder != null) {
+            currentFileBuilder = fileBuilder;
         } else {
-            currentFileBuilder = new FileBuilder(this, filename, isBinary, revBySymnames, dateBySymnames);
-            fileBuilders.put(filename, currentFileBuilder);
+            currentFileBuilder = new FileBuilder(this, pathId, isBinary, revBySymnames, dateBySymnames);
+            if (pathId >= fileBuildersById.length) {
+                final FileBuilder[] newFileBuilders = new FileBuilder[Math.max(pathId + 1, fileBuildersById.length * 2)];
+                System.arraycopy(fileBuildersById, 0, newFileBuilders, 0, fileBuildersById.length);
+                fileBuildersById = newFileBuilders;
+            }
+            fileBuildersById[pathId] = currentFileBuilder;
+            fileBuilderCount++;
             if (isInAttic) {
-                addToAttic(filename);
+                attic.set(pathId);
             }
         }
     }
@@ -190,6 +219,20 @@ public class Builder implements SvnLogBuilder {
 
         currentFileBuilder.addRevisionData(data);
 
+        buildFilteredRevision(data);
+    }
+
+    /**
+     * Takes the date of a revision that was not built into account for the begin of the log, unless it is older than the
+     * first revision to report on.
+     * 
+     * @param data
+     *            the revision
+     */
+    public void buildFilteredRevision(final RevisionData data) {
+        if (data.isBeforeFirstRequestedRevision()) {
+            return;
+        }
         if (startDate == null || startDate.compareTo(data.getDate()) > 0) {
             startDate = data.getDate();
         }
@@ -232,7 +275,25 @@ public class Builder implements SvnLogBuilder {
     }
 
     /**
-     * Returns the <tt>Set</tt> of filenames that are "in the attic".
+     * @return the date of the oldest revision built so far.
+     */
+    Date getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Overrides the date of the oldest revision, which also accounts for
+     * revisions that are no longer part of the model.
+     * 
+     * @param startDate
+     *            the date of the begin of the log
+     */
+    void setStartDate(final Date startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * Returns the <tt>Set</tt> of filenames that are "in the attic", a view of the attic by path id.
      * 
      * @return a <tt>Set</tt> of <tt>String</tt>s
      */
@@ -336,12 +397,47 @@ public class Builder implements SvnLogBuilder {
      * 
      * @todo Beef up this interface to better encapsulate the data structure.
      * 
-     * @return this builder's contained (@link FileBuilder)s.
+     * @return this builder's contained (@link FileBuilder)s by name, a view of the file builders by path id.
      */
     public Map getFileBuilders() {
         return fileBuilders;
     }
 
+    /**
+     * Gives the id of a file in the path dictionary, adding it if needed.
+     * 
+     * @param filename
+     *            the name of the file, relative to the working folder
+     * @return the id of the file
+     */
+    int getPathId(final String filename) {
+        return paths.getId(getModulePathId(), filename);
+    }
+
+    /**
+     * @param pathId
+     *            the id of a file in the path dictionary
+     * @return the name of the file, relative to the working folder
+     */
+    String getPathName(final int pathId) {
+        return paths.getRelativePath(pathId, getModulePathId());
+    }
+
+    private int findPathId(final Object filename) {
+        if (!(filename instanceof String)) {
+            return PathDictionary.NONE;
+        }
+        return paths.findId(getModulePathId(), (String) filename);
+    }
+
+    private int getModulePathId() {
+        return repositoryFileManager != null ? repositoryFileManager.getModulePathId() : PathDictionary.ROOT;
+    }
+
+    private FileBuilder getFileBuilder(final int pathId) {
+        return pathId >= 0 && pathId < fileBuildersById.length ? fileBuildersById[pathId] : null;
+    }
+
     /**
      * @see RepositoryFileManager#getLinesOfCode(String)
      */
@@ -423,7 +519,8 @@ public class Builder implements SvnLogBuilder {
     /**
      * New in StatSVN: Updates a particular revision for a file with new line count information. If the file or revision does not exist, action will do nothing.
      * 
-     * Necessary because line counts are not given in the log file and hence can only be added in a second pass.
+     * Necessary because line counts are not given in the log file and hence can only be added in a second pass, once no more files are built: the
+     * file builders are only read here and the update locks the file it applies to.
      * 
      * @param filename
      *            the file to be updated
@@ -434,8 +531,8 @@ public class Builder implements SvnLogBuilder {
      * @param linesRemoved
      *            the lines that were removed
      */
-    public synchronized void updateRevision(final String filename, final String revisionNumber, final int linesAdded, final int linesRemoved) {
-        final FileBuilder fb = (FileBuilder) fileBuilders.get(filename);
+    public void updateRevision(final String filename, final String revisionNumber, final int linesAdded, final int linesRemoved) {
+        final FileBuilder fb = getFileBuilder(findPathId(filename));
         if (fb != null) {
             fb.updateRevision(revisionNumber, linesAdded, linesRemoved);
         }
@@ -458,6 +555,173 @@ public class Builder implements SvnLogBuilder {
         return result;
     }
 
+    /**
+     * The file builders by name, read from and removed from the file builders by path id.
+     */
+    private final class FileBuilderMap extends AbstractMap {
+        public Object get(final Object filename) {
+            return getFileBuilder(findPathId(filename));
+        }
+
+        public boolean containsKey(final Object filename) {
+            return get(filename) != null;
+        }
+
+        public Object remove(final Object filename) {
+            final int pathId = findPathId(filename);
+            final FileBuilder removed = getFileBuilder(pathId);
+            if (removed != null) {
+                fileBuildersById[pathId] = null;
+                fileBuilderCount--;
+            }
+            return removed;
+        }
+
+        public int size() {
+            return fileBuilderCount;
+        }
+
+        public void clear() {
+            Arrays.fill(fileBuildersById, null);
+            fileBuilderCount = 0;
+        }
+
+        public Set entrySet() {
+            return new AbstractSet() {
+                public int size() {
+                    return fileBuilderCount;
+                }
+
+                public Iterator iterator() {
+                    return new FileBuilderIterator();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over the file builders in path id order, as entries of their name.
+     */
+    private final class FileBuilderIterator implements Iterator {
+        private int next = 0;
+
+        private int current = PathDictionary.NONE;
+
+        public boolean hasNext() {
+            while (next < fileBuildersById.length && fileBuildersById[next] == null) {
+                next++;
+            }
+            return next < fileBuildersById.length;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return new FileBuilderEntry(fileBuildersById[current]);
+        }
+
+        public void remove() {
+            if (current == PathDictionary.NONE || fileBuildersById[current] == null) {
+                throw new IllegalStateException();
+            }
+            fileBuildersById[current] = null;
+            fileBuilderCount--;
+        }
+    }
+
+    /**
+     * A file builder as an entry of its name.
+     */
+    private static final class FileBuilderEntry implements Map.Entry {
+        private final FileBuilder fileBuilder;
+
+        private FileBuilderEntry(final FileBuilder fileBuilder) {
+            this.fileBuilder = fileBuilder;
+        }
+
+        public Object getKey() {
+            return fileBuilder.getName();
+        }
+
+        public Object getValue() {
+            return fileBuilder;
+        }
+
+        public Object setValue(final Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry other = (Map.Entry) o;
+            return getKey().equals(other.getKey()) && fileBuilder.equals(other.getValue());
+        }
+
+        public int hashCode() {
+            return getKey().hashCode() ^ fileBuilder.hashCode();
+        }
+    }
+
+    /**
+     * The names of the files in the attic, read from and written to the attic by path id.
+     */
+    private final class AtticFileNames extends AbstractSet {
+        public boolean contains(final Object filename) {
+            final int pathId = findPathId(filename);
+            return pathId != PathDictionary.NONE && attic.get(pathId);
+        }
+
+        public boolean add(final Object filename) {
+            final int pathId = getPathId((String) filename);
+            if (attic.get(pathId)) {
+                return false;
+            }
+            attic.set(pathId);
+            return true;
+        }
+
+        public int size() {
+            return attic.cardinality();
+        }
+
+        public void clear() {
+            attic.clear();
+        }
+
+        public Iterator iterator() {
+            return new Iterator() {
+                private int next = attic.nextSetBit(0);
+
+                private int current = PathDictionary.NONE;
+
+                public boolean hasNext() {
+                    return next != -1;
+                }
+
+                public Object next() {
+                    if (next == -1) {
+                        throw new NoSuchElementException();
+                    }
+                    current = next;
+                    next = attic.nextSetBit(next + 1);
+                    return getPathName(current);
+                }
+
+                public void remove() {
+                    if (current == PathDictionary.NONE) {
+                        throw new IllegalStateException();
+                    }
+                    attic.clear(current);
+                    current = PathDictionary.NONE;
+                }
+            };
+        }
+    }
+
     private static final class AuthorAnonymizingProvider {
         private AuthorAnonymizingProvider() {
             // no access
@@ -1,36 +1,48 @@
 package net.sf.statsvn.input;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.TreeMap;
 
 import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.PathDictionary;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * <p>
  * CVS log files include lines modified for each commit and binary status of a
  * file while SVN log files do not offer this additional information.
  * </p>
- * 
+ *
  * <p>
  * StatSVN must query the Subversion repository for line counts using svn diff.
  * However, this is very costly, performance-wise. Therefore, the decision was
  * taken to persist this information in an XML file. This class receives
  * information from (@link net.sf.statsvn.input.SvnXmlLineCountsFileHandler) to
- * build a DOM-based xml structure. It also forwards line counts to the
+ * build an index of the cached paths, by their id in the path dictionary of
+ * the repository file manager. It also forwards line counts to the
  * appropriate (@link net.sf.statsvn.input.FileBuilder).
  * </p>
- * 
+ *
+ * <p>
+ * The cache is saved by streaming the index to a (@link CacheWriter).
+ * </p>
+ *
+ * <p>
+ * The svn diff threads record their results concurrently: the index is a
+ * concurrent map and each cached path is locked on its own.
+ * </p>
+ *
  * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
  * @version $Id: CacheBuilder.java 351 2008-03-28 18:46:26Z benoitx $
  */
@@ -39,30 +51,38 @@ public class CacheBuilder {
 
 	private final RepositoryFileManager repositoryFileManager;
 
-	private Element currentPath = null;
+	private final PathDictionary dictionary;
 
-	private Document document = null;
+	private CachedPath currentPath = null;
+
+	/** The cached paths (CachedPath) by path id (Integer). */
+	private final ConcurrentHashMap paths = new ConcurrentHashMap();
+
+	/** The cached paths (CachedPath) in file order, then in order of addition. */
+	private final Collection pathOrder = new ConcurrentLinkedQueue();
 
 	private String currentFilename;
 
-	private Element cache = null;
+	private volatile CacheJournal journal = null;
 
 	/**
 	 * Constructs the LineCountsBuilder by giving it a reference to the builder
 	 * currently in use.
-	 * 
+	 *
 	 * @param builder
-	 *            the SvnLogBuilder which contains all the FileBuilders.
+	 *            the SvnLogBuilder which contains all the FileBuilders, or
+	 *            null to only read a cache, see (@link #merge(CacheBuilder)).
 	 */
 	public CacheBuilder(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager) {
 		this.builder = builder;
 		this.repositoryFileManager = repositoryFileManager;
+		this.dictionary = repositoryFileManager.getPathDictionary();
 	}
 
 	/**
-	 * Adds a path in the DOM. To be followed by invocations to (@link
+	 * Adds a path to the index. To be followed by invocations to (@link
 	 * #addRevision(String, String, String))
-	 * 
+	 *
 	 * @param name
 	 *            the filename
 	 * @param latestRevision
@@ -71,19 +91,34 @@ public class CacheBuilder {
 	 * @param binaryStatus
 	 *            binary status of latest revision
 	 */
-	private void addDOMPath(final String name, final String latestRevision, final String binaryStatus) {
-		currentPath = document.createElement(CacheConfiguration.PATH);
-		currentPath.setAttribute(CacheConfiguration.NAME, name);
-		currentPath.setAttribute(CacheConfiguration.LATEST_REVISION, latestRevision);
-		currentPath.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		cache.appendChild(currentPath);
+	private void addPath(final String name, final String latestRevision, final String binaryStatus) {
+		currentPath = getPath(dictionary.getId(name), latestRevision, binaryStatus);
 	}
 
 	/**
-	 * Updates the BINARY_STATUS and LATEST_REVISION attributes of a path in the
-	 * DOM. Updates only if the revisionNumber is higher than current
-	 * LATEST_REVISION of the path.
-	 * 
+	 * Finds a path of the index, adding it if needed.
+	 *
+	 * @return the path, new or not
+	 */
+	private CachedPath getPath(final int id, final String latestRevision, final String binaryStatus) {
+		final Integer key = new Integer(id);
+		CachedPath path = (CachedPath) paths.get(key);
+		if (path == null) {
+			final CachedPath newPath = new CachedPath(id, latestRevision, binaryStatus);
+			path = (CachedPath) paths.putIfAbsent(key, newPath);
+			if (path == null) {
+				path = newPath;
+				pathOrder.add(path);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Updates the BINARY_STATUS and LATEST_REVISION attributes of a path.
+	 * Updates only if the revisionNumber is higher than current
+	 * LATEST_REVISION of the path. To be called holding the lock of the path.
+	 *
 	 * @param path
 	 *            the path to be updated
 	 * @param isBinary
@@ -91,15 +126,14 @@ public class CacheBuilder {
 	 * @param revisionNumber
 	 *            the revision number for which the binary status is valid
 	 */
-	private void updateDOMPath(final Element path, final boolean isBinary, final String revisionNumber) {
+	private void updatePath(final CachedPath path, final boolean isBinary, final String revisionNumber) {
 		int oldRevision = 0;
 		int newRevision = -1;
 		try {
-			oldRevision = Integer.parseInt(path.getAttribute(CacheConfiguration.LATEST_REVISION));
+			oldRevision = Integer.parseInt(path.latestRevision);
 			newRevision = Integer.parseInt(revisionNumber);
 		} catch (final NumberFormatException e) {
-			SvnConfigurationOptions.getTaskLogger().log(
-			        "Ignoring invalid revision number " + revisionNumber + " for " + path.getAttribute(CacheConfiguration.NAME));
+			SvnConfigurationOptions.getTaskLogger().log("Ignoring invalid revision number " + revisionNumber + " for " + dictionary.getAbsolutePath(path.id));
 			newRevision = -1;
 		}
 		String binaryStatus = CacheConfiguration.NOT_BINARY;
@@ -107,36 +141,15 @@ public class CacheBuilder {
 			binaryStatus = CacheConfiguration.BINARY;
 		}
 		if (newRevision >= oldRevision) {
-			path.setAttribute(CacheConfiguration.LATEST_REVISION, revisionNumber);
-			path.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		}
-	}
-
-	/**
-	 * Finds a path in the DOM.
-	 * 
-	 * @param name
-	 *            the filename
-	 * @return the path or null if the path does not exist
-	 */
-	private Element findDOMPath(final String name) {
-		if (currentPath != null && name.equals(currentPath.getAttribute(CacheConfiguration.NAME))) {
-			return currentPath;
+			path.latestRevision = revisionNumber;
+			path.binaryStatus = binaryStatus;
 		}
-		final NodeList paths = cache.getChildNodes();
-		for (int i = 0; i < paths.getLength(); i++) {
-			final Element path = (Element) paths.item(i);
-			if (name.equals(path.getAttribute(CacheConfiguration.NAME))) {
-				return path;
-			}
-		}
-		return null;
 	}
 
 	/**
-	 * Adds a revision to the current path in the DOM. To be preceeded by (@link
+	 * Adds a revision to the current path. To be preceeded by (@link
 	 * #addPath(String))
-	 * 
+	 *
 	 * @param number
 	 *            the revision number
 	 * @param added
@@ -144,36 +157,33 @@ public class CacheBuilder {
 	 * @param removed
 	 *            the number of lines that were removed
 	 */
-	private void addDOMRevision(final String number, final String added, final String removed, final String binaryStatus) {
-		final Element revision = document.createElement(CacheConfiguration.REVISION);
-		revision.setAttribute(CacheConfiguration.NUMBER, number);
-		revision.setAttribute(CacheConfiguration.ADDED, added);
-		revision.setAttribute(CacheConfiguration.REMOVED, removed);
-		revision.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		currentPath.appendChild(revision);
+	private void addRevision(final String number, final String added, final String removed, final String binaryStatus) {
+		synchronized (currentPath) {
+			currentPath.put(new CachedRevision(number, added, removed, binaryStatus), true);
+		}
 	}
 
 	/**
 	 * Initializes the builder for subsequent invocations of (@link
 	 * #buildRevision(String, String, String)).
-	 * 
+	 *
 	 * @param name
 	 *            the filename
 	 */
 	public void buildPath(final String name, final String revision, final String binaryStatus) {
 		currentFilename = repositoryFileManager.absoluteToRelativePath(name);
-		addDOMPath(name, revision, binaryStatus);
+		addPath(name, revision, binaryStatus);
 
 	}
 
 	/**
 	 * Given the file specified by the preceeding invocation to (@link
 	 * #buildPath(String)), set the line counts for the given revision.
-	 * 
+	 *
 	 * If the path given in the preceeding invocation to (@link
 	 * #buildPath(String)) is not used by the (@link SvnLogBuilder), this call
 	 * does nothing.
-	 * 
+	 *
 	 * @param number
 	 *            the revision number
 	 * @param added
@@ -183,44 +193,113 @@ public class CacheBuilder {
 	 */
 	public void buildRevision(final String number, final String added, final String removed, final String binaryStatus) {
 		if (!added.equals("-1") && !removed.equals("-1")) {
-			addDOMRevision(number, added, removed, binaryStatus);
-			builder.updateRevision(currentFilename, number, Integer.parseInt(added), Integer.parseInt(removed));
+			addRevision(number, added, removed, binaryStatus);
+			if (builder != null) {
+				builder.updateRevision(currentFilename, number, Integer.parseInt(added), Integer.parseInt(removed));
+			}
 		}
 	}
 
 	/**
-	 * Builds the DOM root.
-	 * 
-	 * @throws ParserConfigurationException
+	 * Gives the content of the cache to a writer, the paths sorted by name
+	 * and their revisions by number, so that reading the cache back only
+	 * appends revisions.
+	 *
+	 * @param writer
+	 *            receives the paths and their revisions.
+	 * @throws IOException
+	 *             errors while writing.
 	 */
-	public void buildRoot() throws ParserConfigurationException {
-		final DocumentBuilderFactory factoryDOM = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builderDOM;
-		builderDOM = factoryDOM.newDocumentBuilder();
-		document = builderDOM.newDocument();
-		cache = document.createElement(CacheConfiguration.CACHE);
-		cache.setAttribute(CacheConfiguration.PROJECT, ConfigurationOptions.getProjectName());
-		cache.setAttribute(CacheConfiguration.XML_VERSION, "1.0");
-		document.appendChild(cache);
+	void write(final CacheWriter writer) throws IOException {
+		writer.startCache(ConfigurationOptions.getProjectName());
+		final Map byName = new TreeMap();
+		for (final Iterator it = paths.values().iterator(); it.hasNext();) {
+			final CachedPath path = (CachedPath) it.next();
+			byName.put(dictionary.getAbsolutePath(path.id), path);
+		}
+		for (final Iterator it = byName.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry entry = (Map.Entry) it.next();
+			final CachedPath path = (CachedPath) entry.getValue();
+			synchronized (path) {
+				Collections.sort(path.revisions, REVISION_ORDER);
+				writer.writePath((String) entry.getKey(), path.latestRevision, path.binaryStatus, path.revisions.size());
+				for (final Iterator revisions = path.revisions.iterator(); revisions.hasNext();) {
+					final CachedRevision revision = (CachedRevision) revisions.next();
+					writer.writeRevision(revision.number, revision.added, revision.removed, revision.binaryStatus);
+				}
+			}
+		}
+		writer.endCache();
 	}
 
 	/**
-	 * Returns the DOM object when building is complete.
-	 * 
-	 * @return the DOM document.
+	 * Adds what another cache holds to this one, typically the cache saved by
+	 * another process in the meantime. The revisions missing from a path are
+	 * added, and the binary status of the latest revision is kept.
+	 *
+	 * @param other
+	 *            the other cache
 	 */
-	public Document getDocument() {
-		return document;
+	public void merge(final CacheBuilder other) {
+		for (final Iterator it = other.pathOrder.iterator(); it.hasNext();) {
+			final CachedPath otherPath = (CachedPath) it.next();
+			final String otherLatestRevision;
+			final String otherBinaryStatus;
+			final List otherRevisions;
+			synchronized (otherPath) {
+				otherLatestRevision = otherPath.latestRevision;
+				otherBinaryStatus = otherPath.binaryStatus;
+				otherRevisions = new ArrayList(otherPath.revisions);
+			}
+			final int id = other.dictionary == dictionary ? otherPath.id : dictionary.getId(other.dictionary.getAbsolutePath(otherPath.id));
+			final CachedPath path = getPath(id, otherLatestRevision, otherBinaryStatus);
+			synchronized (path) {
+				if (parseRevision(otherLatestRevision) > parseRevision(path.latestRevision)) {
+					path.latestRevision = otherLatestRevision;
+					path.binaryStatus = otherBinaryStatus;
+				}
+				for (final Iterator revisions = otherRevisions.iterator(); revisions.hasNext();) {
+					path.put((CachedRevision) revisions.next(), false);
+				}
+			}
+		}
+	}
+
+	/** Orders the cached revisions by number. */
+	private static final Comparator REVISION_ORDER = new Comparator() {
+		public int compare(final Object o1, final Object o2) {
+			final int number1 = parseRevision(((CachedRevision) o1).number);
+			final int number2 = parseRevision(((CachedRevision) o2).number);
+			return number1 < number2 ? -1 : (number1 == number2 ? 0 : 1);
+		}
+	};
+
+	private static int parseRevision(final String revision) {
+		try {
+			return Integer.parseInt(revision);
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Sets the journal to which (@link #newRevision(String, String, String,
+	 * String, boolean)) appends the new revisions until the cache is saved.
+	 *
+	 * @param journal
+	 *            the journal, or null.
+	 */
+	public void setJournal(final CacheJournal journal) {
+		this.journal = journal;
 	}
 
 	/**
-	 * Adds a revision to the DOM.
-	 * 
-	 * Encapsulates calls to (@link #buildRoot()), (@link #buildPath(String)),
-	 * and (@link #buildRevision(String, String, String)) into one easy to use
-	 * interface.
-	 * 
-	 * 
+	 * Adds a revision to the cache, and to the journal if there is one.
+	 *
+	 * Encapsulates calls to (@link #buildPath(String)) and (@link
+	 * #buildRevision(String, String, String)) into one easy to use interface.
+	 *
+	 *
 	 * @param name
 	 *            the filename
 	 * @param number
@@ -230,39 +309,37 @@ public class CacheBuilder {
 	 * @param removed
 	 *            the number of lines removed
 	 */
-	public synchronized void newRevision(String name, final String number, final String added, final String removed, final boolean binaryStatus) {
-		name = repositoryFileManager.relativeToAbsolutePath(name);
-		checkDocument();
-		if (document != null) {
-			currentPath = findDOMPath(name);
-			if (currentPath == null) {
-				// changes currentPath to new one
-				addDOMPath(name, "0", CacheConfiguration.UNKNOWN);
-			}
-			String sBinaryStatus = CacheConfiguration.NOT_BINARY;
-			if (binaryStatus) {
-				sBinaryStatus = CacheConfiguration.BINARY;
-			}
-			addDOMRevision(number, added, removed, sBinaryStatus);
+	public void newRevision(final String name, final String number, final String added, final String removed, final boolean binaryStatus) {
+		final CachedPath path = getPath(dictionary.getId(repositoryFileManager.getModulePathId(), name), "0", CacheConfiguration.UNKNOWN);
+		String sBinaryStatus = CacheConfiguration.NOT_BINARY;
+		if (binaryStatus) {
+			sBinaryStatus = CacheConfiguration.BINARY;
 		}
-	}
-
-	private void checkDocument() {
-		if (document == null) {
+		synchronized (path) {
+			path.put(new CachedRevision(number, added, removed, sBinaryStatus), true);
+		}
+		final CacheJournal currentJournal = journal;
+		if (currentJournal != null) {
 			try {
-				buildRoot();
-			} catch (final ParserConfigurationException e) {
-				document = null;
+				currentJournal.append(dictionary.getAbsolutePath(path.id), number, added, removed, sBinaryStatus);
+			} catch (final IOException e) {
+				SvnConfigurationOptions.getTaskLogger().error("Cache journal: " + e.toString());
+				currentJournal.close();
+				// unless it was replaced meanwhile
+				if (journal == currentJournal) {
+					journal = null;
+				}
 			}
 		}
 	}
 
 	/**
-	 * Updates all paths in the DOM structure with the latest binary status
+	 * Updates all paths in the cache with the latest binary status
 	 * information from the working folder.
-	 * 
+	 *
 	 * @param fileBuilders
-	 *            the collection of fileBuilders
+	 *            the collection of fileBuilders, built with the path
+	 *            dictionary of the cache
 	 * @param revisionNumber
 	 *            the revision number
 	 */
@@ -271,25 +348,22 @@ public class CacheBuilder {
 		final Map mFileBuilders = new HashMap();
 		for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
 			final FileBuilder fileBuilder = (FileBuilder) iter.next();
-			mFileBuilders.put(fileBuilder.getName(), fileBuilder);
+			mFileBuilders.put(new Integer(fileBuilder.getPathId()), fileBuilder);
 		}
 		if (!mFileBuilders.isEmpty()) {
-			// go through all the paths in the DOM and update their binary
-			// status
-			// remove the fileBuilder once its corresponding path in the DOM was
-			// dealt with
-			checkDocument();
-			final NodeList paths = cache.getChildNodes();
-			for (int i = 0; i < paths.getLength(); i++) {
-				final Element path = (Element) paths.item(i);
-				if (mFileBuilders.containsKey(repositoryFileManager.absoluteToRelativePath(path.getAttribute(CacheConfiguration.NAME)))) {
-					final FileBuilder fileBuilder = (FileBuilder) mFileBuilders.get(repositoryFileManager.absoluteToRelativePath(path
-					        .getAttribute(CacheConfiguration.NAME)));
-					updateDOMPath(path, fileBuilder.isBinary(), revisionNumber);
-					mFileBuilders.remove(repositoryFileManager.absoluteToRelativePath(path.getAttribute(CacheConfiguration.NAME)));
+			// go through all the cached paths and update their binary status
+			// remove the fileBuilder once its corresponding path was dealt
+			// with
+				for (final Iterator it = pathOrder.iterator(); it.hasNext();) {
+				final CachedPath path = (CachedPath) it.next();
+				final FileBuilder fileBuilder = (FileBuilder) mFileBuilders.remove(new Integer(path.id));
+				if (fileBuilder != null) {
+					synchronized (path) {
+						updatePath(path, fileBuilder.isBinary(), revisionNumber);
+					}
 				}
 			}
-			// go through remaining fileBuilders and add them to the DOM
+			// go through remaining fileBuilders and add them to the cache
 			final Collection cFileBuilders = mFileBuilders.values();
 			for (final Iterator iter = cFileBuilders.iterator(); iter.hasNext();) {
 				final FileBuilder fileBuilder = (FileBuilder) iter.next();
@@ -297,7 +371,7 @@ public class CacheBuilder {
 				if (fileBuilder.isBinary()) {
 					binaryStatus = CacheConfiguration.BINARY;
 				}
-				addDOMPath(repositoryFileManager.relativeToAbsolutePath(fileBuilder.getName()), revisionNumber, binaryStatus);
+				getPath(fileBuilder.getPathId(), revisionNumber, binaryStatus);
 			}
 		}
 
@@ -305,7 +379,7 @@ public class CacheBuilder {
 
 	/**
 	 * Checks the path's cached binary status.
-	 * 
+	 *
 	 * @param fileName
 	 *            the path to be checked
 	 * @param revisionNumber
@@ -313,28 +387,103 @@ public class CacheBuilder {
 	 * @return true if the path's BINARY_STATUS is true and the revisionNumber
 	 *         is lower or equal to the path's LATEST_REVISION
 	 */
-	public synchronized boolean isBinary(final String fileName, final String revisionNumber) {
+	public boolean isBinary(final String fileName, final String revisionNumber) {
 		int latestRevision = 0;
 		int revisionToCheck = -1;
-		checkDocument();
-		final Element path = findDOMPath(repositoryFileManager.relativeToAbsolutePath(fileName));
+		final int id = dictionary.findId(repositoryFileManager.getModulePathId(), fileName);
+		final CachedPath path = id == PathDictionary.NONE ? null : (CachedPath) paths.get(new Integer(id));
 		if (path == null) {
 			return false;
 		}
+		final String pathLatestRevision;
+		final String pathBinaryStatus;
+		synchronized (path) {
+			pathLatestRevision = path.latestRevision;
+			pathBinaryStatus = path.binaryStatus;
+		}
 		try {
-			latestRevision = Integer.parseInt(path.getAttribute(CacheConfiguration.LATEST_REVISION));
+			latestRevision = Integer.parseInt(pathLatestRevision);
 			revisionToCheck = Integer.parseInt(revisionNumber);
 		} catch (final NumberFormatException e) {
-			SvnConfigurationOptions.getTaskLogger().log(
-			        "Ignoring invalid revision number " + revisionNumber + " for " + path.getAttribute(CacheConfiguration.NAME));
+			SvnConfigurationOptions.getTaskLogger().log("Ignoring invalid revision number " + revisionNumber + " for " + fileName);
 			revisionToCheck = -1;
 		}
 		if (latestRevision >= revisionToCheck) {
-			final String binaryStatus = path.getAttribute(CacheConfiguration.BINARY_STATUS);
-			if (binaryStatus.equals(CacheConfiguration.BINARY)) {
+			if (pathBinaryStatus.equals(CacheConfiguration.BINARY)) {
 				return true;
 			}
 		}
 		return false;
 	}
+
+	/**
+	 * A path of the cache: its binary status and the line counts of its
+	 * revisions. Its fields are accessed holding its lock.
+	 */
+	private static final class CachedPath {
+		/** The id of the absolute name in the path dictionary. */
+		private final int id;
+
+		private String latestRevision;
+
+		private String binaryStatus;
+
+		private final List revisions = new ArrayList();
+
+		/** The highest revision number added, beyond which no scan is needed. */
+		private int highestNumber = -1;
+
+		private CachedPath(final int id, final String latestRevision, final String binaryStatus) {
+			this.id = id;
+			this.latestRevision = latestRevision;
+			this.binaryStatus = binaryStatus;
+		}
+
+		/**
+		 * Adds a revision, unless the path already has one with that number,
+		 * as when a journal is replayed over the cache it was saved to.
+		 *
+		 * @param revision
+		 *            the revision
+		 * @param replace
+		 *            true to replace the revision with the same number, false
+		 *            to keep it
+		 */
+		private void put(final CachedRevision revision, final boolean replace) {
+			final int number = parseRevision(revision.number);
+			if (number > highestNumber) {
+				highestNumber = number;
+			} else {
+				for (int i = 0; i < revisions.size(); i++) {
+					if (((CachedRevision) revisions.get(i)).number.equals(revision.number)) {
+						if (replace) {
+							revisions.set(i, revision);
+						}
+						return;
+					}
+				}
+			}
+			revisions.add(revision);
+		}
+	}
+
+	/**
+	 * The line counts of a revision of a cached path.
+	 */
+	private static final class CachedRevision {
+		private final String number;
+
+		private final String added;
+
+		private final String removed;
+
+		private final String binaryStatus;
+
+		private CachedRevision(final String number, final String added, final String removed, final String binaryStatus) {
+			this.number = number;
+			this.added = added;
+			this.removed = removed;
+			this.binaryStatus = binaryStatus;
+		}
+	}
 }
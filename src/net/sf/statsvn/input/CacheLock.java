@@ -0,0 +1,97 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+/**
+ * <p>
+ * An exclusive lock on a file of the cache directory, shared with the other
+ * StatSVN processes using the same cache. While it is held, the cache files
+ * it guards can be read, merged and written back without losing what
+ * another process saved in the meantime.
+ * </p>
+ *
+ * <p>
+ * The lock is taken on a separate, empty lock file, so that the guarded files
+ * can still be replaced by renaming. The lock file is deleted on release; it
+ * is first given a length of one byte, so that a process that was waiting on
+ * the deleted file sees it is stale once it gets the lock, and locks the file
+ * created anew instead.
+ * </p>
+ *
+ * @version $Id$
+ */
+public final class CacheLock {
+	/** The length of a lock file that was (or is about to be) deleted. */
+	private static final int RELEASED_LENGTH = 1;
+
+	private final File file;
+
+	private final RandomAccessFile access;
+
+	private final FileLock lock;
+
+	private CacheLock(final File file, final RandomAccessFile access, final FileLock lock) {
+		this.file = file;
+		this.access = access;
+		this.lock = lock;
+	}
+
+	/**
+	 * Locks a file, waiting for the other processes that hold it.
+	 *
+	 * @param file
+	 *            the lock file, created if needed
+	 * @return the lock, to be released
+	 * @throws IOException
+	 *             if the file cannot be locked.
+	 */
+	public static CacheLock acquire(final File file) throws IOException {
+		while (true) {
+			final RandomAccessFile access = new RandomAccessFile(file, "rw");
+			try {
+				final FileLock lock = access.getChannel().lock();
+				if (access.length() != RELEASED_LENGTH) {
+					return new CacheLock(file, access, lock);
+				}
+				// the file was deleted by the process we waited for, unless
+				// that process died before it could: then it is deleted here.
+				if (file.length() == RELEASED_LENGTH) {
+					file.delete();
+				}
+				lock.release();
+				access.close();
+			} catch (final IOException e) {
+				access.close();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Releases the lock and deletes the lock file. Where an open file cannot
+	 * be deleted, the lock file is kept for the processes waiting on it.
+	 */
+	public void release() {
+		try {
+			access.setLength(RELEASED_LENGTH);
+			if (!file.delete()) {
+				access.setLength(0);
+			}
+		} catch (final IOException e) {
+			// the lock file is kept.
+		}
+		try {
+			lock.release();
+		} catch (final IOException e) {
+			// closing the file releases it as well
+		}
+		try {
+			access.close();
+		} catch (final IOException e) {
+			// nothing more can be done with it.
+		}
+	}
+}
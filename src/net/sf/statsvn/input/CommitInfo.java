@@ -0,0 +1,93 @@
+package net.sf.statsvn.input;
+
+import java.util.Date;
+
+/**
+ * Author, date and comment of a commit. Immutable, so that one instance is
+ * shared by the (@link RevisionData) of every file of the commit; the
+ * <tt>with*</tt> methods return a modified copy.
+ *
+ * @version $Id$
+ */
+public final class CommitInfo {
+	/**
+	 * No author, no date and an empty comment, the values of a new
+	 * (@link RevisionData).
+	 */
+	public static final CommitInfo EMPTY = new CommitInfo(null, null, "");
+
+	private final long time;
+
+	private final boolean dated;
+
+	private final String loginName;
+
+	private final String comment;
+
+	/**
+	 * @param date
+	 *            the date of the commit, may be null.
+	 * @param loginName
+	 *            the author of the commit.
+	 * @param comment
+	 *            the commit message.
+	 */
+	public CommitInfo(final Date date, final String loginName, final String comment) {
+		this(date != null ? date.getTime() : 0, date != null, loginName, comment);
+	}
+
+	private CommitInfo(final long time, final boolean dated, final String loginName, final String comment) {
+		this.time = time;
+		this.dated = dated;
+		this.loginName = loginName;
+		this.comment = comment;
+	}
+
+	/**
+	 * @return a new <tt>Date</tt> with the commit date, or null.
+	 */
+	public Date getDate() {
+		return dated ? new Date(time) : null;
+	}
+
+	public String getLoginName() {
+		return loginName;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+
+	public CommitInfo withDate(final Date date) {
+		return new CommitInfo(date != null ? date.getTime() : 0, date != null, loginName, comment);
+	}
+
+	public CommitInfo withLoginName(final String newLoginName) {
+		return new CommitInfo(time, dated, newLoginName, comment);
+	}
+
+	public CommitInfo withComment(final String newComment) {
+		return new CommitInfo(time, dated, loginName, newComment);
+	}
+
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CommitInfo)) {
+			return false;
+		}
+		final CommitInfo other = (CommitInfo) obj;
+		return time == other.time && dated == other.dated && equals(loginName, other.loginName) && equals(comment, other.comment);
+	}
+
+	private static boolean equals(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	public int hashCode() {
+		int hash = (int) (time ^ (time >>> 32));
+		hash = 31 * hash + (loginName != null ? loginName.hashCode() : 0);
+		return 31 * hash + (comment != null ? comment.hashCode() : 0);
+	}
+}
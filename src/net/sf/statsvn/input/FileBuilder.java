@@ -23,11 +23,9 @@
 package net.sf.statsvn.input;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -75,11 +73,12 @@ public class FileBuilder {
 
 	private final Builder builder;
 
-	private final String name;
+	/** The id of the file in the path dictionary of the builder. */
+	private final int pathId;
 
 	private boolean binary;
 
-	private final List revisions = new ArrayList();
+	private final RevisionList revisions = new RevisionList();
 
 	private final Map revBySymnames;
 
@@ -99,13 +98,29 @@ public class FileBuilder {
 	 *            Is this a binary file or not?
 	 */
 	public FileBuilder(final Builder builder, final String name, final boolean isBinary, final Map revBySymnames, final Map dateBySymnames) {
+		this(builder, builder.getPathId(name), isBinary, revBySymnames, dateBySymnames);
+	}
+
+	/**
+	 * Creates a new <tt>FileBuilder</tt> for a path of the dictionary of the
+	 * builder.
+	 * 
+	 * @param builder
+	 *            a <tt>Builder</tt> that provides factory services for author
+	 *            and directory instances and line counts.
+	 * @param pathId
+	 *            the id of the filename
+	 * @param isBinary
+	 *            Is this a binary file or not?
+	 */
+	FileBuilder(final Builder builder, final int pathId, final boolean isBinary, final Map revBySymnames, final Map dateBySymnames) {
 		this.builder = builder;
-		this.name = name;
+		this.pathId = pathId;
 		this.binary = isBinary;
 		this.revBySymnames = revBySymnames;
 		this.dateBySymnames = dateBySymnames;
 
-		SvnConfigurationOptions.getTaskLogger().log("logging " + name);
+		SvnConfigurationOptions.getTaskLogger().log("logging " + getName());
 	}
 
 	/**
@@ -124,6 +139,63 @@ public class FileBuilder {
 		locDelta += getLOCChange(data);
 	}
 
+	/**
+	 * New in StatSVN: Inserts a revision at a given position of the log, in
+	 * front of the older revisions, instead of removing and re-adding them.
+	 * 
+	 * @param index
+	 *            the position of the revision in (@link #getRevisions())
+	 * @param data
+	 *            information about the revision
+	 */
+	public void insertRevisionData(final int index, final RevisionData data) {
+		if (binary && !data.isCreationOrRestore()) {
+			data.setLines(0, 0);
+		}
+		this.revisions.add(index, data);
+
+		locDelta += getLOCChange(data);
+	}
+
+	/**
+	 * New in StatSVN: Removes the revisions older than the first revision to
+	 * report on, once they were used to find the implicit actions.
+	 */
+	public void removeRevisionsBeforeFirstRequested() {
+		for (int i = revisions.size() - 1; i >= 0; i--) {
+			final RevisionData data = (RevisionData) revisions.get(i);
+			if (data.isBeforeFirstRequestedRevision()) {
+				revisions.remove(i);
+				locDelta -= getLOCChange(data);
+			}
+		}
+	}
+
+	/**
+	 * New in StatSVN: Finds where a revision belongs in the log of this file.
+	 * 
+	 * @param revision
+	 *            the revision number
+	 * @param fromIndex
+	 *            the position to start searching from
+	 * @return the position of the first revision at or after
+	 *         <code>fromIndex</code> which is not newer than
+	 *         <code>revision</code>, or the number of revisions if there is
+	 *         none.
+	 */
+	public int findRevisionPosition(final int revision, final int fromIndex) {
+		if (revisions.isInLogOrder()) {
+			return revisions.indexOfNotNewer(revision, fromIndex);
+		}
+		int k;
+		for (k = fromIndex; k < revisions.size(); k++) {
+			if (revision >= getRevisionNumberAt(k)) {
+				break;
+			}
+		}
+		return k;
+	}
+
 	/**
 	 * Creates and returns a {@link VersionedFile} representation of the file.
 	 * <tt>null</tt> is returned if the file does not meet certain criteria,
@@ -139,6 +211,7 @@ public class FileBuilder {
 			return null;
 		}
 
+		final String name = getName();
 		final VersionedFile file = new VersionedFile(name, builder.getDirectory(name));
 
 		if (revisions.isEmpty()) {
@@ -208,6 +281,7 @@ public class FileBuilder {
 			return 0;
 		}
 
+		final String name = getName();
 		String revision = null;
 		try {
 			revision = builder.getRevision(name);
@@ -328,7 +402,7 @@ public class FileBuilder {
 	 * @return <tt>true</tt> if this file should not be processed
 	 */
 	private boolean isFilteredFile() {
-		return !this.builder.matchesPatterns(this.name);
+		return !this.builder.matchesPatterns(getName());
 	}
 
 	/**
@@ -347,7 +421,7 @@ public class FileBuilder {
 			return true;
 		}
 		try {
-			builder.getLOC(name);
+			builder.getLOC(getName());
 			return true;
 		} catch (final NoLineCountException fileDoesNotExistInTimespan) {
 			return false;
@@ -366,6 +440,7 @@ public class FileBuilder {
 	private SortedSet createSymbolicNamesCollection(final RevisionData revisionData) {
 		SortedSet symbolicNames = null;
 
+		final String name = getName();
 		final int currentRevision = getRevisionAsInt(revisionData.getRevisionNumber());
 		SvnConfigurationOptions.getTaskLogger().log("\n" + name + " CURRENT REVISION = " + currentRevision + " Deleted " + revisionData.isDeletion());
 
@@ -384,21 +459,21 @@ public class FileBuilder {
 
 			// go through the revisions for this file
 			// in order to find either the rev ON the tag or JUST BEFORE!
-			int previousRevisionForThisFile = getRevisionAsInt(((RevisionData) revisions.get(revisions.size() - 1)).getRevisionNumber());
+			int previousRevisionForThisFile = getRevisionNumberAt(revisions.size() - 1);
 			int revisionToTag = -1;
-			for (final ListIterator it = revisions.listIterator(revisions.size()); it.hasPrevious();) {
-				final RevisionData data = (RevisionData) it.previous();
+			for (int i = revisions.size() - 1; i >= 0; i--) {
+				final RevisionData data = (RevisionData) revisions.get(i);
 
 				SvnConfigurationOptions.getTaskLogger().log(
 				        "File REV " + data.getRevisionNumber() + " =>" + data.getDate() + " vs " + tagRevision + " Deletion:" + data.isDeletion());
 
-				final int dataRev = getRevisionAsInt(data.getRevisionNumber());
+				final int dataRev = getRevisionNumberAt(i);
 
 				if (revisionData.isDeletion() && currentRevision < dataRev) {
 					// the file is deleted (revisionData.isDeletion) AND the
 					// currentRevision is BEFORE the current tag
 					// so we should not tag this.
-					previousRevisionForThisFile = getRevisionAsInt(data.getRevisionNumber());
+					previousRevisionForThisFile = dataRev;
 					continue;
 				} else if (dataRev == tagRevision) {
 					revisionToTag = tagRevision;
@@ -409,7 +484,7 @@ public class FileBuilder {
 					break;
 				}
 
-				previousRevisionForThisFile = getRevisionAsInt(data.getRevisionNumber());
+				previousRevisionForThisFile = dataRev;
 			}
 
 			// if the LAST revision for this fuke is before the TAG revision
@@ -445,14 +520,53 @@ public class FileBuilder {
 	}
 
 	/**
-	 * New in StatSVN: Gives the FileBuilder's filename.
+	 * New in StatSVN: Gives the number of a revision of this file without
+	 * parsing its revision string.
+	 * 
+	 * @param index
+	 *            the position of the revision in (@link #getRevisions())
+	 * @return the revision number
+	 */
+	public int getRevisionNumberAt(final int index) {
+		final int revision = revisions.getRevision(index);
+		if (revision == RevisionData.NO_REVISION) {
+			return getRevisionAsInt(((RevisionData) revisions.get(index)).getRevisionNumber());
+		}
+		return revision;
+	}
+
+	/**
+	 * New in StatSVN: Gives the FileBuilder's filename, derived from its path
+	 * id.
 	 * 
 	 * @todo Beef up this interface to better encapsulate the data structure.
 	 * 
 	 * @return the filename
 	 */
 	public String getName() {
-		return name;
+		return builder.getPathName(pathId);
+	}
+
+	/**
+	 * @return the id of the file in the path dictionary of the builder.
+	 */
+	public int getPathId() {
+		return pathId;
+	}
+
+	/**
+	 * @return the revision (string) by tag name (string) this file was
+	 *         built with.
+	 */
+	Map getRevBySymnames() {
+		return revBySymnames;
+	}
+
+	/**
+	 * @return the date (date) by tag name (string) this file was built with.
+	 */
+	Map getDateBySymnames() {
+		return dateBySymnames;
 	}
 
 	/**
@@ -474,6 +588,11 @@ public class FileBuilder {
 	 *         doesn't exist.
 	 */
 	private RevisionData findRevision(final String revisionNumber) {
+		final int revision = RevisionData.parseRevision(revisionNumber);
+		if (revision != RevisionData.NO_REVISION) {
+			final int index = revisions.indexOfRevision(revision);
+			return index < 0 ? null : (RevisionData) revisions.get(index);
+		}
 		for (int i = 0; i < revisions.size(); i++) {
 			final RevisionData data = (RevisionData) revisions.get(i);
 			if (data.getRevisionNumber().equals(revisionNumber)) {
@@ -514,7 +633,8 @@ public class FileBuilder {
 	 * nothing.
 	 * 
 	 * Necessary because line counts are not given in the log file and hence can
-	 * only be added in a second pass.
+	 * only be added in a second pass. Diff results for different files are
+	 * applied concurrently, so the update only locks this file.
 	 * 
 	 * @param revisionNumber
 	 *            the revision number to be updated
@@ -523,7 +643,7 @@ public class FileBuilder {
 	 * @param linesRemoved
 	 *            the lines that were removed
 	 */
-	public void updateRevision(final String revisionNumber, final int linesAdded, final int linesRemoved) {
+	public synchronized void updateRevision(final String revisionNumber, final int linesAdded, final int linesRemoved) {
 		final RevisionData data = findRevision(revisionNumber);
 		if (data != null) {
 			data.setLines(linesAdded, linesRemoved);
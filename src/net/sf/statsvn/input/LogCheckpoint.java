@@ -0,0 +1,382 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * What was read from the svn log in a previous run: the highest revision, the
+ * (@link RecordingLogBuilder.Entry)s and the tags, in log order. Stored next
+ * to the line count cache so that the next run only needs to parse the log
+ * entries above that revision (see (@link SvnLogfileParser)).
+ * </p>
+ *
+ * <p>
+ * Of the log entries whose files were all filtered out, only the oldest date
+ * is kept, as it is where the log begins.
+ * </p>
+ *
+ * <p>
+ * Author, date and comment are shared by all the files of a commit and are
+ * therefore written once per revision; likewise, each path is written once
+ * and the entries refer to it by its index. Binary status is not stored as
+ * it depends on the working copy; it is evaluated again when replaying.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class LogCheckpoint {
+	private static final int MAGIC = 0x53564E43;
+
+	private static final int FORMAT_VERSION = 3;
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final int NO_PATH = -1;
+
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	private static final int FLAG_EXP = 1;
+
+	private static final int FLAG_DEAD = 2;
+
+	private static final int FLAG_ADDED = 4;
+
+	private final String moduleName;
+
+	private final String signature;
+
+	private final boolean descending;
+
+	private int revision = -1;
+
+	private List entries = new ArrayList();
+
+	private Map tagsMap = new HashMap();
+
+	private Map tagsDateMap = new HashMap();
+
+	private Date oldestFilteredDate;
+
+	/**
+	 * Creates an empty checkpoint.
+	 *
+	 * @param moduleName
+	 *            the module the log entries belong to.
+	 * @param signature
+	 *            the settings that influenced the parsing of the log.
+	 * @param descending
+	 *            <tt>true</tt> if the log lists the newest revisions first.
+	 */
+	public LogCheckpoint(final String moduleName, final String signature, final boolean descending) {
+		this.moduleName = moduleName;
+		this.signature = signature;
+		this.descending = descending;
+	}
+
+	/**
+	 * @return the highest revision of the log entries in this checkpoint, or
+	 *         -1.
+	 */
+	public int getRevision() {
+		return revision;
+	}
+
+	/**
+	 * @return <tt>true</tt> if the log lists the newest revisions first.
+	 */
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * @return <tt>true</tt> if this checkpoint was created for the same
+	 *         module and settings.
+	 */
+	public boolean isValidFor(final String module, final String settings) {
+		return moduleName.equals(module) && signature.equals(settings);
+	}
+
+	/**
+	 * Adds the log entries that were read above (@link #getRevision()).
+	 *
+	 * @param newEntries
+	 *            the new (@link RecordingLogBuilder.Entry)s, in log order.
+	 * @param oldestFilteredRevision
+	 *            the oldest new revision whose files were filtered out, or
+	 *            null.
+	 * @param newTagsMap
+	 *            the revision (string) by tag name (string) found in the new
+	 *            log entries.
+	 * @param newTagsDateMap
+	 *            the date (date) by tag name (string) found in the new log
+	 *            entries.
+	 * @param highestRevision
+	 *            the highest revision of the log.
+	 */
+	public void merge(final List newEntries, final RevisionData oldestFilteredRevision, final Map newTagsMap, final Map newTagsDateMap,
+	        final int highestRevision) {
+		final List mergedEntries = new ArrayList(entries.size() + newEntries.size());
+		final Map mergedTagsMap = new HashMap();
+		final Map mergedTagsDateMap = new HashMap();
+		// keep log order, a tag is the first copy found in the log.
+		if (descending) {
+			mergedEntries.addAll(newEntries);
+			mergedEntries.addAll(entries);
+			addTags(mergedTagsMap, mergedTagsDateMap, newTagsMap, newTagsDateMap);
+			addTags(mergedTagsMap, mergedTagsDateMap, tagsMap, tagsDateMap);
+		} else {
+			mergedEntries.addAll(entries);
+			mergedEntries.addAll(newEntries);
+			addTags(mergedTagsMap, mergedTagsDateMap, tagsMap, tagsDateMap);
+			addTags(mergedTagsMap, mergedTagsDateMap, newTagsMap, newTagsDateMap);
+		}
+		entries = mergedEntries;
+		tagsMap = mergedTagsMap;
+		tagsDateMap = mergedTagsDateMap;
+		revision = Math.max(revision, highestRevision);
+		if (oldestFilteredRevision != null && (oldestFilteredDate == null || oldestFilteredDate.after(oldestFilteredRevision.getDate()))) {
+			oldestFilteredDate = oldestFilteredRevision.getDate();
+		}
+	}
+
+	private static void addTags(final Map toTagsMap, final Map toTagsDateMap, final Map fromTagsMap, final Map fromTagsDateMap) {
+		for (final Iterator it = fromTagsMap.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry tag = (Map.Entry) it.next();
+			if (!toTagsMap.containsKey(tag.getKey())) {
+				toTagsMap.put(tag.getKey(), tag.getValue());
+				toTagsDateMap.put(tag.getKey(), fromTagsDateMap.get(tag.getKey()));
+			}
+		}
+	}
+
+	/**
+	 * Sends every log entry to the builder, the way (@link SvnXmlLogFileHandler)
+	 * would have.
+	 *
+	 * @param builder
+	 *            the builder that will process the log information
+	 * @param repositoryFileManager
+	 *            gives the binary status of the files.
+	 */
+	public void replay(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager) {
+		for (final Iterator it = entries.iterator(); it.hasNext();) {
+			final RecordingLogBuilder.Entry entry = (RecordingLogBuilder.Entry) it.next();
+			builder.buildFile(entry.getFilename(), repositoryFileManager.isBinary(entry.getFilename()), entry.isInAttic(), tagsMap, tagsDateMap);
+			builder.buildRevision(entry.getRevisionData());
+		}
+		if (oldestFilteredDate != null) {
+			final RevisionData filtered = new RevisionData();
+			filtered.setDate(oldestFilteredDate);
+			builder.buildFilteredRevision(filtered);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint. If a run was interrupted while replacing it, the
+	 * checkpoint is read from the temporary file it was written to.
+	 *
+	 * @param file
+	 *            the checkpoint file.
+	 * @return the checkpoint, or null if there is none or if it was written
+	 *         in another format.
+	 * @throws IOException
+	 *             errors while reading file.
+	 */
+	public static LogCheckpoint read(final File file) throws IOException {
+		if (file.exists()) {
+			return readFrom(file);
+		}
+		final File tempFile = new File(file.getPath() + TEMP_EXTENSION);
+		if (!tempFile.exists()) {
+			return null;
+		}
+		try {
+			return readFrom(tempFile);
+		} catch (final EOFException e) {
+			// interrupted while it was written
+			return null;
+		}
+	}
+
+	private static LogCheckpoint readFrom(final File file) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			final LogCheckpoint checkpoint = new LogCheckpoint(readString(in), readString(in), in.readBoolean());
+			checkpoint.revision = in.readInt();
+
+			final int commitCount = in.readInt();
+			final String[] revisionNumbers = new String[commitCount];
+			final CommitInfo[] commits = new CommitInfo[commitCount];
+			for (int i = 0; i < commitCount; i++) {
+				revisionNumbers[i] = readString(in);
+				final Date date = readDate(in);
+				final String loginName = readString(in);
+				commits[i] = new CommitInfo(date, loginName, readString(in));
+			}
+
+			final String[] paths = new String[in.readInt()];
+			for (int i = 0; i < paths.length; i++) {
+				paths[i] = readString(in);
+			}
+
+			final int entryCount = in.readInt();
+			checkpoint.entries = new ArrayList(entryCount);
+			for (int i = 0; i < entryCount; i++) {
+				final int commit = in.readInt();
+				final String filename = paths[in.readInt()];
+				final int flags = in.readByte();
+				final RevisionData data = new RevisionData();
+				data.setRevisionNumber(revisionNumbers[commit]);
+				data.setCommit(commits[commit]);
+				data.setStateExp((flags & FLAG_EXP) != 0);
+				data.setStateDead((flags & FLAG_DEAD) != 0);
+				data.setStateAdded((flags & FLAG_ADDED) != 0);
+				final int copyfromPath = in.readInt();
+				data.setCopyfromPath(copyfromPath == NO_PATH ? null : paths[copyfromPath]);
+				data.setCopyfromRevision(readString(in));
+				checkpoint.entries.add(new RecordingLogBuilder.Entry(filename, false, data.isDeletion(), data));
+			}
+			checkpoint.oldestFilteredDate = readDate(in);
+
+			final int tagCount = in.readInt();
+			for (int i = 0; i < tagCount; i++) {
+				final String tag = readString(in);
+				checkpoint.tagsMap.put(tag, readString(in));
+				checkpoint.tagsDateMap.put(tag, readDate(in));
+			}
+			return checkpoint;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes this checkpoint. A temporary file is written first so that an
+	 * interrupted run does not leave a truncated checkpoint behind; it then
+	 * replaces the checkpoint (see (@link XmlCacheFile#replace(File, File))).
+	 *
+	 * @param file
+	 *            the checkpoint file.
+	 * @throws IOException
+	 *             errors while writing file.
+	 */
+	public void write(final File file) throws IOException {
+		final File tempFile = new File(file.getPath() + TEMP_EXTENSION);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, moduleName);
+			writeString(out, signature);
+			out.writeBoolean(descending);
+			out.writeInt(revision);
+
+			final Map commitByRevision = new HashMap();
+			final List commits = new ArrayList();
+			for (final Iterator it = entries.iterator(); it.hasNext();) {
+				final RevisionData data = ((RecordingLogBuilder.Entry) it.next()).getRevisionData();
+				if (!commitByRevision.containsKey(data.getRevisionNumber())) {
+					commitByRevision.put(data.getRevisionNumber(), new Integer(commits.size()));
+					commits.add(data);
+				}
+			}
+			out.writeInt(commits.size());
+			for (final Iterator it = commits.iterator(); it.hasNext();) {
+				final RevisionData data = (RevisionData) it.next();
+				writeString(out, data.getRevisionNumber());
+				writeDate(out, data.getDate());
+				writeString(out, data.getLoginName());
+				writeString(out, data.getComment());
+			}
+
+			final Map pathIndexes = new HashMap();
+			final List paths = new ArrayList();
+			for (final Iterator it = entries.iterator(); it.hasNext();) {
+				final RecordingLogBuilder.Entry entry = (RecordingLogBuilder.Entry) it.next();
+				addPath(pathIndexes, paths, entry.getFilename());
+				addPath(pathIndexes, paths, entry.getRevisionData().getCopyfromPath());
+			}
+			out.writeInt(paths.size());
+			for (final Iterator it = paths.iterator(); it.hasNext();) {
+				writeString(out, (String) it.next());
+			}
+
+			out.writeInt(entries.size());
+			for (final Iterator it = entries.iterator(); it.hasNext();) {
+				final RecordingLogBuilder.Entry entry = (RecordingLogBuilder.Entry) it.next();
+				final RevisionData data = entry.getRevisionData();
+				out.writeInt(((Integer) commitByRevision.get(data.getRevisionNumber())).intValue());
+				out.writeInt(((Integer) pathIndexes.get(entry.getFilename())).intValue());
+				out.writeByte((data.isStateExp() ? FLAG_EXP : 0) | (data.isStateDead() ? FLAG_DEAD : 0) | (data.isStateAdded() ? FLAG_ADDED : 0));
+				out.writeInt(data.getCopyfromPath() == null ? NO_PATH : ((Integer) pathIndexes.get(data.getCopyfromPath())).intValue());
+				writeString(out, data.getCopyfromRevision());
+			}
+			writeDate(out, oldestFilteredDate);
+
+			out.writeInt(tagsMap.size());
+			for (final Iterator it = tagsMap.entrySet().iterator(); it.hasNext();) {
+				final Map.Entry tag = (Map.Entry) it.next();
+				writeString(out, (String) tag.getKey());
+				writeString(out, (String) tag.getValue());
+				writeDate(out, (Date) tagsDateMap.get(tag.getKey()));
+			}
+		} finally {
+			out.close();
+		}
+
+		XmlCacheFile.replace(tempFile, file);
+	}
+
+	private static void addPath(final Map pathIndexes, final List paths, final String path) {
+		if (path != null && !pathIndexes.containsKey(path)) {
+			pathIndexes.put(path, new Integer(paths.size()));
+			paths.add(path);
+		}
+	}
+
+	static void writeString(final DataOutputStream out, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			final byte[] bytes = value.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	static String readString(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	static void writeDate(final DataOutputStream out, final Date date) throws IOException {
+		out.writeLong(date == null ? NO_DATE : date.getTime());
+	}
+
+	static Date readDate(final DataInputStream in) throws IOException {
+		final long time = in.readLong();
+		return time == NO_DATE ? null : new Date(time);
+	}
+}
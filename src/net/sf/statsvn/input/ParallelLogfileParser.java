@@ -0,0 +1,344 @@
+package net.sf.statsvn.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.MappedFileInputStream;
+
+import org.xml.sax.SAXException;
+
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Parses a svn log file on several threads. The file is first scanned for the
+ * byte offsets of its <tt>&lt;logentry</tt> elements and split into chunks of
+ * consecutive log entries. Each chunk is wrapped in the original xml prolog
+ * and a closing <tt>&lt;/log&gt;</tt> and parsed by its own
+ * (@link SvnXmlLogFileHandler) into a recording builder.
+ * </p>
+ *
+ * <p>
+ * The recorded calls are then replayed into the real (@link SvnLogBuilder) in
+ * log order, so the builder receives exactly the same sequence of
+ * <tt>buildFile</tt> / <tt>buildRevision</tt> invocations as with a single
+ * threaded parse.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class ParallelLogfileParser {
+	private static final byte[] LOGENTRY_START = { '<', 'l', 'o', 'g', 'e', 'n', 't', 'r', 'y' };
+
+	private static final byte[] LOG_END = { '<', '/', 'l', 'o', 'g', '>' };
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int SCAN_BUFFER_SIZE = 65536;
+
+	private final SAXParserFactory factory;
+
+	private final RepositoryFileManager repositoryFileManager;
+
+	private final SvnLogBuilder builder;
+
+	private final int numberThreads;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param factory
+	 *            the factory used to create SAX parsers.
+	 * @param repositoryFileManager
+	 *            the repository file manager
+	 * @param builder
+	 *            the builder that will process the log information
+	 * @param numberThreads
+	 *            how many chunks are parsed at the same time
+	 */
+	public ParallelLogfileParser(final SAXParserFactory factory, final RepositoryFileManager repositoryFileManager, final SvnLogBuilder builder,
+	        final int numberThreads) {
+		this.factory = factory;
+		this.repositoryFileManager = repositoryFileManager;
+		this.builder = builder;
+		this.numberThreads = numberThreads;
+	}
+
+	/**
+	 * Parses the given svn log file. Falls back to a single threaded parse if
+	 * no log entries can be located in the file, so that invalid logs are
+	 * reported the usual way.
+	 *
+	 * @param logFile
+	 *            the svn log file
+	 * @throws IOException
+	 *             errors while reading file.
+	 * @throws LogSyntaxException
+	 *             invalid log syntax.
+	 */
+	public void parse(final File logFile) throws IOException, LogSyntaxException {
+		final List offsets = new ArrayList();
+		final long endOffset = scanLogEntries(logFile, offsets);
+		if (offsets.isEmpty() || endOffset < 0) {
+			parseSequentially(logFile);
+			return;
+		}
+
+		final byte[] prolog = readProlog(logFile, ((Long) offsets.get(0)).longValue());
+
+		repositoryFileManager.loadInfo();
+		builder.buildModule(repositoryFileManager.getModuleName());
+		// loaded once here rather than by the first chunk threads to need it
+		repositoryFileManager.getPropgetProcessor().getBinaryFiles();
+
+		final List chunks = createChunks(offsets, endOffset);
+		SvnConfigurationOptions.getTaskLogger().log("parsing " + offsets.size() + " log entries in " + chunks.size() + " chunks on " + numberThreads + " threads");
+
+		final ExecutorService poolService = Executors.newFixedThreadPool(numberThreads);
+		try {
+			final List futures = new ArrayList();
+			for (final Iterator it = chunks.iterator(); it.hasNext();) {
+				final long[] chunk = (long[]) it.next();
+				futures.add(poolService.submit(new ChunkTask(logFile, prolog, chunk[0], chunk[1])));
+			}
+
+			final Map tagsMap = new HashMap();
+			final Map tagsDateMap = new HashMap();
+			for (int i = 0; i < futures.size(); i++) {
+				final ChunkResult result = getResult((Future) futures.get(i));
+				futures.set(i, null);
+				mergeTags(result, tagsMap, tagsDateMap);
+				replay(result, tagsMap, tagsDateMap);
+			}
+		} finally {
+			poolService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Looks for the start of every log entry and for the end of the log.
+	 *
+	 * @param logFile
+	 *            the svn log file
+	 * @param offsets
+	 *            receives the offset (Long) of every log entry
+	 * @return the offset of the closing log element, or -1 if it was not found.
+	 * @throws IOException
+	 *             errors while reading file.
+	 */
+	private long scanLogEntries(final File logFile, final List offsets) throws IOException {
+		long endOffset = -1;
+		final InputStream stream = new MappedFileInputStream(logFile);
+		try {
+			final byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+			long position = 0;
+			int entryMatch = 0;
+			int endMatch = 0;
+			int read;
+			while ((read = stream.read(buffer)) > 0) {
+				for (int i = 0; i < read; i++, position++) {
+					final byte b = buffer[i];
+					entryMatch = nextMatch(LOGENTRY_START, entryMatch, b);
+					if (entryMatch == LOGENTRY_START.length) {
+						offsets.add(new Long(position - LOGENTRY_START.length + 1));
+						entryMatch = 0;
+					}
+					endMatch = nextMatch(LOG_END, endMatch, b);
+					if (endMatch == LOG_END.length) {
+						endOffset = position - LOG_END.length + 1;
+						endMatch = 0;
+					}
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		return endOffset;
+	}
+
+	/**
+	 * Advances a match of the given pattern by one byte. Only valid for
+	 * patterns whose first byte does not re-appear in the pattern, which is
+	 * the case of xml tags.
+	 */
+	private static int nextMatch(final byte[] pattern, final int matched, final byte b) {
+		if (pattern[matched] == b) {
+			return matched + 1;
+		}
+		return pattern[0] == b ? 1 : 0;
+	}
+
+	/**
+	 * Splits the log entries into chunks of similar size.
+	 *
+	 * @return a list of long[2] containing the start and end offsets of each
+	 *         chunk.
+	 */
+	private List createChunks(final List offsets, final long endOffset) {
+		final long firstOffset = ((Long) offsets.get(0)).longValue();
+		final long chunkSize = Math.max(1, (endOffset - firstOffset) / (numberThreads * CHUNKS_PER_THREAD));
+		final List chunks = new ArrayList();
+		long chunkStart = firstOffset;
+		for (int i = 1; i < offsets.size(); i++) {
+			final long offset = ((Long) offsets.get(i)).longValue();
+			if (offset - chunkStart >= chunkSize) {
+				chunks.add(new long[] { chunkStart, offset });
+				chunkStart = offset;
+			}
+		}
+		chunks.add(new long[] { chunkStart, endOffset });
+		return chunks;
+	}
+
+	/**
+	 * Reads everything before the first log entry: the xml declaration and the
+	 * opening log element.
+	 */
+	private byte[] readProlog(final File logFile, final long firstOffset) throws IOException {
+		final byte[] prolog = new byte[(int) firstOffset];
+		final RandomAccessFile file = new RandomAccessFile(logFile, "r");
+		try {
+			file.readFully(prolog);
+		} finally {
+			file.close();
+		}
+		return prolog;
+	}
+
+	private void parseSequentially(final File logFile) throws IOException, LogSyntaxException {
+		final InputStream stream = new MappedFileInputStream(logFile);
+		try {
+			newSAXParser().parse(stream, new SvnXmlLogFileHandler(builder, repositoryFileManager));
+		} catch (final SAXException e) {
+			throw new LogSyntaxException("svn log: " + e.getMessage());
+		} finally {
+			stream.close();
+		}
+	}
+
+	private SAXParser newSAXParser() throws LogSyntaxException {
+		// factories are not guaranteed to be thread safe.
+		synchronized (factory) {
+			try {
+				return factory.newSAXParser();
+			} catch (final ParserConfigurationException e) {
+				throw new LogSyntaxException("svn log: " + e.getMessage());
+			} catch (final SAXException e) {
+				throw new LogSyntaxException("svn log: " + e.getMessage());
+			}
+		}
+	}
+
+	private ChunkResult getResult(final Future future) throws IOException, LogSyntaxException {
+		try {
+			return (ChunkResult) future.get();
+		} catch (final InterruptedException e) {
+			throw new IOException("svn log: interrupted while parsing");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof LogSyntaxException) {
+				throw (LogSyntaxException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new LogSyntaxException("svn log: " + cause);
+		}
+	}
+
+	/**
+	 * A tag keeps the first copy found in the log, as in
+	 * (@link SvnXmlLogFileHandler).
+	 */
+	private void mergeTags(final ChunkResult result, final Map tagsMap, final Map tagsDateMap) {
+		for (final Iterator it = result.tagsMap.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry tag = (Map.Entry) it.next();
+			if (!tagsMap.containsKey(tag.getKey())) {
+				tagsMap.put(tag.getKey(), tag.getValue());
+				tagsDateMap.put(tag.getKey(), result.tagsDateMap.get(tag.getKey()));
+			}
+		}
+	}
+
+	private void replay(final ChunkResult result, final Map tagsMap, final Map tagsDateMap) {
+		for (final Iterator it = result.builder.getEntries().iterator(); it.hasNext();) {
+			final RecordingLogBuilder.Entry entry = (RecordingLogBuilder.Entry) it.next();
+			builder.buildFile(entry.getFilename(), entry.isBinary(), entry.isInAttic(), tagsMap, tagsDateMap);
+			builder.buildRevision(entry.getRevisionData());
+		}
+		if (result.builder.getOldestFilteredRevision() != null) {
+			builder.buildFilteredRevision(result.builder.getOldestFilteredRevision());
+		}
+	}
+
+	private static final class ChunkResult {
+		private final RecordingLogBuilder builder;
+
+		private final Map tagsMap;
+
+		private final Map tagsDateMap;
+
+		private ChunkResult(final RecordingLogBuilder builder, final Map tagsMap, final Map tagsDateMap) {
+			this.builder = builder;
+			this.tagsMap = tagsMap;
+			this.tagsDateMap = tagsDateMap;
+		}
+	}
+
+	/**
+	 * Parses the log entries between two offsets of the log file.
+	 */
+	private final class ChunkTask implements Callable {
+		private final File logFile;
+
+		private final byte[] prolog;
+
+		private final long start;
+
+		private final long end;
+
+		private ChunkTask(final File logFile, final byte[] prolog, final long start, final long end) {
+			this.logFile = logFile;
+			this.prolog = prolog;
+			this.start = start;
+			this.end = end;
+		}
+
+		public Object call() throws Exception {
+			final RecordingLogBuilder recorder = new RecordingLogBuilder(builder);
+			final SvnXmlLogFileHandler handler = new SvnXmlLogFileHandler(recorder, repositoryFileManager, false);
+			final InputStream stream = new SequenceInputStream(new SequenceInputStream(new ByteArrayInputStream(prolog), new MappedFileInputStream(logFile,
+			        start, end)), new ByteArrayInputStream(LOG_END));
+			try {
+				newSAXParser().parse(stream, handler);
+			} catch (final SAXException e) {
+				throw new LogSyntaxException("svn log: " + e.getMessage());
+			} finally {
+				stream.close();
+			}
+			return new ChunkResult(recorder, handler.getTagsMap(), handler.getTagsDateMap());
+		}
+	}
+}
@@ -5,6 +5,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnConfigurationOptions;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -14,7 +15,7 @@ import org.w3c.dom.NodeList;
  * <p>
  * This class receives information from the (@link net.sf.statsvn.input.SvnXmlRepositoriesFileHandler)
  * to build a DOM-based XML structure containing the names of all repositories and associated line counts xml files.
- * It then allows to retrieve the line counts XML file name for a given repository.
+ * It then allows to retrieve the line counts file name for a given repository, and the format of that file.
  * </p>
  * 
  * @author Gunter Mussbacher &lt;gunterm@site.uottawa.ca&gt;
@@ -25,6 +26,8 @@ import org.w3c.dom.NodeList;
 public class RepositoriesBuilder {
 	private static final String FILE_EXTENSION = ".xml";
 
+	private static final String BINARY_FILE_EXTENSION = ".bin";
+
 	private static final String FILE_PREFIX = "cache_";
 
 	private static final String REPOSITORIES = "repositories";
@@ -37,6 +40,8 @@ public class RepositoriesBuilder {
 
 	private static final String REPOSITORY = "repository";
 
+	private static final String FORMAT = "format";
+
 	private Document document = null;
 
 	private Element repositories = null;
@@ -75,10 +80,26 @@ public class RepositoriesBuilder {
 	 *            the filename for the XML line counts file
 	 */
 	public Element buildRepository(final String uuid, final String file) {
+		return buildRepository(uuid, file, null);
+	}
+
+	/**
+	 * Adds a repository to the DOM structure.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param file
+	 *            the filename for the line counts file
+	 * @param format
+	 *            the format of the line counts file, null for the xml format
+	 *            of the files written before formats were recorded.
+	 */
+	public Element buildRepository(final String uuid, final String file, final String format) {
 		final Element repository = document.createElement(REPOSITORY);
 		repository.setAttribute(UUID, uuid);
 		repository.setAttribute(FILE, file);
 		repository.setAttribute(PROJECT, ConfigurationOptions.getProjectName());
+		repository.setAttribute(FORMAT, format == null ? SvnConfigurationOptions.CACHE_FORMAT_XML : format);
 		repositories.appendChild(repository);
 		return repository;
 	}
@@ -110,6 +131,63 @@ public class RepositoriesBuilder {
 	 * @return the file name or "" if an unexpected error occurs          
 	 */
 	public String getFileName(final String uuid) {
+		return getFileName(uuid, SvnConfigurationOptions.CACHE_FORMAT_XML);
+	}
+
+	/**
+	 * Retrieves the file name of the line counts file for a given repository.
+	 * Creates a new file name, in the given format, if the repository is not
+	 * known yet.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param format
+	 *            the format of the line counts file of a new repository
+	 * @return the file name or "" if an unexpected error occurs
+	 */
+	public String getFileName(final String uuid, final String format) {
+		final Element repository = getRepository(uuid, format);
+		return repository == null ? "" : repository.getAttribute(FILE);
+	}
+
+	/**
+	 * Retrieves the format of the line counts file of a given repository, as
+	 * (@link SvnConfigurationOptions#getCacheFormat()). Repositories recorded
+	 * without a format use xml files.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @return the format of the file
+	 */
+	public String getFormat(final String uuid) {
+		final Element repository = getRepository(uuid, SvnConfigurationOptions.CACHE_FORMAT_XML);
+		if (repository == null || repository.getAttribute(FORMAT).length() == 0) {
+			return SvnConfigurationOptions.CACHE_FORMAT_XML;
+		}
+		return repository.getAttribute(FORMAT);
+	}
+
+	/**
+	 * Records that the line counts of a repository are now kept in another
+	 * format, in a file named accordingly.
+	 * 
+	 * @param uuid
+	 *            the uuid of the repository
+	 * @param format
+	 *            the new format
+	 * @return the new file name or "" if an unexpected error occurs
+	 */
+	public String setFormat(final String uuid, final String format) {
+		final Element repository = getRepository(uuid, format);
+		if (repository == null) {
+			return "";
+		}
+		repository.setAttribute(FILE, createFileName(uuid, format));
+		repository.setAttribute(FORMAT, format);
+		return repository.getAttribute(FILE);
+	}
+
+	private Element getRepository(final String uuid, final String format) {
 		if (document == null) {
 			try {
 				buildRoot();
@@ -120,11 +198,18 @@ public class RepositoriesBuilder {
 		if (document != null) {
 			Element repository = findRepository(uuid);
 			if (repository == null) {
-				repository = buildRepository(uuid, FILE_PREFIX + uuid + FILE_EXTENSION);
+				repository = buildRepository(uuid, createFileName(uuid, format), format);
 			}
-			return repository.getAttribute(FILE);
+			return repository;
+		}
+		return null;
+	}
+
+	private static String createFileName(final String uuid, final String format) {
+		if (SvnConfigurationOptions.CACHE_FORMAT_BINARY.equals(format)) {
+			return FILE_PREFIX + uuid + BINARY_FILE_EXTENSION;
 		}
-		return "";
+		return FILE_PREFIX + uuid + FILE_EXTENSION;
 	}
 
 	/**
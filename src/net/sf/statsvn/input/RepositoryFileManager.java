@@ -32,11 +32,13 @@ import net.sf.statcvs.input.NoLineCountException;
 import net.sf.statcvs.util.FileUtils;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.BinaryDiffException;
+import net.sf.statsvn.util.IDiffResultHandler;
 import net.sf.statsvn.util.ISvnDiffProcessor;
 import net.sf.statsvn.util.ISvnInfoProcessor;
 import net.sf.statsvn.util.ISvnProcessor;
 import net.sf.statsvn.util.ISvnPropgetProcessor;
 import net.sf.statsvn.util.ISvnVersionProcessor;
+import net.sf.statsvn.util.PathDictionary;
 
 /**
  * Manages a checked-out repository and provides access to line number counts
@@ -104,6 +106,26 @@ public class RepositoryFileManager {
 		getInfoProcessor().addDirectory(relativePath);
 	}
 
+	/**
+	 * Gives the dictionary holding the paths of the repository, so that a
+	 * path can be referred to by its id.
+	 * 
+	 * @return the path dictionary of the svn info processor.
+	 */
+	public PathDictionary getPathDictionary() {
+		return getInfoProcessor().getPathDictionary();
+	}
+
+	/**
+	 * Gives the id of the root of the working folder, from which relative
+	 * paths are looked up in the path dictionary.
+	 * 
+	 * @return the id of the module in the path dictionary.
+	 */
+	public int getModulePathId() {
+		return getInfoProcessor().getModulePathId();
+	}
+
 	/**
 	 * Returns true if the file exists in the working copy (according to the svn
 	 * metadata, and not file system checks).
@@ -169,6 +191,23 @@ public class RepositoryFileManager {
 		return getDiffProcessor().getLineDiff(newRevNr);
 	}
 
+	/**
+	* Passes the line count differences of each file in a particular revision
+	* to the handler, as soon as the diff of the file was read.
+	* 
+	* @param newRevNr
+	*            new revision number
+	* @param handler
+	*            receives the result of each file
+	* @throws IOException
+	*             problem parsing the stream
+	* @throws BinaryDiffException
+	*             if the error message is due to trying to diff binary files.
+	*/
+	public void getRevisionDiff(final String newRevNr, final IDiffResultHandler handler) throws IOException, BinaryDiffException {
+		getDiffProcessor().getLineDiff(newRevNr, handler);
+	}
+
 	/**
 	 * Returns the lines of code for a repository file. (Currently checked out
 	 * version)
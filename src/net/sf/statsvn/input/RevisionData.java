@@ -24,6 +24,8 @@ package net.sf.statsvn.input;
 
 import java.util.Date;
 
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
 /**
  * Container for all information contained in one SVN revision.
  * 
@@ -34,26 +36,29 @@ import java.util.Date;
  * @version $Id: RevisionData.java 351 2008-03-28 18:46:26Z benoitx $
  */
 public class RevisionData {
-	private String revisionNumber;
+	/** Value of (@link #getRevisionNumberAsInt()) for a non numeric revision. */
+	public static final int NO_REVISION = -1;
+
+	private static final byte STATE_EXP = 1;
 
-	private Date date;
+	private static final byte STATE_DEAD = 2;
 
-	private String loginName;
+	private static final byte STATE_ADDED = 4;
 
-	private boolean stateExp = false;
+	private static final byte HAS_NO_LINES = 8;
 
-	private boolean stateDead = false;
+	private String revisionNumber;
+
+	private int revision = NO_REVISION;
 
-	private boolean stateAdded = false;
+	private CommitInfo commit = CommitInfo.EMPTY;
 
-	private boolean hasNoLines = true;
+	private byte flags = HAS_NO_LINES;
 
 	private int linesAdded;
 
 	private int linesRemoved;
 
-	private String comment = "";
-
 	private String copyfromPath;
 
 	private String copyfromRevision;
@@ -65,7 +70,7 @@ public class RevisionData {
 	 * @return Returns the loginName.
 	 */
 	public String getLoginName() {
-		return loginName;
+		return commit.getLoginName();
 	}
 
 	/**
@@ -73,14 +78,14 @@ public class RevisionData {
 	 *            The loginName to set.
 	 */
 	public void setLoginName(final String authorName) {
-		this.loginName = authorName;
+		commit = commit.withLoginName(authorName);
 	}
 
 	/**
 	 * @return Returns the date.
 	 */
 	public Date getDate() {
-		return date != null ? new Date(date.getTime()) : null;
+		return commit.getDate();
 	}
 
 	/**
@@ -88,11 +93,25 @@ public class RevisionData {
 	 *            The date to set.
 	 */
 	public void setDate(final Date date) {
-		if (date != null) {
-			this.date = new Date(date.getTime());
-		} else {
-			this.date = null;
-		}
+		commit = commit.withDate(date);
+	}
+
+	/**
+	 * @return the author, date and comment of this revision, shared with the
+	 *         other files of the commit.
+	 */
+	public CommitInfo getCommit() {
+		return commit;
+	}
+
+	/**
+	 * Sets author, date and comment at once, sharing the given instance.
+	 * 
+	 * @param commit
+	 *            the commit this revision belongs to.
+	 */
+	public void setCommit(final CommitInfo commit) {
+		this.commit = commit;
 	}
 
 	/**
@@ -115,7 +134,7 @@ public class RevisionData {
 	 * @return true if the revision contains numbers for the added and removed lines
 	 */
 	public boolean hasNoLines() {
-		return hasNoLines;
+		return isSet(HAS_NO_LINES);
 	}
 
 	/**
@@ -129,7 +148,19 @@ public class RevisionData {
 	public void setLines(final int added, final int removed) {
 		this.linesAdded = added;
 		this.linesRemoved = removed;
-		hasNoLines = false;
+		set(HAS_NO_LINES, false);
+	}
+
+	private boolean isSet(final byte flag) {
+		return (flags & flag) != 0;
+	}
+
+	private void set(final byte flag, final boolean value) {
+		if (value) {
+			flags |= flag;
+		} else {
+			flags &= ~flag;
+		}
 	}
 
 	/**
@@ -147,6 +178,43 @@ public class RevisionData {
 	 */
 	public void setRevisionNumber(final String revision) {
 		this.revisionNumber = revision;
+		this.revision = parseRevision(revision);
+	}
+
+	/**
+	 * @return the revision number as an int, or (@link #NO_REVISION) if it is
+	 *         not numeric.
+	 */
+	public int getRevisionNumberAsInt() {
+		return revision;
+	}
+
+	/**
+	 * New in StatSVN: Revisions older than the revision or date the report
+	 * starts at (see (@link SvnConfigurationOptions#getFromRevision())) are
+	 * only built to find the implicit actions on the later ones.
+	 * 
+	 * @return <tt>true</tt> if the revision is older than the first one to
+	 *         report on.
+	 */
+	public boolean isBeforeFirstRequestedRevision() {
+		final int fromRevision = SvnConfigurationOptions.getFromRevision();
+		if (fromRevision > 0 && revision != NO_REVISION && revision < fromRevision) {
+			return true;
+		}
+		final Date fromDate = SvnConfigurationOptions.getFromDate();
+		return fromDate != null && getDate() != null && getDate().before(fromDate);
+	}
+
+	static int parseRevision(final String revisionNumber) {
+		if (revisionNumber == null) {
+			return NO_REVISION;
+		}
+		try {
+			return Integer.parseInt(revisionNumber);
+		} catch (final NumberFormatException e) {
+			return NO_REVISION;
+		}
 	}
 
 	/**
@@ -156,7 +224,7 @@ public class RevisionData {
 	 *            <tt>true</tt> if revision is a deletion.
 	 */
 	public void setStateDead(final boolean isDead) {
-		stateDead = isDead;
+		set(STATE_DEAD, isDead);
 	}
 
 	/**
@@ -169,7 +237,7 @@ public class RevisionData {
 	 *            <tt>true</tt> true if the revision is not a deletion.
 	 */
 	public void setStateExp(final boolean isExposed) {
-		stateExp = isExposed;
+		set(STATE_EXP, isExposed);
 	}
 
 	/**
@@ -180,14 +248,14 @@ public class RevisionData {
 	 * @param isAdded
 	 */
 	public void setStateAdded(final boolean isAdded) {
-		stateAdded = isAdded;
+		set(STATE_ADDED, isAdded);
 	}
 
 	/**
 	 * @return Returns the comment.
 	 */
 	public String getComment() {
-		return comment;
+		return commit.getComment();
 	}
 
 	/**
@@ -195,7 +263,7 @@ public class RevisionData {
 	 *            The comment to set.
 	 */
 	public void setComment(final String comment) {
-		this.comment = comment;
+		commit = commit.withComment(comment);
 	}
 
 	/**
@@ -205,7 +273,7 @@ public class RevisionData {
 	 * 
 	 */
 	public boolean isDeletion() {
-		return stateDead;
+		return isSet(STATE_DEAD);
 	}
 
 	/**
@@ -217,7 +285,7 @@ public class RevisionData {
 	 */
 	public boolean isChange() {
 		// return stateExp && !hasNoLines;
-		return stateExp && !stateAdded;
+		return isSet(STATE_EXP) && !isSet(STATE_ADDED);
 	}
 
 	/**
@@ -230,7 +298,7 @@ public class RevisionData {
 	 */
 	public boolean isCreationOrRestore() {
 		// return stateExp && hasNoLines;
-		return stateExp && stateAdded;
+		return isSet(STATE_EXP) && isSet(STATE_ADDED);
 	}
 
 	/**
@@ -242,7 +310,7 @@ public class RevisionData {
 	 * @return <tt>true</tt> if this is an Exp revisionNumber
 	 */
 	public boolean isStateExp() {
-		return stateExp;
+		return isSet(STATE_EXP);
 	}
 
 	/**
@@ -251,7 +319,16 @@ public class RevisionData {
 	 * @return <tt>true</tt> if this is a dead revisionNumber
 	 */
 	public boolean isStateDead() {
-		return stateDead;
+		return isSet(STATE_DEAD);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the file was added or replaced in this revisionNumber.
+	 * 
+	 * @return <tt>true</tt> if this is an added revisionNumber
+	 */
+	public boolean isStateAdded() {
+		return isSet(STATE_ADDED);
 	}
 
 	/**
@@ -267,10 +344,7 @@ public class RevisionData {
 	 * @return the clone
 	 */
 	public RevisionData createCopy() {
-		final RevisionData copy = new RevisionData(revisionNumber, date, stateExp, stateDead, stateAdded, hasNoLines, linesAdded, linesRemoved);
-		copy.setComment(comment);
-		copy.setLoginName(loginName);
-		return copy;
+		return new RevisionData(revisionNumber, revision, commit, flags, linesAdded, linesRemoved);
 	}
 
 	/**
@@ -278,32 +352,26 @@ public class RevisionData {
 	 * 
 	 * @param revisionNumber
 	 *            the revision number
-	 * @param date
-	 *            the revision date
-	 * @param stateExp
-	 *            if this were the current revision, would the file still be live (not-dead)
-	 * @param stateDead
-	 *            is this a deletion revision
-	 * @param stateAdded
-	 *            is this an addition revision
-	 * @param hasNoLines
-	 *            have we set the line counts?
+	 * @param revision
+	 *            the revision number as an int
+	 * @param commit
+	 *            the author, date and comment of the revision
+	 * @param flags
+	 *            the state of the revision and whether we have set the line counts
 	 * @param linesAdded
 	 *            number of lines added
 	 * @param linesRemoved
 	 *            number of lines removed
 	 */
-	private RevisionData(final String revisionNumber, final Date date, final boolean stateExp, final boolean stateDead, final boolean stateAdded,
-	        final boolean hasNoLines, final int linesAdded, final int linesRemoved) {
+	private RevisionData(final String revisionNumber, final int revision, final CommitInfo commit, final byte flags, final int linesAdded,
+	        final int linesRemoved) {
 		super();
 		this.revisionNumber = revisionNumber;
-		this.date = date;
-		this.stateExp = stateExp;
-		this.stateDead = stateDead;
-		this.hasNoLines = hasNoLines;
+		this.revision = revision;
+		this.commit = commit;
+		this.flags = flags;
 		this.linesAdded = linesAdded;
 		this.linesRemoved = linesRemoved;
-		this.stateAdded = stateAdded;
 	}
 
 	public String getCopyfromPath() {
@@ -0,0 +1,219 @@
+package net.sf.statsvn.input;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * The (@link RevisionData) of a file, in log order. Next to the revisions
+ * themselves, their revision numbers are kept in an <tt>int</tt> array so
+ * that the searches done while building the model (tags, implicit actions,
+ * line counts) do not need to touch every <tt>RevisionData</tt> nor parse
+ * revision strings.
+ * </p>
+ *
+ * <p>
+ * As long as the revisions are in log order, from the newest to the oldest,
+ * revisions are searched by binary search: finding a revision or the place
+ * where an implicit revision must be inserted takes logarithmic time, and
+ * inserting or removing a range only shifts the arrays once.
+ * </p>
+ *
+ * <p>
+ * The revision number of a <tt>RevisionData</tt> must not be changed once it
+ * has been added to the list.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class RevisionList extends AbstractList implements RandomAccess {
+	private static final int INITIAL_CAPACITY = 4;
+
+	private RevisionData[] elements = new RevisionData[INITIAL_CAPACITY];
+
+	private int[] revisions = new int[INITIAL_CAPACITY];
+
+	private int size;
+
+	private boolean inLogOrder = true;
+
+	public Object get(final int index) {
+		checkIndex(index);
+		return elements[index];
+	}
+
+	/**
+	 * @param index
+	 *            the position of the revision in the list.
+	 * @return the revision number, as given by
+	 *         (@link RevisionData#getRevisionNumberAsInt()), of the revision at
+	 *         that position.
+	 */
+	public int getRevision(final int index) {
+		checkIndex(index);
+		return revisions[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Object set(final int index, final Object element) {
+		checkIndex(index);
+		final RevisionData data = (RevisionData) element;
+		final RevisionData previous = elements[index];
+		elements[index] = data;
+		revisions[index] = data.getRevisionNumberAsInt();
+		inLogOrder = inLogOrder && isInLogOrderAt(index);
+		return previous;
+	}
+
+	public void add(final int index, final Object element) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		final RevisionData data = (RevisionData) element;
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		System.arraycopy(revisions, index, revisions, index + 1, size - index);
+		elements[index] = data;
+		revisions[index] = data.getRevisionNumberAsInt();
+		size++;
+		inLogOrder = inLogOrder && isInLogOrderAt(index);
+		modCount++;
+	}
+
+	/**
+	 * @return <tt>true</tt> if the revision numbers are known to be in log
+	 *         order: all valid and never increasing.
+	 */
+	public boolean isInLogOrder() {
+		return inLogOrder;
+	}
+
+	private boolean isInLogOrderAt(final int index) {
+		final int revision = revisions[index];
+		return revision != RevisionData.NO_REVISION && (index == 0 || revisions[index - 1] >= revision)
+		        && (index == size - 1 || revision >= revisions[index + 1]);
+	}
+
+	/**
+	 * @param revision
+	 *            a revision number.
+	 * @return the position of the first revision with this number, or -1 if
+	 *         there is none.
+	 */
+	public int indexOfRevision(final int revision) {
+		if (revision == RevisionData.NO_REVISION) {
+			return -1;
+		}
+		if (inLogOrder) {
+			final int index = indexOfNotNewer(revision, 0);
+			return index < size && revisions[index] == revision ? index : -1;
+		}
+		for (int i = 0; i < size; i++) {
+			if (revisions[i] == revision) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds where a revision belongs in the list. Only valid while the list
+	 * is (@link #isInLogOrder()).
+	 *
+	 * @param revision
+	 *            a revision number.
+	 * @param fromIndex
+	 *            the position to start searching from.
+	 * @return the position of the first revision at or after
+	 *         <code>fromIndex</code> which is not newer than
+	 *         <code>revision</code>, or the size of the list if there is
+	 *         none.
+	 */
+	public int indexOfNotNewer(final int revision, final int fromIndex) {
+		int low = fromIndex;
+		int high = size;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (revisions[middle] > revision) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	public Object remove(final int index) {
+		checkIndex(index);
+		final RevisionData previous = elements[index];
+		removeRange(index, index + 1);
+		return previous;
+	}
+
+	/**
+	 * Removes the revisions in one pass instead of shifting the list once per
+	 * removed revision.
+	 */
+	public boolean removeAll(final Collection c) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (!c.contains(elements[i])) {
+				elements[kept] = elements[i];
+				revisions[kept] = revisions[i];
+				kept++;
+			}
+		}
+		if (kept == size) {
+			return false;
+		}
+		for (int i = kept; i < size; i++) {
+			elements[i] = null;
+		}
+		size = kept;
+		if (size == 0) {
+			inLogOrder = true;
+		}
+		modCount++;
+		return true;
+	}
+
+	public void clear() {
+		removeRange(0, size);
+	}
+
+	protected void removeRange(final int fromIndex, final int toIndex) {
+		System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+		System.arraycopy(revisions, toIndex, revisions, fromIndex, size - toIndex);
+		final int newSize = size - (toIndex - fromIndex);
+		for (int i = newSize; i < size; i++) {
+			elements[i] = null;
+		}
+		size = newSize;
+		if (size == 0) {
+			inLogOrder = true;
+		}
+		modCount++;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > elements.length) {
+			final int newCapacity = Math.max(capacity, elements.length * 2);
+			final RevisionData[] newElements = new RevisionData[newCapacity];
+			final int[] newRevisions = new int[newCapacity];
+			System.arraycopy(elements, 0, newElements, 0, size);
+			System.arraycopy(revisions, 0, newRevisions, 0, size);
+			elements = newElements;
+			revisions = newRevisions;
+		}
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -46,7 +46,7 @@ import java.util.Map;
  * @author Tammo van Lessen
  * @version $Id: SvnLogBuilder.java 351 2008-03-28 18:46:26Z benoitx $
  */
-public interface SvnLogBuilder {
+public interface SvnLogBuilder extends SvnLogEntryBuilder {
 
 	/**
 	 * Starts building a module.
@@ -83,6 +83,16 @@ public interface SvnLogBuilder {
 	 */
 	void buildRevision(RevisionData data);
 
+	/**
+	 * New in StatSVN: Notes a log entry whose files were not built because
+	 * they do not match the include and exclude patterns. The log still
+	 * begins at the date of this revision.
+	 * 
+	 * @param data
+	 *            the revision of the log entry
+	 */
+	void buildFilteredRevision(RevisionData data);
+
 	/**
 	 * Adds a file to the attic. This method should only be called if our first
 	 * invocation to (@link #buildFile(String, boolean, boolean, Map)) was given
@@ -0,0 +1,56 @@
+package net.sf.statsvn.input;
+
+import java.util.Map;
+
+/**
+ * The part of (@link SvnLogBuilder) that (@link SvnXmlLogFileHandler) calls
+ * while reading the log entries. A builder that only records the log entries
+ * of a chunk of the log, such as (@link RecordingLogBuilder), needs nothing
+ * more.
+ *
+ * @version $Id$
+ */
+public interface SvnLogEntryBuilder {
+	/**
+	 * Starts building a module.
+	 *
+	 * @param moduleName
+	 *            the name of the module
+	 */
+	void buildModule(String moduleName);
+
+	/**
+	 * Starts building a new file.
+	 *
+	 * @see SvnLogBuilder#buildFile(String, boolean, boolean, Map, Map)
+	 */
+	void buildFile(String filename, boolean isBinary, boolean isInAttic, Map revBySymnames, final Map dateBySymnames);
+
+	/**
+	 * Adds a revision to the last file that was built.
+	 *
+	 * @see SvnLogBuilder#buildRevision(RevisionData)
+	 */
+	void buildRevision(RevisionData data);
+
+	/**
+	 * Notes a log entry whose files were not built.
+	 *
+	 * @see SvnLogBuilder#buildFilteredRevision(RevisionData)
+	 */
+	void buildFilteredRevision(RevisionData data);
+
+	/**
+	 * Matches a filename against the include and exclude patterns.
+	 *
+	 * @see SvnLogBuilder#matchesPatterns(String)
+	 */
+	boolean matchesPatterns(final String filename);
+
+	/**
+	 * Matches a tag against the tag patterns.
+	 *
+	 * @see SvnLogBuilder#matchesTagPatterns(String)
+	 */
+	boolean matchesTagPatterns(final String tag);
+}
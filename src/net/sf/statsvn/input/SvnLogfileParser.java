@@ -23,6 +23,7 @@
 
 package net.sf.statsvn.input;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -36,24 +37,33 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.BinaryDiffException;
+import net.sf.statsvn.util.DiffResult;
 import net.sf.statsvn.util.FilenameComparator;
-import net.sf.statsvn.util.SvnDiffUtils;
+import net.sf.statsvn.util.IDiffResultHandler;
+import net.sf.statsvn.util.MappedFileInputStream;
 import net.sf.statsvn.util.XMLUtil;
 
 import org.xml.sax.SAXException;
 
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
 import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
 import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
 import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicBoolean;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicInteger;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Parses a Subversion logfile and does post-parse processing. A {@link Builder}
@@ -65,20 +75,36 @@ import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
  * @version $Id: SvnLogfileParser.java 368 2008-06-25 21:23:46Z benoitx $
  */
 public class SvnLogfileParser {
-    private static final int INTERMEDIARY_SAVE_INTERVAL_MS = 120000;
+    private static final int PROGRESS_INTERVAL_MS = 120000;
+
+    private static final long JOURNAL_COMPACTION_SIZE = 4 * 1024 * 1024;
+
+    private static final long JOURNAL_COMPACTION_INTERVAL_MS = 900000;
 
     private static final String REPOSITORIES_XML = "repositories.xml";
 
+    private static final String CACHE_PREFIX = "cache_";
+
+    private static final String CHECKPOINT_EXTENSION = ".checkpoint";
+
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    private static final String LOCK_EXTENSION = ".lock";
+
     private final SvnLogBuilder builder;
 
     private final InputStream logFile;
 
+    private final File logFileLocation;
+
     private final RepositoryFileManager repositoryFileManager;
 
     private CacheBuilder cacheBuilder;
 
     private HashSet revsForNewDiff = null;
 
+    private final Set implicitDirectories = new HashSet();
+
     /**
      * Default Constructor
      * 
@@ -91,6 +117,26 @@ public class SvnLogfileParser {
      */
     public SvnLogfileParser(final RepositoryFileManager repositoryFileManager, final InputStream logFile, final SvnLogBuilder builder) {
         this.logFile = logFile;
+        this.logFileLocation = null;
+        this.builder = builder;
+        this.repositoryFileManager = repositoryFileManager;
+    }
+
+    /**
+     * Constructor reading the SVN logfile from disk. Unlike a stream, a file
+     * can be split and parsed on several threads (see
+     * (@link SvnConfigurationOptions#getNumberParseThreads())).
+     * 
+     * @param repositoryFileManager
+     *            the repository file manager
+     * @param logFile
+     *            the SVN logfile
+     * @param builder
+     *            the builder that will process the log information
+     */
+    public SvnLogfileParser(final RepositoryFileManager repositoryFileManager, final File logFile, final SvnLogBuilder builder) {
+        this.logFile = null;
+        this.logFileLocation = logFile;
         this.builder = builder;
         this.repositoryFileManager = repositoryFileManager;
     }
@@ -110,15 +156,60 @@ public class SvnLogfileParser {
         long startTime = System.currentTimeMillis();
         final String xmlFile = SvnConfigurationOptions.getCacheDir() + REPOSITORIES_XML;
 
-        final RepositoriesBuilder repositoriesBuilder = readAndParseXmlFile(factory, xmlFile);
-        cacheFileName = SvnConfigurationOptions.getCacheDir() + repositoriesBuilder.getFileName(repositoryFileManager.getRepositoryUuid());
-        XMLUtil.writeXmlFile(repositoriesBuilder.getDocument(), xmlFile);
-        SvnConfigurationOptions.getTaskLogger().log("parsing repositories finished in " + (System.currentTimeMillis() - startTime) + " ms.");
-        startTime = System.currentTimeMillis();
+        final String uuid = repositoryFileManager.getRepositoryUuid();
+        cacheDir = new File(xmlFile).getAbsoluteFile().getParentFile();
+        cachePrefix = CACHE_PREFIX + uuid + ".";
+        cacheFactory = factory;
+        cacheLockFile = new File(SvnConfigurationOptions.getCacheDir() + CACHE_PREFIX + uuid + LOCK_EXTENSION);
+
+        // other StatSVN processes may share the cache directory: the
+        // repositories and the cache are read and written back while locked.
+        final CacheLock repositoriesLock = lock(new File(xmlFile + LOCK_EXTENSION));
+        try {
+            final RepositoriesBuilder repositoriesBuilder = readAndParseXmlFile(factory, xmlFile);
+            cacheFileName = SvnConfigurationOptions.getCacheDir() + repositoriesBuilder.getFileName(uuid, SvnConfigurationOptions.getCacheFormat());
+            final String cachedFormat = repositoriesBuilder.getFormat(uuid);
+            SvnConfigurationOptions.getTaskLogger().log("parsing repositories finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+            startTime = System.currentTimeMillis();
+
+            final CacheLock cacheLock = lock(cacheLockFile);
+            try {
+                cacheBuilder = new CacheBuilder(builder, repositoryFileManager);
+                readCache(factory, cachedFormat, cacheBuilder);
+                final List journals = CacheJournal.findUnused(cacheDir, cachePrefix);
+                final int replayed = replayJournals(journals);
+                SvnConfigurationOptions.getTaskLogger().log("parsing line counts finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+                startTime = System.currentTimeMillis();
+
+                // compact what the journals of interrupted runs hold into the
+                // cache.
+                boolean saved = false;
+                if (!cachedFormat.equals(SvnConfigurationOptions.getCacheFormat())) {
+                    saved = migrateCache(repositoriesBuilder, uuid);
+                }
+                if (replayed > 0 && !saved) {
+                    saved = saveCache();
+                }
+                for (final Iterator it = journals.iterator(); it.hasNext();) {
+                    final CacheJournal journal = (CacheJournal) it.next();
+                    if (saved) {
+                        journal.clear();
+                    } else {
+                        journal.close();
+                    }
+                }
+            } finally {
+                unlock(cacheLock);
+            }
+            XMLUtil.writeXmlFile(repositoriesBuilder.getDocument(), xmlFile);
+        } finally {
+            unlock(repositoriesLock);
+        }
 
-        readCache(factory);
-        SvnConfigurationOptions.getTaskLogger().log("parsing line counts finished in " + (System.currentTimeMillis() - startTime) + " ms.");
-        startTime = System.currentTimeMillis();
+        journal = createJournal();
+        cacheBuilder.setJournal(journal);
+        compactionService = Executors.newSingleThreadExecutor();
+        lastCompaction.set(System.currentTimeMillis());
 
         // update the cache xml file with the latest binary status information
         // from the working copy
@@ -135,8 +226,9 @@ public class SvnLogfileParser {
         }
 
         boolean isFirstDiff = true;
-        calls = 0;
-        groupStart = System.currentTimeMillis();
+        calls.set(0);
+        totalTime.set(0);
+        groupStart.set(System.currentTimeMillis());
         boolean poolUseRequired = false;
 
         if (SvnConfigurationOptions.isLegacyDiff()) {
@@ -204,8 +296,23 @@ public class SvnLogfileParser {
 
         }
         waitForPoolIfRequired(poolService);
+        repositoryFileManager.getDiffProcessor().dispose();
         SvnConfigurationOptions.getTaskLogger().log("parsing svn diff");
-        XMLUtil.writeXmlFile(cacheBuilder.getDocument(), cacheFileName);
+        compactionService.shutdown();
+        try {
+            compactionService.awaitTermination(2, TimeUnit.DAYS);
+        } catch (final InterruptedException e) {
+            SvnConfigurationOptions.getTaskLogger().error(e.toString());
+        }
+        cacheBuilder.setJournal(null);
+        final boolean saved = mergeAndSaveCache(factory);
+        if (journal != null) {
+            if (saved) {
+                journal.clear();
+            } else {
+                journal.close();
+            }
+        }
         SvnConfigurationOptions.getTaskLogger().log("parsing svn diff finished in " + (System.currentTimeMillis() - startTime) + " ms.");
     }
 
@@ -276,13 +383,22 @@ public class SvnLogfileParser {
         // END Calculate the number of required calls...
     }
 
-    private void readCache(final SAXParserFactory factory) throws IOException {
-        cacheBuilder = new CacheBuilder(builder, repositoryFileManager);
+    private void readCache(final SAXParserFactory factory, final String format, final CacheBuilder target) throws IOException {
+        if (SvnConfigurationOptions.CACHE_FORMAT_BINARY.equals(format)) {
+            try {
+                BinaryCacheFile.read(new File(cacheFileName), target);
+            } catch (final FileNotFoundException e) {
+                SvnConfigurationOptions.getTaskLogger().log("Cache: " + e.toString());
+            } catch (final IOException e) {
+                SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+            }
+            return;
+        }
         FileInputStream cacheFile = null;
         try {
             cacheFile = new FileInputStream(cacheFileName);
             final SAXParser parser = factory.newSAXParser();
-            parser.parse(cacheFile, new SvnXmlCacheFileHandler(cacheBuilder));
+            parser.parse(cacheFile, new SvnXmlCacheFileHandler(target));
             cacheFile.close();
         } catch (final ParserConfigurationException e) {
             SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
@@ -299,6 +415,178 @@ public class SvnLogfileParser {
         }
     }
 
+    /**
+     * Reads the line counts that interrupted runs left in the journals of the
+     * cache. Invalid journals are removed from the list and deleted.
+     * 
+     * @return the number of revisions replayed
+     */
+    private int replayJournals(final List journals) {
+        int replayed = 0;
+        for (final Iterator it = journals.iterator(); it.hasNext();) {
+            final CacheJournal journal = (CacheJournal) it.next();
+            try {
+                replayed += journal.replay(cacheBuilder);
+            } catch (final IOException e) {
+                SvnConfigurationOptions.getTaskLogger().error("Cache journal: " + e.toString());
+                journal.clear();
+                it.remove();
+            }
+        }
+        if (replayed > 0) {
+            SvnConfigurationOptions.getTaskLogger().info("Recovered " + replayed + " line counts from the cache journal.");
+        }
+        return replayed;
+    }
+
+    private CacheJournal createJournal() {
+        try {
+            return CacheJournal.create(cacheDir, cachePrefix);
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("Cache journal: " + e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Starts saving the cache in the background once the journal has grown
+     * large, or has not been compacted for a while, so that it stays small
+     * over a long run. The diff threads only check the journal's length.
+     * 
+     * @param now
+     *            the current time
+     */
+    private void compactJournalIfNeeded(final long now) {
+        final CacheJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        final long length = current.length();
+        if (length == 0 || (length < JOURNAL_COMPACTION_SIZE && now - lastCompaction.get() < JOURNAL_COMPACTION_INTERVAL_MS)) {
+            return;
+        }
+        if (compacting.compareAndSet(false, true)) {
+            compactionService.execute(new Runnable() {
+                public void run() {
+                    try {
+                        compactJournal();
+                    } finally {
+                        lastCompaction.set(System.currentTimeMillis());
+                        compacting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Switches the diffs to a new journal, then saves the cache and removes
+     * the old journal. The revisions appended to the old journal were all
+     * added to the cache before the switch, so the saved cache holds them.
+     */
+    private void compactJournal() {
+        final CacheJournal old = journal;
+        final CacheJournal next = createJournal();
+        if (next == null) {
+            return;
+        }
+        journal = next;
+        cacheBuilder.setJournal(next);
+        boolean saved = false;
+        try {
+            saved = mergeAndSaveCache(cacheFactory);
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+        }
+        if (saved) {
+            old.clear();
+        } else {
+            old.close();
+        }
+        SvnConfigurationOptions.getTaskLogger().log("Cache journal compacted.");
+    }
+
+    /**
+     * Saves the line counts cache, after merging what other processes saved
+     * in it since it was read.
+     * 
+     * @return false if the cache could not be written
+     */
+    private boolean mergeAndSaveCache(final SAXParserFactory factory) throws IOException {
+        final CacheLock cacheLock = lock(cacheLockFile);
+        try {
+            final CacheBuilder savedCache = new CacheBuilder(null, repositoryFileManager);
+            readCache(factory, SvnConfigurationOptions.getCacheFormat(), savedCache);
+            cacheBuilder.merge(savedCache);
+            return saveCache();
+        } finally {
+            unlock(cacheLock);
+        }
+    }
+
+    /**
+     * Locks a file shared with other processes; the error is logged if the
+     * file cannot be locked, and the work done without it.
+     * 
+     * @return the lock, or null
+     */
+    private CacheLock lock(final File file) {
+        try {
+            return CacheLock.acquire(file);
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("Cache: unable to lock " + file + ": " + e.toString());
+            return null;
+        }
+    }
+
+    private void unlock(final CacheLock lock) {
+        if (lock != null) {
+            lock.release();
+        }
+    }
+
+    /**
+     * Switches the cache of the repository to the configured format: the
+     * cache that was just read is saved in the new format right away, and the
+     * old file is removed.
+     * 
+     * @return true if the cache was saved
+     */
+    private boolean migrateCache(final RepositoriesBuilder repositoriesBuilder, final String uuid) {
+        final File oldCacheFile = new File(cacheFileName);
+        cacheFileName = SvnConfigurationOptions.getCacheDir() + repositoriesBuilder.setFormat(uuid, SvnConfigurationOptions.getCacheFormat());
+        if (oldCacheFile.exists()) {
+            SvnConfigurationOptions.getTaskLogger().info("Migrating the line counts cache to the " + SvnConfigurationOptions.getCacheFormat() + " format.");
+            if (!saveCache()) {
+                return false;
+            }
+            if (!oldCacheFile.equals(new File(cacheFileName))) {
+                oldCacheFile.delete();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Saves the line counts cache in the configured format.
+     * 
+     * @return false if the cache could not be written
+     */
+    private boolean saveCache() {
+        try {
+            if (SvnConfigurationOptions.CACHE_FORMAT_BINARY.equals(SvnConfigurationOptions.getCacheFormat())) {
+                BinaryCacheFile.write(cacheBuilder, new File(cacheFileName));
+            } else {
+                XmlCacheFile.write(cacheBuilder, new File(cacheFileName));
+            }
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+            return false;
+        }
+        return true;
+    }
+
     private RepositoriesBuilder readAndParseXmlFile(final SAXParserFactory factory, final String xmlFile) throws IOException {
         final RepositoriesBuilder repositoriesBuilder = new RepositoriesBuilder();
         FileInputStream repositoriesFile = null;
@@ -334,17 +622,76 @@ public class SvnLogfileParser {
      */
     public void parse() throws LogSyntaxException, IOException {
 
-        final SAXParserFactory factory = parseSvnLog();
+        final ModelSnapshot snapshot = createModelSnapshot();
+        SAXParserFactory factory;
+        if (snapshot != null && restoreModelSnapshot(snapshot)) {
+            factory = SAXParserFactory.newInstance();
+        } else {
+            factory = parseSvnLog();
+
+            verifyImplicitActions();
 
-        verifyImplicitActions();
+            // must be after verifyImplicitActions();
+            removeDirectories();
 
-        // must be after verifyImplicitActions();
-        removeDirectories();
+            if (snapshot != null) {
+                writeModelSnapshot(snapshot);
+            }
+        }
 
         handleLineCounts(factory);
 
     }
 
+    /**
+     * @return the snapshot of the model for this log file and these settings,
+     *         or null if snapshots are not enabled.
+     */
+    private ModelSnapshot createModelSnapshot() throws LogSyntaxException, IOException {
+        if (!SvnConfigurationOptions.isModelSnapshot() || logFileLocation == null || !(builder instanceof Builder)) {
+            return null;
+        }
+        repositoryFileManager.loadInfo();
+        // the working copy revision stands for the binary status and the
+        // directories of the working copy.
+        final String signature = repositoryFileManager.getModuleName() + "|" + repositoryFileManager.getRootRevisionNumber() + "|"
+                + getFilterSignature() + "|" + SvnConfigurationOptions.getTagsDirectory() + "|" + ConfigurationOptions.getSymbolicNamesPattern();
+        final File file = new File(SvnConfigurationOptions.getCacheDir() + CACHE_PREFIX + repositoryFileManager.getRepositoryUuid() + SNAPSHOT_EXTENSION);
+        return new ModelSnapshot(file, ModelSnapshot.hash(logFileLocation), signature);
+    }
+
+    /**
+     * @return the settings that decide which log entries and paths are built.
+     */
+    private static String getFilterSignature() {
+        final Date fromDate = SvnConfigurationOptions.getFromDate();
+        return ConfigurationOptions.getIncludePattern() + "|" + ConfigurationOptions.getExcludePattern() + "|" + SvnConfigurationOptions.getFromRevision()
+                + "|" + (fromDate != null ? String.valueOf(fromDate.getTime()) : "");
+    }
+
+    private boolean restoreModelSnapshot(final ModelSnapshot snapshot) {
+        final long startTime = System.currentTimeMillis();
+        try {
+            if (snapshot.restore((Builder) builder, repositoryFileManager)) {
+                SvnConfigurationOptions.getTaskLogger().log("reading model snapshot finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+                return true;
+            }
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("could not read model snapshot: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private void writeModelSnapshot(final ModelSnapshot snapshot) {
+        try {
+            snapshot.write((Builder) builder, implicitDirectories);
+        } catch (final IOException e) {
+            SvnConfigurationOptions.getTaskLogger().error("could not write model snapshot: " + e.getMessage());
+        } catch (final NumberFormatException e) {
+            SvnConfigurationOptions.getTaskLogger().error("could not write model snapshot: " + e.getMessage());
+        }
+    }
+
     /**
      * The svn log can contain deletions of directories which imply that all of
      * its contents have been deleted.
@@ -375,42 +722,30 @@ public class SvnLogfileParser {
         // name.
         Collections.sort(files, new FilenameComparator());
 
-        // for each file
-        for (int i = 0; i < files.size(); i++) {
-            final String parent = files.get(i).toString();
-            final FileBuilder parentBuilder = (FileBuilder) builder.getFileBuilders().get(parent);
-            // check to see if there are files that indicate that parent is a
-            // folder.
-            for (int j = i + 1; j < files.size() && files.get(j).toString().indexOf(parent + "/") == 0; j++) {
-                // we might not know that it was a folder.
-                repositoryFileManager.addDirectory(parent);
-
-                final String child = files.get(j).toString();
-                final FileBuilder childBuilder = (FileBuilder) builder.getFileBuilders().get(child);
-                // for all revisions in the the parent folder
-                for (final Iterator iter = parentBuilder.getRevisions().iterator(); iter.hasNext();) {
-                    final RevisionData parentData = (RevisionData) iter.next();
-                    int parentRevision;
-                    try {
-                        parentRevision = Integer.parseInt(parentData.getRevisionNumber());
-                    } catch (final Exception e) {
-                        continue;
-                    }
-
-                    // ignore modifications to folders
-                    if (parentData.isCreationOrRestore() || parentData.isDeletion()) {
-                        int k;
-
-                        // check to see if the parent revision is an implicit
-                        // action acting on the child.
-                        k = detectActionOnChildGivenActionOnParent(childBuilder, parentRevision);
+        // index the tree once: the descendants of files[i] are files[i+1]
+        // up to files[descendantsEnd[i]-1].
+        final int[] descendantsEnd = findDescendants(files);
+        final FileBuilder[] sortedBuilders = new FileBuilder[files.size()];
+        for (int i = 0; i < sortedBuilders.length; i++) {
+            sortedBuilders[i] = (FileBuilder) builder.getFileBuilders().get(files.get(i));
+        }
+        final boolean[] folders = new boolean[files.size()];
+
+        // implicit actions only flow from a folder to its descendants, so
+        // disjoint subtrees can be verified on their own.
+        final int numberThreads = SvnConfigurationOptions.getNumberParseThreads();
+        if (numberThreads > 1) {
+            final List subtrees = splitIntoSubtrees(descendantsEnd, sortedBuilders, folders, implicitActions, numberThreads);
+            verifySubtrees(subtrees, descendantsEnd, sortedBuilders, folders, implicitActions, numberThreads);
+        } else {
+            verifySubtree(0, files.size(), descendantsEnd, sortedBuilders, folders, implicitActions);
+        }
 
-                        // we found something to insert
-                        if (k < childBuilder.getRevisions().size()) {
-                            createImplicitAction(implicitActions, child, childBuilder, parentData, k);
-                        }
-                    }
-                }
+        for (int i = 0; i < folders.length; i++) {
+            if (folders[i]) {
+                // we might not know that it was a folder.
+                repositoryFileManager.addDirectory(files.get(i).toString());
+                implicitDirectories.add(files.get(i));
             }
         }
 
@@ -431,64 +766,220 @@ public class SvnLogfileParser {
         // IA ID IA ID M A -> ID M A
         // IA ID A D M A -> ID A D M A
         removePotentialInconsistencies(implicitActions, fileBuilders);
+        removeRevisionsBeforeFirstRequested(fileBuilders);
         SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions finished in " + (System.currentTimeMillis() - startTime) + " ms.");
     }
 
-    private void createImplicitAction(final HashSet implicitActions, final String child, final FileBuilder childBuilder, final RevisionData parentData,
-            final int k) {
-        // we want to memorize this implicit action.
-        final RevisionData implicit = parentData.createCopy();
-        implicitActions.add(implicit);
+    /**
+     * Removes the revisions older than the revision or date to start at, and
+     * the files left without revisions. They were only built so that the
+     * actions of their folders act on the later revisions as they do on the
+     * whole log.
+     */
+    private void removeRevisionsBeforeFirstRequested(final Collection fileBuilders) {
+        if (SvnConfigurationOptions.getFromRevision() <= 0 && SvnConfigurationOptions.getFromDate() == null) {
+            return;
+        }
+        for (final Iterator it = fileBuilders.iterator(); it.hasNext();) {
+            final FileBuilder fileBuilder = (FileBuilder) it.next();
+            fileBuilder.removeRevisionsBeforeFirstRequested();
+            if (!fileBuilder.existRevision()) {
+                it.remove();
+            }
+        }
+    }
 
-        // avoid concurrent modification errors.
-        final List toMove = new ArrayList();
-        for (final Iterator it = childBuilder.getRevisions().subList(k, childBuilder.getRevisions().size()).iterator(); it.hasNext();) {
-            final RevisionData revToMove = (RevisionData) it.next();
-            // if
-            // (!revToMove.getRevisionNumber().equals(implicit.getRevisionNumber()))
-            // {
-            toMove.add(revToMove);
-            // }
+    /**
+     * Splits the sorted files into independent subtrees, starting from the
+     * top level ones, until none of them holds more than its share of the
+     * files. The root of a subtree which is split is verified first, as its
+     * actions act on all the subtrees below it.
+     * 
+     * @return the subtrees, as <code>int[] { from, to }</code> ranges of
+     *         sorted files.
+     */
+    private List splitIntoSubtrees(final int[] descendantsEnd, final FileBuilder[] sortedBuilders, final boolean[] folders, final Set implicitActions,
+            final int numberThreads) {
+        final List subtrees = new ArrayList();
+        addSubtrees(subtrees, descendantsEnd, 0, sortedBuilders.length);
+        final int share = Math.max(sortedBuilders.length / numberThreads, 1);
+        while (true) {
+            int largest = -1;
+            int largestSize = share;
+            for (int s = 0; s < subtrees.size(); s++) {
+                final int[] subtree = (int[]) subtrees.get(s);
+                if (subtree[1] - subtree[0] > largestSize) {
+                    largest = s;
+                    largestSize = subtree[1] - subtree[0];
+                }
+            }
+            if (largest < 0) {
+                return subtrees;
+            }
+            final int[] subtree = (int[]) subtrees.remove(largest);
+            verifyFolder(subtree[0], descendantsEnd, sortedBuilders, folders, implicitActions);
+            addSubtrees(subtrees, descendantsEnd, subtree[0] + 1, subtree[1]);
         }
+    }
 
-        // remove the revisions to be moved.
-        childBuilder.getRevisions().removeAll(toMove);
+    private static void addSubtrees(final List subtrees, final int[] descendantsEnd, final int from, final int to) {
+        for (int i = from; i < to; i = descendantsEnd[i]) {
+            subtrees.add(new int[] { i, descendantsEnd[i] });
+        }
+    }
 
-        // don't call addRevision directly. buildRevision
-        // does more.
-        builder.buildFile(child, false, false, new HashMap(), new HashMap());
+    private void verifySubtrees(final List subtrees, final int[] descendantsEnd, final FileBuilder[] sortedBuilders, final boolean[] folders,
+            final Set implicitActions, final int numberThreads) {
+        SvnConfigurationOptions.getTaskLogger().log("verifying " + subtrees.size() + " subtrees on " + numberThreads + " threads");
+        final ExecutorService poolService = Executors.newFixedThreadPool(numberThreads);
+        try {
+            final List futures = new ArrayList();
+            for (final Iterator it = subtrees.iterator(); it.hasNext();) {
+                final int[] subtree = (int[]) it.next();
+                futures.add(poolService.submit(new Callable() {
+                    public Object call() {
+                        final Set subtreeActions = new HashSet();
+                        verifySubtree(subtree[0], subtree[1], descendantsEnd, sortedBuilders, folders, subtreeActions);
+                        return subtreeActions;
+                    }
+                }));
+            }
+            for (final Iterator it = futures.iterator(); it.hasNext();) {
+                implicitActions.addAll((Set) getSubtreeResult((Future) it.next()));
+            }
+        } finally {
+            poolService.shutdownNow();
+        }
+    }
 
-        // only add the implicit if the last one for the
-        // file is NOT a deletion!
-        // if (!toMove.isEmpty() && !((RevisionData)
-        // toMove.get(0)).isDeletion()) {
-        builder.buildRevision(implicit);
-        // }
+    private static Object getSubtreeResult(final Future future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException("interrupted while verifying implicit actions");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("verifying implicit actions: " + cause);
+        }
+    }
 
-        // copy back the revisions we removed.
-        for (final Iterator it = toMove.iterator(); it.hasNext();) {
-            builder.buildRevision((RevisionData) it.next());
+    private void verifySubtree(final int from, final int to, final int[] descendantsEnd, final FileBuilder[] sortedBuilders, final boolean[] folders,
+            final Set implicitActions) {
+        for (int i = from; i < to; i++) {
+            verifyFolder(i, descendantsEnd, sortedBuilders, folders, implicitActions);
         }
     }
 
-    private int detectActionOnChildGivenActionOnParent(final FileBuilder childBuilder, final int parentRevision) {
-        int k;
-        for (k = 0; k < childBuilder.getRevisions().size(); k++) {
-            final RevisionData childData = (RevisionData) childBuilder.getRevisions().get(k);
-            final int childRevision = Integer.parseInt(childData.getRevisionNumber());
+    /**
+     * Copies the additions, replacements and deletions of a folder to its
+     * descendants. Does nothing if the file at <code>index</code> has no
+     * descendants.
+     */
+    private void verifyFolder(final int index, final int[] descendantsEnd, final FileBuilder[] sortedBuilders, final boolean[] folders,
+            final Set implicitActions) {
+        // check to see if there are files that indicate that parent is a
+        // folder.
+        if (descendantsEnd[index] == index + 1) {
+            return;
+        }
+        folders[index] = true;
+
+        // ignore modifications to folders. the revisions of the parent
+        // can't change while we go through its descendants.
+        final List parentActions = getDirectoryActions(sortedBuilders[index]);
+        if (parentActions.isEmpty()) {
+            return;
+        }
+
+        for (int j = index + 1; j < descendantsEnd[index]; j++) {
+            final FileBuilder childBuilder = sortedBuilders[j];
+
+            // both lists are in log order, so merge them in one sweep:
+            // the position found for an action is where the search for
+            // an older one starts.
+            int k = 0;
+            int previousRevision = Integer.MAX_VALUE;
+            for (final Iterator iter = parentActions.iterator(); iter.hasNext();) {
+                final RevisionData parentData = (RevisionData) iter.next();
+                final int parentRevision = parentData.getRevisionNumberAsInt();
+                if (parentRevision > previousRevision) {
+                    k = 0;
+                }
+                previousRevision = parentRevision;
 
-            // we don't want to add duplicate entries for the
-            // same revision
-            if (parentRevision == childRevision) {
-                k = childBuilder.getRevisions().size();
-                break;
+                // check to see if the parent revision is an implicit
+                // action acting on the child.
+                k = childBuilder.findRevisionPosition(parentRevision, k);
+
+                // we found something to insert, unless the child already
+                // has an entry for the same revision.
+                if (k < childBuilder.getRevisions().size() && childBuilder.getRevisionNumberAt(k) != parentRevision) {
+                    createImplicitAction(implicitActions, childBuilder, parentData, k);
+                }
             }
+        }
+    }
 
-            if (parentRevision > childRevision) {
-                break; // we must insert it here!
+    private void createImplicitAction(final Set implicitActions, final FileBuilder childBuilder, final RevisionData parentData, final int k) {
+        // we want to memorize this implicit action.
+        final RevisionData implicit = parentData.createCopy();
+        implicitActions.add(implicit);
+
+        // insert it in front of the older revisions of the child. its date is
+        // the one of the parent revision, already taken into account for the
+        // begin of the log.
+        childBuilder.insertRevisionData(k, implicit);
+    }
+
+    /**
+     * @return the additions, replacements and deletions of a folder, in log
+     *         order.
+     */
+    private List getDirectoryActions(final FileBuilder parentBuilder) {
+        final List actions = new ArrayList();
+        for (final Iterator iter = parentBuilder.getRevisions().iterator(); iter.hasNext();) {
+            final RevisionData parentData = (RevisionData) iter.next();
+            if (parentData.getRevisionNumberAsInt() != RevisionData.NO_REVISION && (parentData.isCreationOrRestore() || parentData.isDeletion())) {
+                actions.add(parentData);
             }
         }
-        return k;
+        return actions;
+    }
+
+    /**
+     * Indexes the folder structure of sorted filenames. Thanks to the
+     * (@link FilenameComparator), the descendants of a folder immediately
+     * follow it, so a single pass with a stack of the enclosing folders tells
+     * where each subtree ends.
+     * 
+     * @param files
+     *            filenames sorted with the (@link FilenameComparator).
+     * @return for each filename, the index following its last descendant.
+     */
+    private static int[] findDescendants(final List files) {
+        final int[] descendantsEnd = new int[files.size()];
+        final int[] enclosing = new int[files.size()];
+        int depth = 0;
+        for (int i = 0; i < files.size(); i++) {
+            final String file = files.get(i).toString();
+            while (depth > 0 && !isDescendant(file, files.get(enclosing[depth - 1]).toString())) {
+                descendantsEnd[enclosing[--depth]] = i;
+            }
+            enclosing[depth++] = i;
+        }
+        while (depth > 0) {
+            descendantsEnd[enclosing[--depth]] = files.size();
+        }
+        return descendantsEnd;
+    }
+
+    private static boolean isDescendant(final String file, final String folder) {
+        return file.length() > folder.length() && file.charAt(folder.length()) == '/' && file.startsWith(folder);
     }
 
     private void removePotentialInconsistencies(final HashSet implicitActions, final Collection fileBuilders) {
@@ -517,12 +1008,7 @@ public class SvnLogfileParser {
                 }
 
                 if (earliestDelete > 0) {
-                    // avoid concurrent modification errors.
-                    final List toRemove = new ArrayList();
-                    for (final Iterator it = filebuilder.getRevisions().subList(0, earliestDelete).iterator(); it.hasNext();) {
-                        toRemove.add(it.next());
-                    }
-                    filebuilder.getRevisions().removeAll(toRemove);
+                    filebuilder.getRevisions().subList(0, earliestDelete).clear();
                 }
             }
         }
@@ -533,7 +1019,7 @@ public class SvnLogfileParser {
             final FileBuilder filebuilder = (FileBuilder) iter.next();
 
             boolean previousIsDelete = false;
-            final List toRemove = new ArrayList();
+            final Set toRemove = new HashSet();
             // for this file, iterate through all revisions and store any
             // deletion revision that follows
             // a deletion.
@@ -601,29 +1087,123 @@ public class SvnLogfileParser {
         SvnConfigurationOptions.getTaskLogger().log("starting to parse...");
 
         final SAXParserFactory factory = SAXParserFactory.newInstance();
+        if (logFileLocation != null && SvnConfigurationOptions.isIncremental()) {
+            parseSvnLogIncrementally(factory);
+        } else if (logFileLocation != null && SvnConfigurationOptions.getNumberParseThreads() > 1) {
+            new ParallelLogfileParser(factory, repositoryFileManager, builder, SvnConfigurationOptions.getNumberParseThreads()).parse(logFileLocation);
+        } else {
+            parseSequentially(factory, new SvnXmlLogFileHandler(builder, repositoryFileManager));
+        }
+
+        SvnConfigurationOptions.getTaskLogger().log("parsing svn log finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+        return factory;
+    }
+
+    private void parseSequentially(final SAXParserFactory factory, final SvnXmlLogFileHandler handler) throws IOException, LogSyntaxException {
+        final InputStream stream = logFile != null ? logFile : new MappedFileInputStream(logFileLocation);
         try {
             final SAXParser parser = factory.newSAXParser();
-            parser.parse(logFile, new SvnXmlLogFileHandler(builder, repositoryFileManager));
+            parser.parse(stream, handler);
+        } catch (final SvnXmlLogFileHandler.LastKnownRevisionReachedException e) {
+            // the rest of the log comes from the checkpoint.
         } catch (final ParserConfigurationException e) {
             throw new LogSyntaxException("svn log: " + e.getMessage());
         } catch (final SAXException e) {
             throw new LogSyntaxException("svn log: " + e.getMessage());
+        } finally {
+            if (stream != logFile) {
+                stream.close();
+            }
         }
+    }
 
-        SvnConfigurationOptions.getTaskLogger().log("parsing svn log finished in " + (System.currentTimeMillis() - startTime) + " ms.");
-        return factory;
+    /**
+     * Only parses the log entries above the revision of the checkpoint left
+     * by the previous run, then hands the log entries of both to the builder
+     * in log order. The checkpoint is updated before any post-parse
+     * processing modifies the revisions.
+     * 
+     * The checkpoint is ignored if it was created for another module, other
+     * tag or filter settings, or if the log does not contain its revision.
+     * 
+     * @param factory
+     *            the factory used to create SAX parsers.
+     * @throws IOException
+     *             errors while reading file.
+     * @throws LogSyntaxException
+     *             invalid log syntax.
+     */
+    private void parseSvnLogIncrementally(final SAXParserFactory factory) throws IOException, LogSyntaxException {
+        repositoryFileManager.loadInfo();
+        final String moduleName = repositoryFileManager.getModuleName();
+        final String signature = getFilterSignature() + "|" + SvnConfigurationOptions.getTagsDirectory() + "|" + ConfigurationOptions.getSymbolicNamesPattern();
+        final File checkpointFile = new File(SvnConfigurationOptions.getCacheDir() + CACHE_PREFIX + repositoryFileManager.getRepositoryUuid()
+                + CHECKPOINT_EXTENSION);
+
+        LogCheckpoint checkpoint = LogCheckpoint.read(checkpointFile);
+        if (checkpoint != null && (!checkpoint.isValidFor(moduleName, signature) || checkpoint.getRevision() < 0)) {
+            SvnConfigurationOptions.getTaskLogger().log("ignoring checkpoint " + checkpointFile + " created with other settings");
+            checkpoint = null;
+        }
+
+        RecordingLogBuilder recorder = new RecordingLogBuilder(builder);
+        SvnXmlLogFileHandler handler = new SvnXmlLogFileHandler(recorder, repositoryFileManager);
+        if (checkpoint != null) {
+            handler.setLastKnownRevision(checkpoint.getRevision(), checkpoint.isDescending());
+        }
+        parseSequentially(factory, handler);
+
+        if (checkpoint != null && !handler.isLastKnownRevisionFound()) {
+            SvnConfigurationOptions.getTaskLogger().log("svn log does not contain revision " + checkpoint.getRevision() + " of the checkpoint, parsing it all");
+            checkpoint = null;
+            recorder = new RecordingLogBuilder(builder);
+            handler = new SvnXmlLogFileHandler(recorder, repositoryFileManager);
+            parseSequentially(factory, handler);
+        }
+
+        if (checkpoint == null) {
+            checkpoint = new LogCheckpoint(moduleName, signature, handler.isDescending());
+        } else {
+            SvnConfigurationOptions.getTaskLogger().log(
+                    "read " + recorder.getEntries().size() + " new file revisions above checkpoint revision " + checkpoint.getRevision());
+        }
+        checkpoint.merge(recorder.getEntries(), recorder.getOldestFilteredRevision(), handler.getTagsMap(), handler.getTagsDateMap(), handler.getHighestRevision());
+        checkpoint.write(checkpointFile);
+
+        builder.buildModule(moduleName);
+        checkpoint.replay(builder, repositoryFileManager);
     }
 
-    private long totalTime = 0;
+    // updated by the svn diff threads
 
-    private long groupStart = 0;
+    private final AtomicLong totalTime = new AtomicLong();
 
-    private int calls = 0;
+    private final AtomicLong groupStart = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
 
     private int requiredDiffCalls = 0;
 
     private String cacheFileName;
 
+    private File cacheLockFile;
+
+    private File cacheDir;
+
+    private String cachePrefix;
+
+    private SAXParserFactory cacheFactory;
+
+    // the journal of the running diffs, switched when it is compacted
+
+    private volatile CacheJournal journal;
+
+    private ExecutorService compactionService;
+
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    private final AtomicLong lastCompaction = new AtomicLong();
+
     protected class DiffTask implements Runnable {
         private String fileName;
         private String newRevision;
@@ -700,26 +1280,25 @@ public class SvnLogfileParser {
                 final long start = System.currentTimeMillis();
                 lineDiff = repositoryFileManager.getLineDiff(oldRevision, newRevision, fileName);
                 end = System.currentTimeMillis();
-                synchronized (cacheBuilder) {
-                    totalTime += (end - start);
-                }
+                totalTime.addAndGet(end - start);
 
                 SvnConfigurationOptions.getTaskLogger().info(
-                        "svn diff " + (++calls) + "/" + requiredDiffCalls + ": " + fileName + ", r" + oldRevision + " to r" + newRevision + ", +" + lineDiff[0]
+                        "svn diff " + calls.incrementAndGet() + "/" + requiredDiffCalls + ": " + fileName + ", r" + oldRevision + " to r" + newRevision + ", +" + lineDiff[0]
                                 + " -" + lineDiff[1] + " (" + (end - start) + " ms.) " + Thread.currentThread().getName());
             } catch (final BinaryDiffException e) {
-                calls++;
+                calls.incrementAndGet();
                 trackBinaryFile();
                 return;
             } catch (final IOException e) {
                 SvnConfigurationOptions.getTaskLogger()
-                        .error("" + (++calls) + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
+                        .error("" + calls.incrementAndGet() + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
                 return;
             }
 
             trackFileDiff(lineDiff);
 
-            performIntermediarySave(end);
+            logProgress(end);
+            compactJournalIfNeeded(end);
         }
 
         protected void trackBinaryFile() {
@@ -737,19 +1316,21 @@ public class SvnLogfileParser {
             }
         }
 
-        protected void performIntermediarySave(long end) {
-            synchronized (cacheBuilder) {
-                if (end - groupStart > INTERMEDIARY_SAVE_INTERVAL_MS) {
-                    final long start = System.currentTimeMillis();
-                    XMLUtil.writeXmlFile(cacheBuilder.getDocument(), cacheFileName);
-                    groupStart = System.currentTimeMillis();
-                    final double estimateLeftInMs = ((double) totalTime / (double) calls * (requiredDiffCalls - calls) / SvnConfigurationOptions
-                            .getNumberSvnDiffThreads());
-                    end = System.currentTimeMillis();
-                    SvnConfigurationOptions.getTaskLogger().info(
-                            System.getProperty("line.separator") + new Date() + " Intermediary save took " + (end - start) + " ms. Estimated completion="
-                                    + new Date(end + (long) estimateLeftInMs) + System.getProperty("line.separator"));
-                }
+        /**
+         * Logs the estimated completion every few minutes. The line counts
+         * are kept in the journal of the cache as they are found, so the
+         * cache itself is only saved once all diffs are done.
+         */
+        protected void logProgress(final long end) {
+            final long previous = groupStart.get();
+            // only one of the threads logs
+            if (end - previous > PROGRESS_INTERVAL_MS && groupStart.compareAndSet(previous, end)) {
+                final int done = calls.get();
+                final double estimateLeftInMs = ((double) totalTime.get() / (double) done * (requiredDiffCalls - done) / SvnConfigurationOptions
+                        .getNumberSvnDiffThreads());
+                SvnConfigurationOptions.getTaskLogger().info(
+                        System.getProperty("line.separator") + new Date() + " Estimated completion=" + new Date(end + (long) estimateLeftInMs)
+                                + System.getProperty("line.separator"));
             }
         }
 
@@ -763,65 +1344,61 @@ public class SvnLogfileParser {
 
     }
 
-    protected class PerRevDiffTask extends DiffTask {
+    protected class PerRevDiffTask extends DiffTask implements IDiffResultHandler {
         private Map fileBuilders;
 
+        private int diffs = 0;
+
         public PerRevDiffTask(final String newRevision, final Map fileBuilders) {
             super(newRevision);
             this.fileBuilders = fileBuilders;
         }
 
         public void run() {
-            int[] lineDiff;
-            Vector results;
             long end = 0L;
             try {
                 // SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName()
                 // + " Starts... now");
                 final long start = System.currentTimeMillis();
-                results = repositoryFileManager.getRevisionDiff(getNewRevision());
+                // each file is tracked as soon as its diff was read
+                repositoryFileManager.getRevisionDiff(getNewRevision(), this);
                 end = System.currentTimeMillis();
-                synchronized (cacheBuilder) {
-                    totalTime += (end - start);
-                }
+                totalTime.addAndGet(end - start);
 
                 SvnConfigurationOptions.getTaskLogger().info(
-                        "svn diff " + (++calls) + "/" + requiredDiffCalls + " on r" + getNewRevision() + " (" + (end - start) + " ms.) "
+                        "svn diff " + calls.incrementAndGet() + "/" + requiredDiffCalls + " on r" + getNewRevision() + " (" + (end - start) + " ms.) "
                                 + Thread.currentThread().getName());
-
-                for (int i = 0; i < results.size(); i++) {
-                    final Object[] element = (Object[]) results.get(i);
-
-                    if (element.length == SvnDiffUtils.RESULT_SIZE && fileBuilders.containsKey(element[0].toString())) {
-                        setFileName(element[0].toString());
-                        setFileBuilder((FileBuilder) fileBuilders.get(getFileName()));
-                        lineDiff = (int[]) element[1];
-                        setOldRevision("?");
-
-                        final Boolean isBinary = (Boolean) element[2];
-                        if (isBinary.booleanValue()) {
-                            trackBinaryFile();
-                        }
-
-                        SvnConfigurationOptions.getTaskLogger().info(
-                                "\t " + getFileName() + ", on r" + getNewRevision() + ", +" + lineDiff[0] + " -" + lineDiff[1]);
-
-                        trackFileDiff(lineDiff);
-                    } else {
-                        SvnConfigurationOptions.getTaskLogger().error("Problem with diff " + i + " for revision " + getNewRevision() + ".");
-                    }
-                }
-
             } catch (final BinaryDiffException e) {
                 // not supposed to happen. tracked individually.
                 return;
             } catch (final IOException e) {
                 SvnConfigurationOptions.getTaskLogger()
-                        .error("" + (++calls) + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
+                        .error("" + calls.incrementAndGet() + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
                 return;
             }
 
-            performIntermediarySave(end);
+            logProgress(end);
+            compactJournalIfNeeded(end);
+        }
+
+        public void handleResult(final DiffResult result) {
+            if (fileBuilders.containsKey(result.getFileName())) {
+                setFileName(result.getFileName());
+                setFileBuilder((FileBuilder) fileBuilders.get(getFileName()));
+                setOldRevision("?");
+
+                if (result.isBinary()) {
+                    trackBinaryFile();
+                }
+
+                SvnConfigurationOptions.getTaskLogger().info(
+                        "\t " + getFileName() + ", on r" + getNewRevision() + ", +" + result.getLinesAdded() + " -" + result.getLinesRemoved());
+
+                trackFileDiff(result.getLineDiff());
+            } else {
+                SvnConfigurationOptions.getTaskLogger().error("Problem with diff " + diffs + " for revision " + getNewRevision() + ".");
+            }
+            diffs++;
         }
     }
 }
@@ -1,7 +1,5 @@
 package net.sf.statsvn.input;
 
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -139,19 +137,14 @@ public class SvnXmlCacheFileHandler extends DefaultHandler {
 	}
 
 	/**
-	 * Handles the start of the document. Initializes the line count builder.
+	 * Handles the start of the document.
 	 * 
 	 * @throws SAXException
-	 *             unable to build the root.
+	 *             unexpected event.
 	 */
 	private void startCache() throws SAXException {
 		checkLastElement("");
 		lastElement = CacheConfiguration.CACHE;
-		try {
-			cacheBuilder.buildRoot();
-		} catch (final ParserConfigurationException e) {
-			fatalError(FATAL_ERROR_MESSAGE);
-		}
 	}
 
 	/**
@@ -4,6 +4,8 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
 
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.XMLUtil;
@@ -42,7 +44,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	private static final String PATHS = "paths";
 
-	private final SvnLogBuilder builder;
+	private final SvnLogEntryBuilder builder;
 
 	private ArrayList currentFilenames;
 
@@ -54,7 +56,9 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	private String pathAction = "";
 
-	private String stringData = "";
+	private final StringBuffer stringData = new StringBuffer();
+
+	private final TimeZone localZone = TimeZone.getDefault();
 
 	private String copyfromRev = "";
 
@@ -66,6 +70,24 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	private final HashMap tagsDateMap = new HashMap();
 
+	private final boolean loadRepositoryInfo;
+
+	private int lastKnownRevision = -1;
+
+	private boolean stopAtLastKnownRevision;
+
+	private boolean lastKnownRevisionFound;
+
+	private boolean skipLogEntry;
+
+	private int firstRevision = -1;
+
+	private int lastRevision = -1;
+
+	private int highestRevision = -1;
+
+	private boolean hasFilteredPaths;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -74,18 +96,92 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	 * @param repositoryFileManager
 	 *            the repository file manager needed to obtain some information.
 	 */
-	public SvnXmlLogFileHandler(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager) {
+	public SvnXmlLogFileHandler(final SvnLogEntryBuilder builder, final RepositoryFileManager repositoryFileManager) {
+		this(builder, repositoryFileManager, true);
+	}
+
+	/**
+	 * Constructor used when only a part of the log is handled by this
+	 * instance.
+	 * 
+	 * @param builder
+	 *            where to send the information
+	 * @param repositoryFileManager
+	 *            the repository file manager needed to obtain some information.
+	 * @param loadRepositoryInfo
+	 *            <tt>false</tt> if the repository information has already
+	 *            been loaded and the module already built by the caller.
+	 */
+	SvnXmlLogFileHandler(final SvnLogEntryBuilder builder, final RepositoryFileManager repositoryFileManager, final boolean loadRepositoryInfo) {
 		this.builder = builder;
 		this.repositoryFileManager = repositoryFileManager;
+		this.loadRepositoryInfo = loadRepositoryInfo;
+	}
+
+	/**
+	 * Makes this handler ignore the log entries that were already processed
+	 * in a previous run (see (@link LogCheckpoint)).
+	 * 
+	 * @param revision
+	 *            the highest revision processed in the previous run.
+	 * @param logIsDescending
+	 *            <tt>true</tt> if the log lists the newest revisions first,
+	 *            in which case parsing ends with a
+	 *            (@link LastKnownRevisionReachedException) at the first known
+	 *            revision.
+	 */
+	void setLastKnownRevision(final int revision, final boolean logIsDescending) {
+		this.lastKnownRevision = revision;
+		this.stopAtLastKnownRevision = logIsDescending;
+	}
+
+	/**
+	 * @return <tt>true</tt> if the log contains the revision given to
+	 *         (@link #setLastKnownRevision(int, boolean)).
+	 */
+	boolean isLastKnownRevisionFound() {
+		return lastKnownRevisionFound;
+	}
+
+	/**
+	 * @return the highest revision of the log entries read so far, or -1.
+	 */
+	int getHighestRevision() {
+		return highestRevision;
+	}
+
+	/**
+	 * @return <tt>true</tt> unless the log entries read so far are listed
+	 *         oldest first.
+	 */
+	boolean isDescending() {
+		return firstRevision >= lastRevision;
+	}
+
+	/**
+	 * @return the revision (string) by tag name (string) found so far.
+	 */
+	Map getTagsMap() {
+		return tagsMap;
+	}
+
+	/**
+	 * @return the date (date) by tag name (string) found so far.
+	 */
+	Map getTagsDateMap() {
+		return tagsDateMap;
 	}
 
 	/**
 	 * Builds the string that was read; default implementation can invoke this
 	 * function multiple times while reading the data.
+	 * 
+	 * The buffer is reused from one element to the next so that long commit
+	 * messages delivered in many chunks are accumulated in linear time.
 	 */
 	public void characters(final char[] ch, final int start, final int length) throws SAXException {
 		super.characters(ch, start, length);
-		stringData += new String(ch, start, length);
+		stringData.append(ch, start, length);
 	}
 
 	/**
@@ -110,7 +206,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	 */
 	private void endAuthor() throws SAXException {
 		checkLastElement(LOGENTRY);
-		currentRevisionData.setLoginName(stringData);
+		currentRevisionData.setLoginName(stringData.toString());
 	}
 
 	/**
@@ -126,7 +222,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		checkLastElement(LOGENTRY);
 		Date dt;
 		try {
-			dt = XMLUtil.parseXsdDateTime(stringData);
+			dt = XMLUtil.parseXsdDateTime(stringData, localZone);
 			currentRevisionData.setDate(dt);
 		} catch (final ParseException e) {
 			warning("Invalid date specified.");
@@ -178,7 +274,11 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	/**
 	 * End of log entry element. For each file that was found, builds the file
-	 * and revision in (@link SvnLogBuilder).
+	 * and revision in (@link SvnLogBuilder). The entries older than the
+	 * revision or date to start at are built as well, as the folder actions
+	 * they hold act on the files of the later ones; they are removed once the
+	 * implicit actions are known (see
+	 * (@link SvnLogfileParser#verifyImplicitActions())).
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
@@ -186,15 +286,17 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	private void endLogEntry() throws SAXException {
 		checkLastElement(LOGENTRY);
 		lastElement = LOG;
+		if (skipLogEntry) {
+			return;
+		}
+		if (hasFilteredPaths) {
+			builder.buildFilteredRevision(currentRevisionData);
+		}
 
+		final CommitInfo commit = currentRevisionData.getCommit();
 		for (int i = 0; i < currentFilenames.size(); i++) {
-			if (currentFilenames.get(i) == null) {
-				continue; // skip files that are not on this branch
-			}
 			final RevisionData revisionData = (RevisionData) currentRevisions.get(i);
-			revisionData.setComment(currentRevisionData.getComment());
-			revisionData.setDate(currentRevisionData.getDate());
-			revisionData.setLoginName(currentRevisionData.getLoginName());
+			revisionData.setCommit(commit);
 			final String currentFilename = currentFilenames.get(i).toString();
 
 			final boolean isBinary = repositoryFileManager.isBinary(currentFilename);
@@ -211,7 +313,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	 */
 	private void endMsg() throws SAXException {
 		checkLastElement(LOGENTRY);
-		currentRevisionData.setComment(stringData);
+		currentRevisionData.setComment(stringData.toString());
 	}
 
 	/**
@@ -223,34 +325,50 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	 */
 	private void endPath() throws SAXException {
 		checkLastElement(PATHS);
+		if (skipLogEntry) {
+			return;
+		}
 
 		// relies on the fact that absoluteToRelativePath returns null for paths
 		// that are not on the branch.
-		final String filename = repositoryFileManager.absoluteToRelativePath(stringData);
-		final RevisionData data = currentRevisionData.createCopy();
-		if (!pathAction.equals("D")) {
-			data.setStateExp(true);
-			if (pathAction.equals("A") || pathAction.equals("R")) {
-				data.setStateAdded(true);
-			}
-		} else {
-			data.setStateDead(true);
-		}
+		final String path = stringData.toString();
+		final String filename = repositoryFileManager.absoluteToRelativePath(path);
 
 		final String tagsStr = SvnConfigurationOptions.getTagsDirectory();
-		if (copyfromRev != null && filename == null && stringData != null && stringData.indexOf(tagsStr) >= 0) {
-			String tag = stringData.substring(stringData.indexOf(tagsStr) + tagsStr.length());
+		if (copyfromRev != null && filename == null && path.indexOf(tagsStr) >= 0) {
+			String tag = path.substring(path.indexOf(tagsStr) + tagsStr.length());
 			if (tag.indexOf("/") >= 0) {
 				tag = tag.substring(0, tag.indexOf("/"));
 			}
 
 			if (!tagsMap.containsKey(tag) && builder.matchesTagPatterns(tag)) {
-				SvnConfigurationOptions.getTaskLogger().info("= TAG " + tag + " rev:" + copyfromRev + " stringData [" + stringData + "]");
+				SvnConfigurationOptions.getTaskLogger().info("= TAG " + tag + " rev:" + copyfromRev + " stringData [" + path + "]");
 				tagsMap.put(tag, copyfromRev);
 				tagsDateMap.put(tag, currentRevisionData.getDate());
 			}
 		}
 
+		if (filename == null) {
+			return; // not on this branch
+		}
+		if (isFiltered(filename)) {
+			hasFilteredPaths = true;
+			return;
+		}
+
+		// author, date and comment are only shared in endLogEntry(), no need
+		// to clone the whole current revision for every path.
+		final RevisionData data = new RevisionData();
+		data.setRevisionNumber(currentRevisionData.getRevisionNumber());
+		if (!pathAction.equals("D")) {
+			data.setStateExp(true);
+			if (pathAction.equals("A") || pathAction.equals("R")) {
+				data.setStateAdded(true);
+			}
+		} else {
+			data.setStateDead(true);
+		}
+
 		data.setCopyfromPath(copyfromPath);
 		data.setCopyfromRevision(copyfromRev);
 
@@ -258,6 +376,26 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		currentFilenames.add(filename);
 	}
 
+	/**
+	 * Paths that do not match the include and exclude patterns are not built,
+	 * with the exception of additions, replacements and deletions of paths
+	 * that may be directories: they are needed to find the implicit actions on
+	 * the files they contain (see (@link SvnLogfileParser#verifyImplicitActions())).
+	 * 
+	 * @param filename
+	 *            the path relative to the working folder root
+	 * @return <tt>true</tt> if the path must not be built.
+	 */
+	private boolean isFiltered(final String filename) {
+		if (builder.matchesPatterns(filename)) {
+			return false;
+		}
+		if (pathAction.equals("M")) {
+			return true;
+		}
+		return repositoryFileManager.existsInWorkingCopy(filename) && !repositoryFileManager.isDirectory(filename);
+	}
+
 	/**
 	 * End of paths element.
 	 * 
@@ -300,7 +438,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	 */
 	public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
 		super.startElement(uri, localName, qName, attributes);
-		stringData = "";
+		stringData.setLength(0);
 		String eName = localName; // element name
 		if ("".equals(eName)) {
 			eName = qName; // namespaceAware = false
@@ -330,6 +468,10 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		checkLastElement("");
 		lastElement = LOG;
 
+		if (!loadRepositoryInfo) {
+			return;
+		}
+
 		try {
 			repositoryFileManager.loadInfo();
 			builder.buildModule(repositoryFileManager.getModuleName());
@@ -352,11 +494,35 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		currentRevisionData = new RevisionData();
 		currentRevisions = new ArrayList();
 		currentFilenames = new ArrayList();
+		hasFilteredPaths = false;
 		if (attributes != null && attributes.getValue("revision") != null) {
 			currentRevisionData.setRevisionNumber(attributes.getValue("revision"));
 		} else {
 			fatalError(INVALID_SVN_LOG_FILE);
 		}
+
+		final int revision;
+		try {
+			revision = Integer.parseInt(currentRevisionData.getRevisionNumber());
+		} catch (final NumberFormatException e) {
+			skipLogEntry = false;
+			return;
+		}
+		if (firstRevision < 0) {
+			firstRevision = revision;
+		}
+		lastRevision = revision;
+		highestRevision = Math.max(highestRevision, revision);
+
+		skipLogEntry = revision <= lastKnownRevision;
+		if (skipLogEntry) {
+			if (revision == lastKnownRevision) {
+				lastKnownRevisionFound = true;
+			}
+			if (stopAtLastKnownRevision) {
+				throw new LastKnownRevisionReachedException();
+			}
+		}
 	}
 
 	/**
@@ -400,4 +566,16 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	private void warning(final String message) throws SAXException {
 		SvnConfigurationOptions.getTaskLogger().info(message);
 	}
+
+	/**
+	 * Thrown to end parsing once the remaining log entries are known to have
+	 * been processed in a previous run.
+	 */
+	static final class LastKnownRevisionReachedException extends SAXException {
+		private static final long serialVersionUID = 1L;
+
+		private LastKnownRevisionReachedException() {
+			super("last known revision reached");
+		}
+	}
 }
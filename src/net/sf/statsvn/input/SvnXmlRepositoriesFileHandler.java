@@ -28,6 +28,8 @@ public class SvnXmlRepositoriesFileHandler extends DefaultHandler {
 
 	private static final String FILE = "file";
 
+	private static final String FORMAT = "format";
+
 	private String lastElement = "";
 
 	private final RepositoriesBuilder repositoriesBuilder;
@@ -165,7 +167,7 @@ public class SvnXmlRepositoriesFileHandler extends DefaultHandler {
 		if (attributes != null && attributes.getValue(UUID) != null && attributes.getValue(FILE) != null) {
 			final String uuid = attributes.getValue(UUID);
 			final String file = attributes.getValue(FILE);
-			repositoriesBuilder.buildRepository(uuid, file);
+			repositoriesBuilder.buildRepository(uuid, file, attributes.getValue(FORMAT));
 		} else {
 			fatalError(FATAL_ERROR_MESSAGE);
 		}
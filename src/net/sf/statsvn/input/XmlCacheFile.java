@@ -0,0 +1,178 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Writes the line counts cache in the xml format read by
+ * (@link SvnXmlCacheFileHandler), straight from the (@link CacheBuilder)
+ * instead of building a DOM document of the whole cache first.
+ * </p>
+ *
+ * <p>
+ * The cache is written to a temporary file which then replaces the cache, so
+ * that an interrupted save leaves the previous cache intact.
+ * </p>
+ *
+ * @version $Id$
+ */
+public final class XmlCacheFile {
+	private static final String ENCODING = "UTF-8";
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final String OLD_EXTENSION = ".old";
+
+	private static final String LINE_SEPARATOR = "\n";
+
+	/**
+	 * A utility class (only static methods) should be final and have a private
+	 * constructor.
+	 */
+	private XmlCacheFile() {
+	}
+
+	/**
+	 * Writes the content of a cache builder as an xml cache.
+	 *
+	 * @param cacheBuilder
+	 *            the cache
+	 * @param file
+	 *            the xml cache file
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write(final CacheBuilder cacheBuilder, final File file) throws IOException {
+		final File tempFile = new File(file.getPath() + TEMP_EXTENSION);
+		final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING), BUFFER_SIZE);
+		try {
+			cacheBuilder.write(new XmlWriter(out));
+		} finally {
+			out.close();
+		}
+		replace(tempFile, file);
+	}
+
+	/**
+	 * Renames a temporary file to its final name. Where the platform cannot
+	 * rename over a file, the file is first renamed aside, and put back if
+	 * the temporary file cannot take its place; the file is therefore never
+	 * lost, and is only missing while the temporary file is complete.
+	 */
+	static void replace(final File tempFile, final File file) throws IOException {
+		if (tempFile.renameTo(file)) {
+			return;
+		}
+		final File oldFile = new File(file.getPath() + OLD_EXTENSION);
+		oldFile.delete();
+		if (file.exists() && !file.renameTo(oldFile)) {
+			throw new IOException("Could not replace " + file);
+		}
+		if (!tempFile.renameTo(file)) {
+			oldFile.renameTo(file);
+			throw new IOException("Could not rename " + tempFile + " to " + file);
+		}
+		oldFile.delete();
+	}
+
+	private static void writeAttribute(final Writer out, final String name, final String value) throws IOException {
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		final int length = value.length();
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				out.write("&amp;");
+				break;
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '"':
+				out.write("&quot;");
+				break;
+			case '\n':
+				out.write("&#10;");
+				break;
+			case '\r':
+				out.write("&#13;");
+				break;
+			case '\t':
+				out.write("&#9;");
+				break;
+			default:
+				out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Writes the paths and revisions as elements, their attributes in the
+	 * order the DOM serializer used.
+	 */
+	private static final class XmlWriter implements CacheWriter {
+		private final Writer out;
+
+		private int revisionsLeft;
+
+		private XmlWriter(final Writer out) {
+			this.out = out;
+		}
+
+		public void startCache(final String project) throws IOException {
+			out.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\" standalone=\"no\"?>");
+			out.write(LINE_SEPARATOR);
+			out.write("<" + CacheConfiguration.CACHE);
+			writeAttribute(out, CacheConfiguration.PROJECT, project == null ? "" : project);
+			writeAttribute(out, CacheConfiguration.XML_VERSION, "1.0");
+			out.write(">");
+			out.write(LINE_SEPARATOR);
+		}
+
+		public void writePath(final String name, final String latestRevision, final String binaryStatus, final int revisionCount) throws IOException {
+			out.write("<" + CacheConfiguration.PATH);
+			writeAttribute(out, CacheConfiguration.BINARY_STATUS, binaryStatus);
+			writeAttribute(out, CacheConfiguration.LATEST_REVISION, latestRevision);
+			writeAttribute(out, CacheConfiguration.NAME, name);
+			if (revisionCount == 0) {
+				out.write("/>");
+			} else {
+				out.write(">");
+			}
+			out.write(LINE_SEPARATOR);
+			revisionsLeft = revisionCount;
+		}
+
+		public void writeRevision(final String number, final String added, final String removed, final String binaryStatus) throws IOException {
+			out.write("<" + CacheConfiguration.REVISION);
+			writeAttribute(out, CacheConfiguration.ADDED, added);
+			writeAttribute(out, CacheConfiguration.BINARY_STATUS, binaryStatus);
+			writeAttribute(out, CacheConfiguration.NUMBER, number);
+			writeAttribute(out, CacheConfiguration.REMOVED, removed);
+			out.write("/>");
+			out.write(LINE_SEPARATOR);
+			revisionsLeft--;
+			if (revisionsLeft == 0) {
+				out.write("</" + CacheConfiguration.PATH + ">");
+				out.write(LINE_SEPARATOR);
+			}
+		}
+
+		public void endCache() throws IOException {
+			out.write("</" + CacheConfiguration.CACHE + ">");
+			out.write(LINE_SEPARATOR);
+		}
+	}
+}
@@ -75,11 +75,21 @@ public class SvnCommandLineParser extends CommandLineParser {
 				throw new ConfigurationException("Missing argument for -threads");
 			}
 			SvnConfigurationOptions.setNumberSvnDiffThreads(Integer.parseInt(popNextArg()));
+		} else if (s.equals("parse-threads")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -parse-threads");
+			}
+			SvnConfigurationOptions.setNumberParseThreads(Integer.parseInt(popNextArg()));
 		} else if (s.equals("concurrency-threshold")) {
 			if (isArgsEmpty()) {
 				throw new ConfigurationException("Missing argument for -concurrency-threshold");
 			}
 			SvnConfigurationOptions.setThresholdInMsToUseConcurrency(Integer.parseInt(popNextArg()));
+		} else if (s.equals("svn-timeout")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -svn-timeout");
+			}
+			SvnConfigurationOptions.setSvnTimeout(Integer.parseInt(popNextArg()));
 		} else if (s.equals("tags-dir")) {
 			if (isArgsEmpty()) {
 				throw new ConfigurationException("Missing argument for -tags-dir");
@@ -89,6 +99,25 @@ public class SvnCommandLineParser extends CommandLineParser {
 			SvnConfigurationOptions.setDumpContent(true);
 		} else if (s.equals("anonymize")) {
 			SvnConfigurationOptions.setAnonymize(true);
+		} else if (s.equals("incremental")) {
+			SvnConfigurationOptions.setIncremental(true);
+		} else if (s.equals("snapshot")) {
+			SvnConfigurationOptions.setModelSnapshot(true);
+		} else if (s.equals("from-revision")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -from-revision");
+			}
+			SvnConfigurationOptions.setFromRevision(Integer.parseInt(popNextArg()));
+		} else if (s.equals("from-date")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -from-date");
+			}
+			SvnConfigurationOptions.setFromDate(popNextArg());
+		} else if (s.equals("cache-format")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -cache-format");
+			}
+			SvnConfigurationOptions.setCacheFormat(popNextArg());
         } else if (s.equals("svnkit")) {
             SvnConfigurationOptions.setUsingSvnKit(true);
 		} else if (s.equals("force-legacy-diff")) {
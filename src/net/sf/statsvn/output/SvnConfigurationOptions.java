@@ -23,6 +23,9 @@
 package net.sf.statsvn.output;
 
 import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import net.sf.statcvs.output.ConfigurationException;
 import net.sf.statcvs.output.ConfigurationOptions;
@@ -44,10 +47,18 @@ import net.sf.statsvn.util.svnkit.SvnKitProcessor;
  * @version $Id: ConfigurationOptions.java,v 1.17 2005/03/20 19:12:25 squig Exp $
  */
 public final class SvnConfigurationOptions {
+	/** The line counts cache is an xml file. */
+	public static final String CACHE_FORMAT_XML = "xml";
+
+	/** The line counts cache is a compact binary file. */
+	public static final String CACHE_FORMAT_BINARY = "binary";
+
 	private static final int DEFAULT_THRESHOLD_MS_FOR_CONCURRENCY = 2000;
 
 	private static final int DEFAULT_NUMBER_THREADS = 25;
 
+	private static final int DEFAULT_SVN_TIMEOUT = 3600;
+
 	private static String cacheDir = "";
 
 	private static final String DEFAULT_CACHE_DIR = System.getProperty("user.home") + FileUtils.getDirSeparator() + ".statsvn" + FileUtils.getDirSeparator();
@@ -60,12 +71,26 @@ public final class SvnConfigurationOptions {
 
 	private static int numberSvnDiffThreads = DEFAULT_NUMBER_THREADS;
 
+	private static int numberParseThreads = 1;
+
 	private static long thresholdInMsToUseConcurrency = DEFAULT_THRESHOLD_MS_FOR_CONCURRENCY;
 
+	private static int svnTimeout = DEFAULT_SVN_TIMEOUT;
+
 	private static boolean dump = false;
 
 	private static boolean anonymize = false;
 
+	private static boolean incremental = false;
+
+	private static boolean modelSnapshot = false;
+
+	private static int fromRevision = 0;
+
+	private static Date fromDate = null;
+
+	private static String cacheFormat = CACHE_FORMAT_XML;
+
 	private static String tagsDirectory = "/tags/";
 
 	// use the newer diff. will be overridden if this is not possible. 
@@ -184,6 +209,26 @@ public final class SvnConfigurationOptions {
 		SvnConfigurationOptions.numberSvnDiffThreads = numberSvnDiffThreads;
 	}
 
+	/**
+	 * @return the numberParseThreads
+	 */
+	public static int getNumberParseThreads() {
+		return numberParseThreads;
+	}
+
+	/**
+	 * How many threads are used to parse the svn log. With more than one
+	 * thread, the log file is split into chunks of log entries that are parsed
+	 * concurrently, and the implicit actions of independent subtrees are
+	 * verified concurrently.
+	 * 
+	 * @param numberParseThreads
+	 *            the numberParseThreads to set
+	 */
+	public static void setNumberParseThreads(final int numberParseThreads) {
+		SvnConfigurationOptions.numberParseThreads = numberParseThreads;
+	}
+
 	/**
 	 * @return the thresholdInMsToUseConcurrency
 	 */
@@ -199,6 +244,26 @@ public final class SvnConfigurationOptions {
 		SvnConfigurationOptions.thresholdInMsToUseConcurrency = thresholdToUseConcurrency;
 	}
 
+	/**
+	 * @return the number of seconds an svn command may run, 0 for no limit;
+	 *         an hour by default, far more than a single info, propget or
+	 *         diff should take, so that only a hung command is killed
+	 */
+	public static int getSvnTimeout() {
+		return svnTimeout;
+	}
+
+	/**
+	 * How long an svn command may run before it is killed and reported as
+	 * failed.
+	 * 
+	 * @param seconds
+	 *            the number of seconds, 0 for no limit
+	 */
+	public static void setSvnTimeout(final int seconds) {
+		SvnConfigurationOptions.svnTimeout = seconds;
+	}
+
 	public static void setDumpContent(final boolean dumpContent) {
 		dump = dumpContent;
 	}
@@ -215,6 +280,108 @@ public final class SvnConfigurationOptions {
 		return anonymize;
 	}
 
+	/**
+	 * Should the svn log be parsed incrementally? If so, a checkpoint of the
+	 * parsed log is kept in the cache directory and the next run only parses
+	 * the log entries above its revision.
+	 * 
+	 * @param isIncremental
+	 *            true to keep and use a checkpoint.
+	 */
+	public static void setIncremental(final boolean isIncremental) {
+		incremental = isIncremental;
+	}
+
+	public static boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Should the model built from the svn log be kept in the cache directory?
+	 * If so, the next run on the same log file reads it instead of parsing
+	 * the log again.
+	 * 
+	 * @param isModelSnapshot
+	 *            true to keep and use a snapshot of the model.
+	 */
+	public static void setModelSnapshot(final boolean isModelSnapshot) {
+		modelSnapshot = isModelSnapshot;
+	}
+
+	public static boolean isModelSnapshot() {
+		return modelSnapshot;
+	}
+
+	/**
+	 * Log entries older than this revision are left out of the report.
+	 * 
+	 * @param revision
+	 *            the first revision to report on, 0 for all.
+	 */
+	public static void setFromRevision(final int revision) {
+		fromRevision = revision;
+	}
+
+	public static int getFromRevision() {
+		return fromRevision;
+	}
+
+	/**
+	 * Log entries older than this date are left out of the report.
+	 * 
+	 * @param date
+	 *            the first day to report on, as yyyy-MM-dd.
+	 * @throws ConfigurationException
+	 *             if the date is not valid.
+	 */
+	public static void setFromDate(final String date) throws ConfigurationException {
+		if (date == null) {
+			fromDate = null;
+			return;
+		}
+		final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setLenient(false);
+		try {
+			fromDate = format.parse(date);
+		} catch (final ParseException e) {
+			throw new ConfigurationException("Invalid date (expected yyyy-MM-dd): " + date);
+		}
+	}
+
+	/**
+	 * @return the first day to report on, or null for all.
+	 */
+	public static Date getFromDate() {
+		return fromDate;
+	}
+
+	/**
+	 * Chooses how the line counts are cached. Caches in the other format are
+	 * migrated to this one.
+	 * 
+	 * @param format
+	 *            (@link #CACHE_FORMAT_XML) or (@link #CACHE_FORMAT_BINARY),
+	 *            null for the default xml format.
+	 * @throws ConfigurationException
+	 *             if the format is not known.
+	 */
+	public static void setCacheFormat(final String format) throws ConfigurationException {
+		if (format == null) {
+			cacheFormat = CACHE_FORMAT_XML;
+		} else if (format.equals(CACHE_FORMAT_XML) || format.equals(CACHE_FORMAT_BINARY)) {
+			cacheFormat = format;
+		} else {
+			throw new ConfigurationException("Invalid cache format (expected " + CACHE_FORMAT_XML + " or " + CACHE_FORMAT_BINARY + "): " + format);
+		}
+	}
+
+	/**
+	 * @return the format of the line counts cache.
+	 */
+	public static String getCacheFormat() {
+		return cacheFormat;
+	}
+
 	/**
 	 * Following request 1692245, add option -tags-dir to the command line.
 	 */
@@ -0,0 +1,255 @@
+package net.sf.statsvn.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>
+ * Counts the lines added and removed by a svn diff as its output is written
+ * to it, scanning the bytes once without decoding lines into Strings. It
+ * finds the same counts as reading the diff line by line would: the first
+ * byte of each line is checked for <code>+</code> and <code>-</code>, and
+ * the markers, all ASCII, are compared with the start of the line.
+ * </p>
+ *
+ * <p>
+ * Lines end with <code>\n</code>, <code>\r</code> or <code>\r\n</code>, as
+ * for (@link java.io.BufferedReader#readLine()). Only the output of svn in an
+ * ASCII compatible encoding can be counted this way, which is what the
+ * decoding with the platform encoding relied upon.
+ * </p>
+ *
+ * <p>
+ * When the diff of a whole revision is counted, the result of each
+ * <code>Index:</code> section is passed to a (@link IDiffResultHandler) as
+ * soon as the section is over, so that memory does not grow with the diff.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class DiffLineCounter extends OutputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final byte[] INDEX_MARKER = ascii(SvnDiffUtils.INDEX_MARKER);
+
+	private static final byte[] PROPERTY_CHANGE = ascii(SvnDiffUtils.PROPERTY_CHANGE);
+
+	private static final byte[] PROPERTY_NAME = ascii(SvnDiffUtils.PROPERTY_NAME);
+
+	private static final byte[] BINARY_TYPE = ascii(SvnDiffUtils.BINARY_TYPE);
+
+	private final IDiffResultHandler handler;
+
+	/** The start of the current line, long enough to hold any marker. */
+	private final byte[] head = new byte[Math.max(Math.max(INDEX_MARKER.length, PROPERTY_CHANGE.length), Math.max(PROPERTY_NAME.length,
+	        BINARY_TYPE.length))];
+
+	private int headLength = 0;
+
+	private boolean lineStarted = false;
+
+	private boolean afterCarriageReturn = false;
+
+	/** The rest of an <code>Index:</code> line that does not fit in the head. */
+	private ByteArrayOutputStream indexTail = null;
+
+	private String currentFile = null;
+
+	private int lineNumber = 0;
+
+	private int linesAdded = -1;
+
+	private int linesRemoved = -1;
+
+	private boolean propertyChange = false;
+
+	private boolean binary = false;
+
+	private boolean closed = false;
+
+	/**
+	 * Counts the lines of the diff of one file.
+	 */
+	public DiffLineCounter() {
+		this.handler = null;
+	}
+
+	/**
+	 * Counts the lines of each file of the diff of a revision.
+	 *
+	 * @param handler
+	 *            receives the result of each file
+	 */
+	public DiffLineCounter(final IDiffResultHandler handler) {
+		this.handler = handler;
+	}
+
+	private static byte[] ascii(final String marker) {
+		final byte[] bytes = new byte[marker.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) marker.charAt(i);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes the whole stream to the counter. The counter is then to be
+	 * closed, once the stream is known to be complete.
+	 *
+	 * @param diffStream
+	 *            the output of svn diff
+	 * @throws IOException
+	 *             problem reading the stream
+	 */
+	public void readFully(final InputStream diffStream) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while ((read = diffStream.read(buffer)) != -1) {
+			write(buffer, 0, read);
+		}
+	}
+
+	public void write(final int b) throws IOException {
+		consume((byte) b);
+	}
+
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		final int end = off + len;
+		for (int i = off; i < end; i++) {
+			consume(b[i]);
+		}
+	}
+
+	private void consume(final byte b) {
+		if (afterCarriageReturn) {
+			afterCarriageReturn = false;
+			if (b == '\n') {
+				return;
+			}
+		}
+		if (b == '\n' || b == '\r') {
+			endLine();
+			afterCarriageReturn = (b == '\r');
+		} else {
+			lineStarted = true;
+			if (headLength < head.length) {
+				head[headLength++] = b;
+				if (headLength == head.length && handler != null && startsWith(INDEX_MARKER)) {
+					indexTail = new ByteArrayOutputStream();
+				}
+			} else if (indexTail != null) {
+				indexTail.write(b);
+			}
+		}
+	}
+
+	private boolean startsWith(final byte[] marker) {
+		if (headLength < marker.length) {
+			return false;
+		}
+		for (int i = 0; i < marker.length; i++) {
+			if (head[i] != marker[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void endLine() {
+		lineNumber++;
+		if (handler != null && startsWith(INDEX_MARKER)) {
+			// the lines before the first Index: line belong to the first file
+			if (currentFile != null) {
+				endFile();
+				lineNumber = 1;
+			}
+			if (indexTail == null) {
+				currentFile = new String(head, INDEX_MARKER.length, headLength - INDEX_MARKER.length);
+			} else {
+				// decoded at once, as a character may span the head and the tail
+				final byte[] tail = indexTail.toByteArray();
+				final byte[] name = new byte[headLength - INDEX_MARKER.length + tail.length];
+				System.arraycopy(head, INDEX_MARKER.length, name, 0, headLength - INDEX_MARKER.length);
+				System.arraycopy(tail, 0, name, headLength - INDEX_MARKER.length, tail.length);
+				currentFile = new String(name);
+			}
+		} else if (headLength > 0 && !binary) {
+			// very simple algorithm
+			if (head[0] == '+') {
+				linesAdded++;
+			} else if (head[0] == '-') {
+				linesRemoved++;
+			} else if (startsWith(PROPERTY_CHANGE) || (startsWith(PROPERTY_NAME) && lineNumber == SvnDiffUtils.PROPERTY_NAME_LINE)) {
+				propertyChange = true;
+			} else if (startsWith(BINARY_TYPE)) {
+				binary = true;
+			}
+		}
+		headLength = 0;
+		lineStarted = false;
+		indexTail = null;
+	}
+
+	private int[] getCounts() {
+		final int[] lineDiff = { linesAdded, linesRemoved };
+		if (lineNumber == 0) {
+			// diff has no output because we modified properties or the changes
+			// are auto-generated ($id$ $author$ kind of thing)
+			// http://svnbook.red-bean.com/nightly/en/svn.advanced.props.html#svn.advanced.props.special.keywords
+			lineDiff[0] = 0;
+			lineDiff[1] = 0;
+		}
+		if (propertyChange && (lineDiff[0] == -1 || lineDiff[1] == -1)) {
+			lineDiff[0] = 0;
+			lineDiff[1] = 0;
+		}
+		return lineDiff;
+	}
+
+	private void endFile() {
+		if (binary) {
+			handler.handleResult(new DiffResult(currentFile, new int[] { 0, 0 }, true));
+		} else {
+			handler.handleResult(new DiffResult(currentFile, getCounts(), false));
+		}
+
+		linesAdded = -1;
+		linesRemoved = -1;
+		propertyChange = false;
+		binary = false;
+	}
+
+	/**
+	 * Counts the last line, which may have no line terminator, and passes on
+	 * the result of the last file of the diff of a revision.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (lineStarted) {
+			endLine();
+		}
+		if (handler != null && currentFile != null) {
+			endFile();
+		}
+	}
+
+	/**
+	 * Returns the line counts of the diff of one file, once the counter is
+	 * closed.
+	 *
+	 * @return A int[2] array of [lines added, lines removed] is returned.
+	 * @throws BinaryDiffException
+	 *             if the diff shows the file is binary.
+	 */
+	public int[] getLineDiff() throws BinaryDiffException {
+		if (binary) {
+			throw new BinaryDiffException();
+		}
+		return getCounts();
+	}
+}
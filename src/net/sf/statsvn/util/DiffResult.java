@@ -0,0 +1,51 @@
+package net.sf.statsvn.util;
+
+/**
+ * The line counts of one file in the diff of a revision.
+ *
+ * @version $Id$
+ */
+public final class DiffResult {
+	private final String fileName;
+
+	private final int[] lineDiff;
+
+	private final boolean binary;
+
+	/**
+	 * @param fileName
+	 *            the file name, as found on the <code>Index:</code> line
+	 * @param lineDiff
+	 *            a int[2] array of [lines added, lines removed]
+	 * @param binary
+	 *            true if the diff shows the file is binary
+	 */
+	public DiffResult(final String fileName, final int[] lineDiff, final boolean binary) {
+		this.fileName = fileName;
+		this.lineDiff = lineDiff;
+		this.binary = binary;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return A int[2] array of [lines added, lines removed].
+	 */
+	public int[] getLineDiff() {
+		return lineDiff;
+	}
+
+	public int getLinesAdded() {
+		return lineDiff[0];
+	}
+
+	public int getLinesRemoved() {
+		return lineDiff[1];
+	}
+
+	public boolean isBinary() {
+		return binary;
+	}
+}
@@ -40,4 +40,25 @@ public interface ISvnDiffProcessor {
     */
     public abstract Vector getLineDiff(final String newRevNr) throws IOException, BinaryDiffException;
 
+    /**
+    * Passes the line count differences of each file in a particular
+    * revision to the handler, as soon as the diff of the file was read.
+    * 
+    * @param newRevNr
+    *            new revision number
+    * @param handler
+    *            receives the result of each file
+    * @throws IOException
+    *             problem parsing the stream
+    * @throws BinaryDiffException
+    *             if the error message is due to trying to diff binary files.
+    */
+    public abstract void getLineDiff(final String newRevNr, final IDiffResultHandler handler) throws IOException, BinaryDiffException;
+
+    /**
+     * Releases what the diffs kept open, such as repository sessions, once
+     * all the line counts were obtained. Later diffs open them again.
+     */
+    public abstract void dispose();
+
 }
\ No newline at end of file
@@ -136,6 +136,23 @@ public interface ISvnInfoProcessor {
      */
     public abstract void addDirectory(final String relativePath);
 
+    /**
+     * Gives the dictionary of the repository paths, through which the input
+     * classes refer to a path by its id.
+     * 
+     * @return the path dictionary
+     */
+    public abstract PathDictionary getPathDictionary();
+
+    /**
+     * Gives the id of the root of the working folder in the path dictionary.
+     * Relative paths are looked up from this id. Before svn info is loaded,
+     * the module is not known and the root of the repository is given.
+     * 
+     * @return the id of getModuleName() in the path dictionary.
+     */
+    public abstract int getModulePathId();
+
     /**
      * Loads the information from svn info if needed.
      * 
@@ -0,0 +1,253 @@
+package net.sf.statsvn.util;
+
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Gives an int id to every path of the repository, so that the input classes
+ * can refer to a path by its id rather than by a <tt>String</tt> (file
+ * builders, attic, svn info results, the line count cache).
+ * </p>
+ *
+ * <p>
+ * The paths are stored as a tree rooted at (@link #ROOT), the root of the
+ * repository: a path only holds its last segment and the id of its parent
+ * directory, so that common prefixes are stored once. The relative, absolute
+ * and URL forms of a path are derived from the tree when they are asked for.
+ * </p>
+ *
+ * <p>
+ * The dictionary is read by the parsing and diff threads on every path
+ * conversion, so lookups take no lock: the child ids are found in a
+ * concurrent map, which publishes the arrays written before. Paths are added
+ * holding the lock of the dictionary.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class PathDictionary {
+	/** Id of the root of the repository, the path "/". */
+	public static final int ROOT = 0;
+
+	/** Returned for a path that is not in the dictionary. */
+	public static final int NONE = -1;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** The child ids (Integer) by parent id and segment (Key). */
+	private final ConcurrentHashMap ids = new ConcurrentHashMap();
+
+	private volatile int[] parents = new int[INITIAL_CAPACITY];
+
+	private volatile String[] segments = new String[INITIAL_CAPACITY];
+
+	private int size;
+
+	public PathDictionary() {
+		parents[ROOT] = NONE;
+		segments[ROOT] = "";
+		size = 1;
+	}
+
+	/**
+	 * Returns the id of an absolute path, adding it if needed.
+	 *
+	 * @param absolutePath
+	 *            a path in the repository, for example /trunk/src/Main.java
+	 * @return the id of the path.
+	 */
+	public int getId(final String absolutePath) {
+		return lookup(ROOT, absolutePath, true);
+	}
+
+	/**
+	 * Returns the id of a path relative to another one, adding it if needed.
+	 *
+	 * @param ancestor
+	 *            the id of the directory the path is relative to.
+	 * @param relativePath
+	 *            a path with '/' as separator; "." is the directory itself.
+	 * @return the id of the path.
+	 */
+	public int getId(final int ancestor, final String relativePath) {
+		return lookup(ancestor, relativePath, true);
+	}
+
+	/**
+	 * Finds the id of a path relative to another one, without adding it.
+	 *
+	 * @param ancestor
+	 *            the id of the directory the path is relative to.
+	 * @param relativePath
+	 *            a path with '/' as separator; "." is the directory itself.
+	 * @return the id of the path, or (@link #NONE) if it is not in the
+	 *         dictionary.
+	 */
+	public int findId(final int ancestor, final String relativePath) {
+		return lookup(ancestor, relativePath, false);
+	}
+
+	private int lookup(final int ancestor, final String path, final boolean add) {
+		int id = ancestor;
+		int start = 0;
+		final int length = path.length();
+		while (start < length && id != NONE) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = length;
+			}
+			if (end > start && !(end == start + 1 && path.charAt(start) == '.')) {
+				final String segment = path.substring(start, end);
+				final Integer child = (Integer) ids.get(new Key(id, segment));
+				if (child != null) {
+					id = child.intValue();
+				} else if (add) {
+					id = add(id, segment);
+				} else {
+					id = NONE;
+				}
+			}
+			start = end + 1;
+		}
+		return id;
+	}
+
+	private synchronized int add(final int parent, final String segment) {
+		// copied so that the segment does not hold the whole path
+		final Key key = new Key(parent, new String(segment));
+		final Integer existing = (Integer) ids.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		if (size == parents.length) {
+			final int[] newParents = new int[size * 2];
+			final String[] newSegments = new String[size * 2];
+			System.arraycopy(parents, 0, newParents, 0, size);
+			System.arraycopy(segments, 0, newSegments, 0, size);
+			parents = newParents;
+			segments = newSegments;
+		}
+		final int id = size++;
+		parents[id] = parent;
+		segments[id] = key.segment;
+		ids.put(key, new Integer(id));
+		return id;
+	}
+
+	/**
+	 * @param id
+	 *            the id of a path.
+	 * @return the id of its parent directory, or (@link #NONE) for the root.
+	 */
+	public int getParent(final int id) {
+		return parents[id];
+	}
+
+	/**
+	 * @param id
+	 *            the id of a path.
+	 * @param ancestor
+	 *            the id of a directory.
+	 * @return the path relative to the directory, for example src/Main.java,
+	 *         "." for the directory itself, or null if the path is not below
+	 *         it.
+	 */
+	public String getRelativePath(final int id, final int ancestor) {
+		if (id == ancestor) {
+			return ".";
+		}
+		return getPath(id, ancestor, null);
+	}
+
+	/**
+	 * @param id
+	 *            the id of a path.
+	 * @return the absolute path in the repository, for example
+	 *         /trunk/src/Main.java.
+	 */
+	public String getAbsolutePath(final int id) {
+		if (id == ROOT) {
+			return "/";
+		}
+		return getPath(id, ROOT, "");
+	}
+
+	/**
+	 * @param id
+	 *            the id of a path.
+	 * @param ancestor
+	 *            the id of a directory.
+	 * @param ancestorUrl
+	 *            the URL of the directory.
+	 * @return the URL of the path, or null if it is not below the directory.
+	 */
+	public String getUrl(final int id, final int ancestor, final String ancestorUrl) {
+		return getPath(id, ancestor, ancestorUrl);
+	}
+
+	/**
+	 * Joins the segments from the ancestor down to the path, behind the prefix
+	 * if there is one.
+	 */
+	private String getPath(final int id, final int ancestor, final String prefix) {
+		if (id == ancestor) {
+			return prefix;
+		}
+		final int[] currentParents = parents;
+		final String[] currentSegments = segments;
+		int length = prefix == null ? -1 : prefix.length();
+		for (int i = id; i != ancestor; i = currentParents[i]) {
+			if (i == NONE) {
+				return null;
+			}
+			length += currentSegments[i].length() + 1;
+		}
+		final char[] path = new char[length];
+		int end = length;
+		for (int i = id; i != ancestor; i = currentParents[i]) {
+			final String segment = currentSegments[i];
+			end -= segment.length();
+			segment.getChars(0, segment.length(), path, end);
+			if (--end >= 0) {
+				path[end] = '/';
+			}
+		}
+		if (prefix != null) {
+			prefix.getChars(0, prefix.length(), path, 0);
+		}
+		return new String(path);
+	}
+
+	/**
+	 * @return the number of paths, the root included.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * A segment of a path under its parent directory.
+	 */
+	private static final class Key {
+		private final int parent;
+
+		private final String segment;
+
+		private Key(final int parent, final String segment) {
+			this.parent = parent;
+			this.segment = segment;
+		}
+
+		public int hashCode() {
+			return parent * 31 + segment.hashCode();
+		}
+
+		public boolean equals(final Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return parent == other.parent && segment.equals(other.segment);
+		}
+	}
+}
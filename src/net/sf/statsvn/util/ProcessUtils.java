@@ -5,26 +5,45 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import net.sf.statcvs.util.LookaheadReader;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 
 /**
- * This class provides a way of launching new processes. It is not the best way
- * and it surely does not work well in multi-threaded environments. It is
- * sufficient for StatSVN's single thread.
- * 
- * We should be launching two threads with readers for both, but we are lazy.
+ * This class provides a way of launching new processes. Processes are
+ * launched concurrently: the error stream of each one is read on its own
+ * thread, so that a process never blocks on a full error stream while its
+ * output is read, and a process running longer than
+ * (@link SvnConfigurationOptions#getSvnTimeout()) is killed and reported as
+ * failed.
+ *
  * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps_p.html
- * 
+ *
  * @author jkealey &lt;&gt;
- * 
+ *
  */
 public final class ProcessUtils {
+	private static final int MS_PER_SECOND = 1000;
+
+	/** Kills the processes that run too long. */
+	private static final Timer DEADLINES = new Timer(true);
+
 	private BufferedInputStream inputStream;
 
 	private BufferedInputStream errorStream;
 
+	private String command;
+
+	private Process process;
+
+	private ErrorReader errorReader;
+
+	private Deadline deadline;
+
+	private volatile boolean timedOut = false;
+
 	/**
 	 * A utility class (only static methods) should be final and have
 	 * a private constructor.
@@ -32,16 +51,28 @@ public final class ProcessUtils {
 	public ProcessUtils() {
 	}
 
-	public static synchronized ProcessUtils call(final String sCommand) throws IOException {
+	public static ProcessUtils call(final String sCommand) throws IOException {
 		final ProcessUtils util = new ProcessUtils();
 		final Process lastProcess = Runtime.getRuntime().exec(sCommand, null, getWorkingFolder());
-		util.errorStream = new BufferedInputStream(lastProcess.getErrorStream());
+		util.command = sCommand;
+		util.process = lastProcess;
 		util.inputStream = new BufferedInputStream(lastProcess.getInputStream());
+		util.errorReader = new ErrorReader(lastProcess.getErrorStream());
+		util.errorReader.start();
 
+		final int timeout = SvnConfigurationOptions.getSvnTimeout();
+		if (timeout > 0) {
+			util.deadline = new Deadline(util, lastProcess);
+			DEADLINES.schedule(util.deadline, (long) timeout * MS_PER_SECOND);
+		}
 		return util;
 	}
 
 	public void close() throws IOException {
+		if (deadline != null) {
+			deadline.cancel();
+			deadline = null;
+		}
 		if (errorStream != null) {
 			errorStream.close();
 			errorStream = null;
@@ -50,18 +81,39 @@ public final class ProcessUtils {
 			inputStream.close();
 			inputStream = null;
 		}
+		if (process != null) {
+			// in case the output was not read to the end.
+			process.destroy();
+			process = null;
+		}
 	}
 
 	private static File getWorkingFolder() {
 		return SvnConfigurationOptions.getCheckedOutDirectoryAsFile();
 	}
 
+	/**
+	 * To be called once the output of the process was read, as it waits for
+	 * the process to close its error stream.
+	 *
+	 * @return true if the process wrote to its error stream or was killed.
+	 */
 	protected boolean hasErrorOccured() throws IOException {
+		if (errorReader != null) {
+			waitForErrorReader();
+			return timedOut || errorReader.getMessage().length() > 0;
+		}
 		return errorStream != null && errorStream.available() > 0;
 	}
 
 	protected String getErrorMessage() {
-		if (errorStream == null) {
+		if (errorReader != null) {
+			waitForErrorReader();
+			if (timedOut) {
+				return "Killed after " + SvnConfigurationOptions.getSvnTimeout() + " s: " + command + " " + errorReader.getMessage();
+			}
+			return errorReader.getMessage();
+		} else if (errorStream == null) {
 			return null;
 		} else {
 			final LookaheadReader diffReader = new LookaheadReader(new InputStreamReader(errorStream));
@@ -78,8 +130,17 @@ public final class ProcessUtils {
 		}
 	}
 
+	private void waitForErrorReader() {
+		try {
+			errorReader.join();
+		} catch (final InterruptedException e) {
+			SvnConfigurationOptions.getTaskLogger().error(e.toString());
+		}
+	}
+
 	/**
-	 * @return the errorStream
+	 * @return the errorStream, if it was set; the error stream of a process
+	 *         is read by (@link #getErrorMessage())
 	 */
 	public BufferedInputStream getErrorStream() {
 		return errorStream;
@@ -105,4 +166,72 @@ public final class ProcessUtils {
 	public void setInputStream(final InputStream inputStream) {
 		this.inputStream = new BufferedInputStream(inputStream);
 	}
+
+	/**
+	 * Kills a process that runs too long. A cancelled deadline stays queued in
+	 * the timer until it is due, so it lets go of the process on cancel.
+	 */
+	private static final class Deadline extends TimerTask {
+		private ProcessUtils util;
+
+		private Process process;
+
+		private Deadline(final ProcessUtils util, final Process process) {
+			this.util = util;
+			this.process = process;
+		}
+
+		public synchronized void run() {
+			if (process != null) {
+				util.timedOut = true;
+				process.destroy();
+			}
+		}
+
+		public synchronized boolean cancel() {
+			util = null;
+			process = null;
+			return super.cancel();
+		}
+	}
+
+	/**
+	 * Reads the error stream of a process until the process closes it.
+	 */
+	private static final class ErrorReader extends Thread {
+		private final InputStream stream;
+
+		private final StringBuffer message = new StringBuffer();
+
+		private ErrorReader(final InputStream stream) {
+			super("svn error stream");
+			this.stream = stream;
+			setDaemon(true);
+		}
+
+		public void run() {
+			final LookaheadReader reader = new LookaheadReader(new InputStreamReader(stream));
+			try {
+				while (reader.hasNextLine()) {
+					synchronized (message) {
+						message.append(reader.nextLine());
+					}
+				}
+			} catch (final IOException e) {
+				// the process was killed or its stream closed
+			} finally {
+				try {
+					stream.close();
+				} catch (final IOException e) {
+					// nothing more can be done with it.
+				}
+			}
+		}
+
+		private String getMessage() {
+			synchronized (message) {
+				return message.toString();
+			}
+		}
+	}
 }
@@ -5,8 +5,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.BitSet;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -102,9 +101,9 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
                             + sCurrentRevision + " url:" + sCurrentUrl + " kind:" + sCurrentKind);
                 }
 
-                getInfoUtils().HM_REVISIONS.put(getInfoUtils().urlToRelativePath(sCurrentUrl), sCurrentRevision);
+                getInfoUtils().setRevisionNumber(getInfoUtils().urlToRelativePath(sCurrentUrl), sCurrentRevision);
                 if (sCurrentKind.equals("dir")) {
-                    getInfoUtils().HS_DIRECTORIES.add(getInfoUtils().urlToRelativePath(sCurrentUrl));
+                    getInfoUtils().addDirectory(getInfoUtils().urlToRelativePath(sCurrentUrl));
                 }
             } else if (eName.equals("uuid")) {
                 getInfoUtils().setRepositoryUuid(stringData);
@@ -187,11 +186,19 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
     // enable caching to speed up calculations
     private final boolean ENABLE_CACHING = true;
 
-    // relative path -> Revision Number
-    protected final HashMap HM_REVISIONS = new HashMap();
+    private static final int INITIAL_PATHS = 1024;
 
-    // if HashSet contains relative path, path is a directory.
-    protected final HashSet HS_DIRECTORIES = new HashSet();
+    // path id -> Revision Number
+    private String[] revisionNumbers = new String[INITIAL_PATHS];
+
+    // if BitSet contains path id, path is a directory.
+    private final BitSet directories = new BitSet();
+
+    // the paths of the repository, by id.
+    private final PathDictionary paths = new PathDictionary();
+
+    // id of the module in paths, NONE until computed.
+    private volatile int modulePathId = PathDictionary.NONE;
 
     // Path of . in repository. Can only be calculated if given an element from
     // the SVN log.
@@ -236,20 +243,49 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
     /* (non-Javadoc)
      * @see net.sf.statsvn.util.ISvnInfoProcessor#relativePathToUrl(java.lang.String)
      */
-    public String relativePathToUrl(String relative) {
-        relative = relative.replace('\\', '/');
-        if (relative.equals(".") || relative.length() == 0) {
-            return getRootUrl();
-        } else {
-            return getRootUrl() + "/" + (relative.endsWith("/") ? relative.substring(0, relative.length() - 1) : relative);
-        }
+    public String relativePathToUrl(final String relative) {
+        return paths.getUrl(getPathId(relative), getModulePathId(), getRootUrl());
     }
 
     /* (non-Javadoc)
      * @see net.sf.statsvn.util.ISvnInfoProcessor#relativeToAbsolutePath(java.lang.String)
      */
     public String relativeToAbsolutePath(final String relative) {
-        return urlToAbsolutePath(relativePathToUrl(relative));
+        return paths.getAbsolutePath(getPathId(relative));
+    }
+
+    /**
+     * Gives the id of a relative path in the path dictionary, adding it if
+     * needed.
+     * 
+     * @param relative
+     *            Example: src/Messages.java
+     * @return the id of the path.
+     */
+    private int getPathId(final String relative) {
+        return paths.getId(getModulePathId(), relative.replace('\\', '/'));
+    }
+
+    /* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnInfoProcessor#getPathDictionary()
+     */
+    public PathDictionary getPathDictionary() {
+        return paths;
+    }
+
+    /* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnInfoProcessor#getModulePathId()
+     */
+    public int getModulePathId() {
+        int id = modulePathId;
+        if (id == PathDictionary.NONE) {
+            if (getRootUrl() == null || getRepositoryUrl() == null) {
+                return PathDictionary.ROOT;
+            }
+            id = paths.getId(getModuleName());
+            modulePathId = id;
+        }
+        return id;
     }
 
     /* (non-Javadoc)
@@ -285,13 +321,36 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
      * @see net.sf.statsvn.util.ISvnInfoProcessor#getRevisionNumber(java.lang.String)
      */
     public String getRevisionNumber(final String relativePath) {
-        if (HM_REVISIONS.containsKey(relativePath)) {
-            return HM_REVISIONS.get(relativePath).toString();
+        final int id = paths.findId(getModulePathId(), relativePath);
+        final String[] numbers = revisionNumbers;
+        if (id != PathDictionary.NONE && id < numbers.length) {
+            return numbers[id];
         } else {
             return null;
         }
     }
 
+    /**
+     * Records the revision number of a path found by svn info.
+     * 
+     * @param relativePath
+     *            the path, or null if it is not in the working folder.
+     * @param revisionNumber
+     *            its revision number.
+     */
+    protected void setRevisionNumber(final String relativePath, final String revisionNumber) {
+        if (relativePath == null) {
+            return;
+        }
+        final int id = getPathId(relativePath);
+        if (id >= revisionNumbers.length) {
+            final String[] newRevisionNumbers = new String[Math.max(id + 1, revisionNumbers.length * 2)];
+            System.arraycopy(revisionNumbers, 0, newRevisionNumbers, 0, revisionNumbers.length);
+            revisionNumbers = newRevisionNumbers;
+        }
+        revisionNumbers[id] = revisionNumber;
+    }
+
     /* (non-Javadoc)
      * @see net.sf.statsvn.util.ISvnInfoProcessor#getRootRevisionNumber()
      */
@@ -347,15 +406,16 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
      * @see net.sf.statsvn.util.ISvnInfoProcessor#isDirectory(java.lang.String)
      */
     public boolean isDirectory(final String relativePath) {
-        return HS_DIRECTORIES.contains(relativePath);
+        final int id = paths.findId(getModulePathId(), relativePath);
+        return id != PathDictionary.NONE && directories.get(id);
     }
 
     /* (non-Javadoc)
      * @see net.sf.statsvn.util.ISvnInfoProcessor#addDirectory(java.lang.String)
      */
     public void addDirectory(final String relativePath) {
-        if (!HS_DIRECTORIES.contains(relativePath)) {
-            HS_DIRECTORIES.add(relativePath);
+        if (relativePath != null) {
+            directories.set(getPathId(relativePath));
         }
     }
 
@@ -367,7 +427,7 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
      * @return true if we it needs to be re-invoked.
      */
     protected boolean isQueryNeeded(boolean bRootOnly) {
-        return !ENABLE_CACHING || (bRootOnly && sRootUrl == null) || (!bRootOnly && HM_REVISIONS == null);
+        return !ENABLE_CACHING || (bRootOnly && sRootUrl == null) || (!bRootOnly && revisionNumbers == null);
     }
 
     /**
@@ -418,8 +478,8 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
     }
 
     protected void clearCache() {
-        HM_REVISIONS.clear();
-        HS_DIRECTORIES.clear();
+        revisionNumbers = new String[INITIAL_PATHS];
+        directories.clear();
     }
 
     /* (non-Javadoc)
@@ -480,6 +540,7 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
         }
 
         sModuleName = null;
+        modulePathId = PathDictionary.NONE;
     }
 
     /**
@@ -495,6 +556,7 @@ public class SvnInfoUtils implements ISvnInfoProcessor {
         }
 
         sModuleName = null;
+        modulePathId = PathDictionary.NONE;
     }
     
 
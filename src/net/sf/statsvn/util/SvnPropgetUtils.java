@@ -19,7 +19,8 @@ import net.sf.statsvn.output.SvnConfigurationOptions;
  */
 public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 
-	protected List binaryFiles;
+	/** Published once filled, as it is read by the parsing threads. */
+	protected volatile List binaryFiles;
 
     protected ISvnProcessor processor;
 
@@ -83,23 +84,34 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
      */
 	public List getBinaryFiles() {
 		if (binaryFiles == null) {
-			ProcessUtils pUtils = null;
-			try {
-				pUtils = getFileMimeTypes();
-				loadBinaryFiles(pUtils);
-			} finally {
-				if (pUtils != null) {
-					try {
-						pUtils.close();
-					} catch (final IOException e) {
-						SvnConfigurationOptions.getTaskLogger().info(e.toString());
-					}
-				}
-			}
+			loadAllBinaryFiles();
 		}
 
 		return binaryFiles;
 	}
+
+	/**
+	 * Runs svn propget once, even if several threads need the binary files at
+	 * the same time.
+	 */
+	private synchronized void loadAllBinaryFiles() {
+		if (binaryFiles != null) {
+			return;
+		}
+		ProcessUtils pUtils = null;
+		try {
+			pUtils = getFileMimeTypes();
+			loadBinaryFiles(pUtils);
+		} finally {
+			if (pUtils != null) {
+				try {
+					pUtils.close();
+				} catch (final IOException e) {
+					SvnConfigurationOptions.getTaskLogger().info(e.toString());
+				}
+			}
+		}
+	}
 	
 	
     /**
@@ -128,14 +140,14 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	 *            Send the ProcessUtils inputstream 
 	 */
 	protected void loadBinaryFiles(final ProcessUtils pUtils) {
-		binaryFiles = new ArrayList();
+		final List files = new ArrayList();
 		final LookaheadReader mimeReader = new LookaheadReader(new InputStreamReader(pUtils.getInputStream()));
 		try {
 			while (mimeReader.hasNextLine()) {
 				mimeReader.nextLine();
 				final String file = getBinaryFilename(mimeReader.getCurrentLine(), false);
 				if (file != null) {
-					binaryFiles.add(file);
+					files.add(file);
 				}
 			}
 			if (pUtils.hasErrorOccured()) {
@@ -144,6 +156,8 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 		} catch (final IOException e) {
 			SvnConfigurationOptions.getTaskLogger().info(e.getMessage());
 		}
+		// only published once complete
+		binaryFiles = files;
 	}
 
 	/* (non-Javadoc)
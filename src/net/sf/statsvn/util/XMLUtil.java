@@ -4,9 +4,7 @@ import java.io.File;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 import javax.xml.transform.OutputKeys;
@@ -39,6 +37,16 @@ public final class XMLUtil {
 
 	private static final int NORMAL_IDOT_POSITION = 19;
 
+	private static final long DAY_IN_MILLISECS = 24L * 60 * 60 * ONE_SEC_IN_MILLISECS;
+
+	/** Dates before the gregorian cutover are left to the calendar. */
+	private static final int MIN_FAST_YEAR = 1600;
+
+	/** Up to 8 digits, a float from the fraction is the same as Float.parseFloat. */
+	private static final long[] FRACTION_SCALES = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L };
+
+	private static final long NOT_PARSED = Long.MIN_VALUE;
+
 	/**
 	 * A utility class (only static methods) should be final and have
 	 * a private constructor.
@@ -54,7 +62,119 @@ public final class XMLUtil {
 	 * @return an equivalent java.util.Date
 	 * @throws ParseException
 	 */
-	public static Date parseXsdDateTime(String sDateTime) throws ParseException {
+	public static Date parseXsdDateTime(final String sDateTime) throws ParseException {
+		return parseXsdDateTime(sDateTime, TimeZone.getDefault());
+	}
+
+	/**
+	 * Same as (@link #parseXsdDateTime(String)), the local timezone being given
+	 * by the caller so that it is not looked up for every date. The
+	 * <tt>yyyy-MM-ddTHH:mm:ss.ffffffZ</tt> layout written by svn is read
+	 * directly; other forms, and dates close to a daylight saving time change,
+	 * go through <tt>SimpleDateFormat</tt>.
+	 * 
+	 * @param sDateTime
+	 *            an xsd:dateTime string
+	 * @param localZone
+	 *            the default timezone
+	 * @return an equivalent java.util.Date
+	 * @throws ParseException
+	 */
+	public static Date parseXsdDateTime(final CharSequence sDateTime, final TimeZone localZone) throws ParseException {
+		final long time = parseSvnDateTime(sDateTime, localZone);
+		if (time == NOT_PARSED) {
+			return parseXsdDateTimeWithFormat(sDateTime.toString());
+		}
+		return new Date(time);
+	}
+
+	/**
+	 * Computes the time of a <tt>yyyy-MM-ddTHH:mm:ss[.f*]Z</tt> date the way
+	 * (@link #parseXsdDateTimeWithFormat(String)) does: the fields are read
+	 * as local time, then shifted by the current offset from GMT.
+	 * 
+	 * @return the time in milliseconds, or (@link #NOT_PARSED) if the date
+	 *         must go through the calendar.
+	 */
+	private static long parseSvnDateTime(final CharSequence sDateTime, final TimeZone localZone) {
+		final int length = sDateTime.length();
+		if (length <= NORMAL_IDOT_POSITION || sDateTime.charAt(length - 1) != 'Z' || sDateTime.charAt(4) != '-' || sDateTime.charAt(7) != '-'
+		        || sDateTime.charAt(10) != 'T' || sDateTime.charAt(13) != ':' || sDateTime.charAt(16) != ':') {
+			return NOT_PARSED;
+		}
+		final int year = parseDigits(sDateTime, 0, 4);
+		final int month = parseDigits(sDateTime, 5, 2);
+		final int day = parseDigits(sDateTime, 8, 2);
+		final int hour = parseDigits(sDateTime, 11, 2);
+		final int minute = parseDigits(sDateTime, 14, 2);
+		final int second = parseDigits(sDateTime, 17, 2);
+		if (year < MIN_FAST_YEAR || month < 1 || month > 12 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+			return NOT_PARSED;
+		}
+
+		int millis = 0;
+		final int fractionDigits = length - NORMAL_IDOT_POSITION - 2;
+		if (fractionDigits >= 0) {
+			if (sDateTime.charAt(NORMAL_IDOT_POSITION) != '.' || fractionDigits == 0 || fractionDigits >= FRACTION_SCALES.length) {
+				return NOT_PARSED;
+			}
+			final int fraction = parseDigits(sDateTime, NORMAL_IDOT_POSITION + 1, fractionDigits);
+			if (fraction < 0) {
+				return NOT_PARSED;
+			}
+			millis = Math.round(((float) ((double) fraction / FRACTION_SCALES[fractionDigits])) * ONE_SEC_IN_MILLISECS);
+		}
+
+		final long wallTime = (((daysFromEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second) * ONE_SEC_IN_MILLISECS;
+		final int offset = localZone.getOffset(wallTime - localZone.getRawOffset());
+		final long localTime = wallTime - offset;
+		if (localZone.getOffset(localTime) != offset || localZone.getOffset(localTime - DAY_IN_MILLISECS) != offset
+		        || localZone.getOffset(localTime + DAY_IN_MILLISECS) != offset) {
+			// local time may be skipped or repeated, let the calendar decide.
+			return NOT_PARSED;
+		}
+		return localTime + millis + localZone.getOffset(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the value of the ascii digits, or -1 if there is another
+	 *         character.
+	 */
+	private static int parseDigits(final CharSequence s, final int start, final int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			final char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of days between 1970-01-01 and the given date of the
+	 *         gregorian calendar; days past the end of the month continue in
+	 *         the next month.
+	 */
+	private static long daysFromEpoch(final int year, final int month, final int day) {
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = y / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * ((month + 9) % 12) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	/**
+	 * Parses any xsd:dateTime through <tt>SimpleDateFormat</tt>.
+	 * 
+	 * @param sDateTime
+	 *            an xsd:dateTime string
+	 * @return an equivalent java.util.Date
+	 * @throws ParseException
+	 */
+	static Date parseXsdDateTimeWithFormat(String sDateTime) throws ParseException {
 		final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
 		int iDotPosition = NORMAL_IDOT_POSITION;
@@ -102,11 +222,8 @@ public final class XMLUtil {
 	 * @return the date in local timezone
 	 */
 	public static Date offsetDateFromGMT(final Date date) {
-		// Create a calendar - it will default to the current OS timezone.
-		final GregorianCalendar gc = new GregorianCalendar();
-
-		// Calculate the total offset from GMT
-		final int totalOffset = gc.get(Calendar.ZONE_OFFSET) + gc.get(Calendar.DST_OFFSET);
+		// Calculate the total offset from GMT, now, in the current OS timezone.
+		final int totalOffset = TimeZone.getDefault().getOffset(System.currentTimeMillis());
 
 		// Calculate the time in GMT
 		final long localTime = date.getTime() + totalOffset;
@@ -1,13 +1,13 @@
 package net.sf.statsvn.util.svnkit;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.Vector;
 
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.BinaryDiffException;
+import net.sf.statsvn.util.DiffLineCounter;
+import net.sf.statsvn.util.DiffResult;
+import net.sf.statsvn.util.IDiffResultHandler;
 import net.sf.statsvn.util.StringUtils;
 import net.sf.statsvn.util.SvnDiffUtils;
 
@@ -54,24 +54,32 @@ public class SvnKitDiff extends SvnDiffUtils {
     }
 
     /**
-     * Gets diffs inside one revision. 
+     * Gets diffs inside one revision. The diff is counted as svnkit writes
+     * it, so memory does not depend on its size.
      * 
-     * @return a list of diffs that were extracted from one particular revision    
+     * @param handler receives the diffs that were extracted from one particular revision    
      */
-    public Vector getLineDiff(String newRevNr) throws IOException, BinaryDiffException {
-        ByteArrayOutputStream diffBytes = new ByteArrayOutputStream();
+    public void getLineDiff(String newRevNr, final IDiffResultHandler handler) throws IOException, BinaryDiffException {
+        final File checkoutDirectory = getCheckoutDirectory();
+        DiffLineCounter counter = new DiffLineCounter(new IDiffResultHandler() {
+            public void handleResult(DiffResult result) {
+                handler.handleResult(new DiffResult(replaceRelativePathWithinDiffData(checkoutDirectory, result.getFileName()), result.getLineDiff(),
+                        result.isBinary()));
+            }
+        });
         int revisionNo = Integer.parseInt(newRevNr);
+        final SvnKitClientManagerPool pool = getManagerPool();
+        SVNClientManager manager = pool.lease();
         try {
-            getManager().getDiffClient().doDiff(getCheckoutDirectory(), SVNRevision.create(revisionNo), SVNRevision.create(revisionNo - 1),
-                    SVNRevision.create(revisionNo), SVNDepth.INFINITY, false, diffBytes, null);
+            manager.getDiffClient().doDiff(checkoutDirectory, SVNRevision.create(revisionNo), SVNRevision.create(revisionNo - 1),
+                    SVNRevision.create(revisionNo), SVNDepth.INFINITY, false, counter, null);
         } catch (SVNException ex) {
             handleSvnException(ex);
+        } finally {
+            pool.release(manager);
         }
-        String modDiffDataStr = replaceRelativePathWithinDiffData(getCheckoutDirectory(), diffBytes.toString());
-
-        final Vector answer = new Vector();
-        parseMultipleDiffStream(answer, new ByteArrayInputStream(modDiffDataStr.getBytes()));
-        return answer;
+        // the last file is only complete once svnkit succeeded
+        counter.close();
     }
 
     /**
@@ -83,16 +91,26 @@ public class SvnKitDiff extends SvnDiffUtils {
         int newRevisionNo = Integer.parseInt(newRevNr);
         File newFile = new File(getProcessor().getInfoProcessor().relativeToAbsolutePath(filename));
         File oldFile = newFile;
-        ByteArrayOutputStream diffBytes = new ByteArrayOutputStream();
+        DiffLineCounter counter = new DiffLineCounter();
+        final SvnKitClientManagerPool pool = getManagerPool();
+        SVNClientManager manager = pool.lease();
         try {
-            getManager().getDiffClient().doDiff(oldFile, SVNRevision.create(oldRevisionNo), newFile, SVNRevision.create(newRevisionNo), SVNDepth.INFINITY,
-                    false, diffBytes, null);
+            manager.getDiffClient().doDiff(oldFile, SVNRevision.create(oldRevisionNo), newFile, SVNRevision.create(newRevisionNo), SVNDepth.INFINITY,
+                    false, counter, null);
         } catch (SVNException ex) {
             handleSvnException(ex);
+        } finally {
+            pool.release(manager);
         }
-        String modDiffDataStr = replaceRelativePathWithinDiffData(getCheckoutDirectory(), diffBytes.toString());
+        counter.close();
+        return counter.getLineDiff();
+    }
 
-        return parseSingleDiffStream(new ByteArrayInputStream(modDiffDataStr.getBytes()));
+    /**
+     * Disposes the client managers leased by the diffs. 
+     */
+    public void dispose() {
+        getSvnKitProcessor().disposeManagerPool();
     }
 
     /**
@@ -104,6 +122,15 @@ public class SvnKitDiff extends SvnDiffUtils {
         return getSvnKitProcessor().getManager();
     }
 
+    /**
+     * Shorthand for the pool of svnkit client managers leased by the diffs. 
+     * 
+     * @return the pool of client managers
+     */
+    public SvnKitClientManagerPool getManagerPool() {
+        return getSvnKitProcessor().getManagerPool();
+    }
+
     /**
      * Shorthand to get the base processor 
      * @return the base processor 
@@ -30,6 +30,7 @@ public class SvnKitProcessor implements ISvnProcessor {
     
     private ISvnInfoProcessor infoProcessorInstance;
     private SVNClientManager manager;
+    private SvnKitClientManagerPool managerPool;
     
     private ISvnPropgetProcessor propgetProcessorInstance;
     private ISvnVersionProcessor versionProcessorInstance;
@@ -57,23 +58,57 @@ public class SvnKitProcessor implements ISvnProcessor {
     {
         if (manager==null) 
         {
-            // initialize 
-            DAVRepositoryFactory.setup();
-            SVNRepositoryFactoryImpl.setup();
-            FSRepositoryFactory.setup();
-            
-            //readonly - configuration options are available only for reading
-            DefaultSVNOptions options = SVNWCUtil.createDefaultOptions(true);
-            options.setAuthStorageEnabled(false);
-                    
-            // Creates an instance of SVNClientManager providing an options driver & username & password 
-            if (SvnConfigurationOptions.getSvnUsername()!=null && SvnConfigurationOptions.getSvnPassword()!=null)
-                manager = SVNClientManager.newInstance(options, SvnConfigurationOptions.getSvnUsername(), SvnConfigurationOptions.getSvnPassword());
-            else
-                manager = SVNClientManager.newInstance(options);
+            manager = createManager();
         }
         return manager;
     }  
+
+    /**
+     * Creates a new client manager, with its own repository sessions. 
+     * 
+     * @return the client manager
+     */
+    public synchronized SVNClientManager createManager()
+    {
+        // initialize 
+        DAVRepositoryFactory.setup();
+        SVNRepositoryFactoryImpl.setup();
+        FSRepositoryFactory.setup();
+        
+        //readonly - configuration options are available only for reading
+        DefaultSVNOptions options = SVNWCUtil.createDefaultOptions(true);
+        options.setAuthStorageEnabled(false);
+                
+        // Creates an instance of SVNClientManager providing an options driver & username & password 
+        if (SvnConfigurationOptions.getSvnUsername()!=null && SvnConfigurationOptions.getSvnPassword()!=null)
+            return SVNClientManager.newInstance(options, SvnConfigurationOptions.getSvnUsername(), SvnConfigurationOptions.getSvnPassword());
+        else
+            return SVNClientManager.newInstance(options);
+    }
+
+    /**
+     * The client managers leased by the diff threads, one per thread at most. 
+     * 
+     * @return the pool of client managers
+     */
+    public synchronized SvnKitClientManagerPool getManagerPool()
+    {
+        if (managerPool==null) managerPool = new SvnKitClientManagerPool(this, SvnConfigurationOptions.getNumberSvnDiffThreads());
+        return managerPool;
+    }
+
+    /**
+     * Disposes the client managers of the pool; the next diff creates a new
+     * pool. 
+     */
+    public synchronized void disposeManagerPool()
+    {
+        if (managerPool!=null) 
+        {
+            managerPool.dispose();
+            managerPool = null;
+        }
+    }
     
     public ISvnPropgetProcessor getPropgetProcessor()
     {
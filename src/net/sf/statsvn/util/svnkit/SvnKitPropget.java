@@ -72,21 +72,31 @@ public class SvnKitPropget extends SvnPropgetUtils {
 
     public List getBinaryFiles() {
         if (binaryFiles == null) {
+            loadAllBinaryFiles();
+        }
+
+        return binaryFiles;
+    }
 
-            binaryFiles = new ArrayList();
+    /**
+     * Queries the mime types once, even if several threads need the binary
+     * files at the same time; the list is only published once filled.
+     */
+    private synchronized void loadAllBinaryFiles() {
+        if (binaryFiles != null) {
+            return;
+        }
+        List files = new ArrayList();
+        try {
+            getManager().getWCClient().doGetProperty(getCheckoutDirectory(), SVNProperty.MIME_TYPE, SVNRevision.WORKING, SVNRevision.WORKING,
+                    SVNDepth.INFINITY, new SvnKitPropertyHandler(this, files), null);
+        } catch (SVNException e) {
             try {
-                
-                getManager().getWCClient().doGetProperty(getCheckoutDirectory(), SVNProperty.MIME_TYPE, SVNRevision.WORKING, SVNRevision.WORKING,
-                        SVNDepth.INFINITY, new SvnKitPropertyHandler(this, binaryFiles), null);
-            } catch (SVNException e) {
-                try {
-                    handleSvnException(e);
-                } catch (IOException ex) {
-                }
+                handleSvnException(e);
+            } catch (IOException ex) {
             }
         }
-
-        return binaryFiles;
+        binaryFiles = files;
     }
 
     public File getCheckoutDirectory() {
@@ -47,6 +47,7 @@ public class AllTests {
 		//$JUnit-BEGIN$
 		suite.addTest(net.sf.statsvn.input.AllTests.suite());
 		suite.addTest(net.sf.statsvn.util.AllTests.suite());
+		suite.addTest(net.sf.statsvn.util.svnkit.AllTests.suite());
 		//$JUnit-END$
 		return suite;
 	}
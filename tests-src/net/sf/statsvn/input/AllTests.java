@@ -49,6 +49,12 @@ public class AllTests {
 		suite.addTestSuite(LinesOfCodeTest.class);
 		suite.addTestSuite(FileBuilderTest.class);
 		suite.addTestSuite(CommitListBuilderTest.class);
+		suite.addTestSuite(RevisionListTest.class);
+		suite.addTestSuite(CacheBuilderTest.class);
+		suite.addTestSuite(BinaryCacheFileTest.class);
+		suite.addTestSuite(CacheJournalTest.class);
+		suite.addTestSuite(XmlCacheFileTest.class);
+		suite.addTestSuite(LogCheckpointTest.class);
 
 		// CVS tests
 		/*
@@ -0,0 +1,92 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BinaryCacheFile}
+ *
+ * @version $Id$
+ */
+public class BinaryCacheFileTest extends TestCase {
+	private static final String FILE = CacheFixture.FILE;
+
+	private CacheFixture fixture;
+
+	private RepositoryFileManager repFileMan;
+
+	private Builder builder;
+
+	private File cacheFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fixture = new CacheFixture();
+		builder = fixture.builder;
+		repFileMan = fixture.repFileMan;
+		cacheFile = File.createTempFile("statsvn-cache", ".bin");
+	}
+
+	protected void tearDown() throws Exception {
+		cacheFile.delete();
+		super.tearDown();
+	}
+
+	public void testWrittenCacheIsReadBack() throws IOException {
+		final RevisionData data = fixture.fileRevision;
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision("src/grl/GRLGraph.java", "20", "0", "0", true);
+		cacheBuilder.newRevision(FILE, data.getRevisionNumber(), "12", "7", false);
+		cacheBuilder.newRevision(FILE, "1", "123456789", "0", false);
+		cacheBuilder.newRevision("src/grl/GRLLinkableElement.java", "2", "-1", "x", false);
+		BinaryCacheFile.write(cacheBuilder, cacheFile);
+		assertFalse(new File(cacheFile.getPath() + ".tmp").exists());
+
+		final CacheBuilder readBack = new CacheBuilder(builder, repFileMan);
+		BinaryCacheFile.read(cacheFile, readBack);
+		assertEquals(12, data.getLinesAdded());
+		assertEquals(7, data.getLinesRemoved());
+
+		// paths are sorted by name, revisions by number; unknown line counts
+		// are not read back
+		final CacheContents contents = CacheContents.of(readBack);
+		assertEquals(3, contents.size());
+		assertEquals("/trunk/seg.jUCMNav/src/grl/GRLGraph.java", contents.get(0).name);
+		assertEquals(1, contents.get(0).getRevisionCount());
+		assertEquals(CacheConfiguration.BINARY, contents.get(0).getRevisionStatus(0));
+		final CacheContents.Path path = contents.get(2);
+		assertEquals(CacheFixture.ABSOLUTE_FILE, path.name);
+		assertEquals(CacheConfiguration.UNKNOWN, path.binaryStatus);
+		assertEquals(2, path.getRevisionCount());
+		assertEquals("123456789", path.getAdded(0));
+		assertEquals(0, contents.get(1).getRevisionCount());
+	}
+
+	public void testBinaryStatusIsReadBack() throws IOException {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, "20", "0", "0", true);
+		cacheBuilder.updateBinaryStatus(builder.getFileBuilders().values(), "847");
+		BinaryCacheFile.write(cacheBuilder, cacheFile);
+
+		final CacheBuilder readBack = new CacheBuilder(builder, repFileMan);
+		BinaryCacheFile.read(cacheFile, readBack);
+		assertEquals(cacheBuilder.isBinary(CacheFixture.BINARY_FILE, "847"), readBack.isBinary(
+		        CacheFixture.BINARY_FILE, "847"));
+		assertEquals(builder.getFileBuilders().size(), CacheContents.of(readBack).size());
+	}
+
+	public void testInvalidFile() throws IOException {
+		final FileOutputStream out = new FileOutputStream(cacheFile);
+		out.write("<cache/>".getBytes());
+		out.close();
+		try {
+			BinaryCacheFile.read(cacheFile, new CacheBuilder(builder, repFileMan));
+			fail("expected IOException");
+		} catch (final IOException expected) {
+			// expected
+		}
+	}
+}
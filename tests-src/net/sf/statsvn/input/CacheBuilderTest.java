@@ -0,0 +1,155 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link CacheBuilder}
+ *
+ * @version $Id$
+ */
+public class CacheBuilderTest extends TestCase {
+	private static final String FILE = CacheFixture.FILE;
+
+	private static final String ABSOLUTE_FILE = CacheFixture.ABSOLUTE_FILE;
+
+	private CacheFixture fixture;
+
+	private RepositoryFileManager repFileMan;
+
+	private Builder builder;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fixture = new CacheFixture();
+		builder = fixture.builder;
+		repFileMan = fixture.repFileMan;
+	}
+
+	public void testEmptyCache() throws Exception {
+		assertEquals(0, CacheContents.of(new CacheBuilder(builder, repFileMan)).size());
+	}
+
+	public void testNewRevisionsAreIndexedByPath() throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, "20", "5", "1", false);
+		cacheBuilder.newRevision("src/grl/GRLGraph.java", "20", "0", "0", true);
+		cacheBuilder.newRevision(FILE, "30", "2", "2", false);
+
+		final CacheContents contents = CacheContents.of(cacheBuilder);
+		assertEquals(2, contents.size());
+		final CacheContents.Path path = contents.get(ABSOLUTE_FILE);
+		assertEquals(2, path.getRevisionCount());
+		assertEquals("30", path.getNumber(1));
+	}
+
+	public void testRevisionAddedTwiceIsKeptOnce() throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, "30", "2", "2", false);
+		cacheBuilder.newRevision(FILE, "20", "5", "1", false);
+		cacheBuilder.newRevision(FILE, "30", "3", "4", false);
+
+		final CacheContents.Path path = CacheContents.of(cacheBuilder).get(ABSOLUTE_FILE);
+		assertEquals(2, path.getRevisionCount());
+		assertEquals("20", path.getNumber(0));
+		assertEquals("30", path.getNumber(1));
+		assertEquals("3", path.getAdded(1));
+		assertEquals("4", path.getRemoved(1));
+	}
+
+	public void testConcurrentNewRevisions() throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		final String[] files = { FILE, "src/grl/GRLGraph.java", "src/grl/GRLLinkableElement.java" };
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 300; i++) {
+						cacheBuilder.newRevision(files[i % files.length], String.valueOf(thread * 1000 + i), "1", "1", false);
+						cacheBuilder.isBinary(files[i % files.length], "1");
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+
+		final CacheContents contents = CacheContents.of(cacheBuilder);
+		assertEquals(files.length, contents.size());
+		for (int i = 0; i < contents.size(); i++) {
+			assertEquals(threads.length * 100, contents.get(i).getRevisionCount());
+		}
+	}
+
+	public void testMergeKeepsRevisionsOfBothCaches() throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, "20", "5", "1", false);
+		final CacheBuilder otherCache = new CacheBuilder(null, repFileMan);
+		otherCache.newRevision(FILE, "20", "5", "1", false);
+		otherCache.newRevision(FILE, "30", "2", "2", false);
+		otherCache.newRevision("src/grl/GRLGraph.java", "20", "0", "0", true);
+		cacheBuilder.merge(otherCache);
+
+		final CacheContents contents = CacheContents.of(cacheBuilder);
+		assertEquals(2, contents.size());
+		final CacheContents.Path path = contents.get(ABSOLUTE_FILE);
+		assertEquals(2, path.getRevisionCount());
+		assertEquals("30", path.getNumber(1));
+	}
+
+	public void testBinaryStatus() {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		final ArrayList fileBuilders = new ArrayList();
+		final FileBuilder fileBuilder = (FileBuilder) builder.getFileBuilders().get(FILE);
+		fileBuilders.add(fileBuilder);
+		fileBuilder.setBinary(true);
+		cacheBuilder.updateBinaryStatus(fileBuilders, "100");
+		assertTrue(cacheBuilder.isBinary(FILE, "100"));
+		assertFalse(cacheBuilder.isBinary(FILE, "101"));
+		assertFalse(cacheBuilder.isBinary("src/grl/GRLGraph.java", "100"));
+
+		fileBuilder.setBinary(false);
+		cacheBuilder.updateBinaryStatus(fileBuilders, "99");
+		assertTrue(cacheBuilder.isBinary(FILE, "100"));
+		cacheBuilder.updateBinaryStatus(fileBuilders, "101");
+		assertFalse(cacheBuilder.isBinary(FILE, "100"));
+	}
+
+	public void testSavedCacheIsReadBack() throws Exception {
+		final RevisionData data = fixture.fileRevision;
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, data.getRevisionNumber(), "12", "7", false);
+
+		final File cacheFile = File.createTempFile("statsvn-cache", ".xml");
+		try {
+			XmlCacheFile.write(cacheBuilder, cacheFile);
+			final CacheBuilder readBack = readCache(cacheFile);
+			assertEquals(12, data.getLinesAdded());
+			assertEquals(7, data.getLinesRemoved());
+			final CacheContents.Path path = CacheContents.of(readBack).get(0);
+			assertEquals(ABSOLUTE_FILE, path.name);
+			assertEquals("12", path.getAdded(0));
+		} finally {
+			cacheFile.delete();
+		}
+	}
+
+	private CacheBuilder readCache(final File cacheFile) throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		final FileInputStream stream = new FileInputStream(cacheFile);
+		try {
+			SAXParserFactory.newInstance().newSAXParser().parse(stream, new SvnXmlCacheFileHandler(cacheBuilder));
+		} finally {
+			stream.close();
+		}
+		return cacheBuilder;
+	}
+}
@@ -0,0 +1,106 @@
+package net.sf.statsvn.input;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Records what a {@link CacheBuilder} writes, the paths sorted by name, so
+ * that the tests can check the content of a cache.
+ *
+ * @version $Id$
+ */
+final class CacheContents implements CacheWriter {
+	private final List paths = new ArrayList();
+
+	private CacheContents() {
+	}
+
+	/**
+	 * @param cacheBuilder
+	 *            the cache
+	 * @return what the cache holds
+	 */
+	static CacheContents of(final CacheBuilder cacheBuilder) throws IOException {
+		final CacheContents contents = new CacheContents();
+		cacheBuilder.write(contents);
+		return contents;
+	}
+
+	int size() {
+		return paths.size();
+	}
+
+	Path get(final int index) {
+		return (Path) paths.get(index);
+	}
+
+	/**
+	 * @param name
+	 *            the absolute name of a path
+	 * @return the path, or null if the cache does not hold it
+	 */
+	Path get(final String name) {
+		for (final Iterator it = paths.iterator(); it.hasNext();) {
+			final Path path = (Path) it.next();
+			if (path.name.equals(name)) {
+				return path;
+			}
+		}
+		return null;
+	}
+
+	public void startCache(final String project) {
+	}
+
+	public void writePath(final String name, final String latestRevision, final String binaryStatus, final int revisionCount) {
+		paths.add(new Path(name, latestRevision, binaryStatus));
+	}
+
+	public void writeRevision(final String number, final String added, final String removed, final String binaryStatus) {
+		get(paths.size() - 1).revisions.add(new String[] { number, added, removed, binaryStatus });
+	}
+
+	public void endCache() {
+	}
+
+	/**
+	 * A path of the cache and its revisions.
+	 */
+	static final class Path {
+		final String name;
+
+		final String latestRevision;
+
+		final String binaryStatus;
+
+		private final List revisions = new ArrayList();
+
+		private Path(final String name, final String latestRevision, final String binaryStatus) {
+			this.name = name;
+			this.latestRevision = latestRevision;
+			this.binaryStatus = binaryStatus;
+		}
+
+		int getRevisionCount() {
+			return revisions.size();
+		}
+
+		String getNumber(final int index) {
+			return ((String[]) revisions.get(index))[0];
+		}
+
+		String getAdded(final int index) {
+			return ((String[]) revisions.get(index))[1];
+		}
+
+		String getRemoved(final int index) {
+			return ((String[]) revisions.get(index))[2];
+		}
+
+		String getRevisionStatus(final int index) {
+			return ((String[]) revisions.get(index))[3];
+		}
+	}
+}
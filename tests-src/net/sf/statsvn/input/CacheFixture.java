@@ -0,0 +1,59 @@
+package net.sf.statsvn.input;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+
+import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statcvs.output.ConfigurationException;
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnCommandLineParser;
+
+/**
+ * A small builder for the cache tests, built afresh for each test: a few
+ * files of the jUCMNav sample with a revision each, and the repository file
+ * manager of the sample to convert their paths.
+ *
+ * @version $Id$
+ */
+final class CacheFixture {
+	static final String FILE = "src/grl/GRLNode.java";
+
+	static final String ABSOLUTE_FILE = "/trunk/seg.jUCMNav/" + FILE;
+
+	static final String BINARY_FILE = "src/seg/jUCMNav/icons/ContributionDest16.gif";
+
+	final RepositoryFileManager repFileMan;
+
+	final Builder builder;
+
+	/** The revision of (@link #FILE), without line counts. */
+	final RevisionData fileRevision;
+
+	CacheFixture() throws ConfigurationException, IOException, LogSyntaxException {
+		final String sRoot = SvnLogfileParserTest.sRoot;
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir",
+		        System.getProperty("java.io.tmpdir") };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+		repFileMan.loadInfo();
+		builder = new Builder(repFileMan, null, null, null);
+		builder.buildModule("jUCMNav");
+		fileRevision = buildFile(FILE, false, "812");
+		buildFile("src/grl/GRLGraph.java", false, "812");
+		buildFile("src/grl/GRLLinkableElement.java", false, "640");
+		buildFile(BINARY_FILE, true, "420");
+	}
+
+	private RevisionData buildFile(final String name, final boolean isBinary, final String revision) {
+		builder.buildFile(name, isBinary, false, new HashMap(), new HashMap());
+		final RevisionData data = new RevisionData();
+		data.setRevisionNumber(revision);
+		data.setLoginName("jkealey");
+		data.setDate(new Date(1136073600000L));
+		data.setStateAdded(true);
+		builder.buildRevision(data);
+		return data;
+	}
+}
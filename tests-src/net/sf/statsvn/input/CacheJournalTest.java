@@ -0,0 +1,105 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link CacheJournal}
+ *
+ * @version $Id$
+ */
+public class CacheJournalTest extends TestCase {
+	private static final String FILE = CacheFixture.FILE;
+
+	private static final String PREFIX = "cache_test.";
+
+	private CacheFixture fixture;
+
+	private RepositoryFileManager repFileMan;
+
+	private Builder builder;
+
+	private File directory;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fixture = new CacheFixture();
+		builder = fixture.builder;
+		repFileMan = fixture.repFileMan;
+		directory = new File(System.getProperty("java.io.tmpdir"), "statsvn-journal-test");
+		directory.mkdirs();
+	}
+
+	protected void tearDown() throws Exception {
+		final File[] files = directory.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			files[i].delete();
+		}
+		directory.delete();
+		super.tearDown();
+	}
+
+	public void testNewRevisionsAreReplayed() throws IOException {
+		final RevisionData data = fixture.fileRevision;
+		final CacheJournal journal = CacheJournal.create(directory, PREFIX);
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.setJournal(journal);
+		cacheBuilder.newRevision(FILE, data.getRevisionNumber(), "12", "7", false);
+		cacheBuilder.newRevision("src/grl/GRLGraph.java", "20", "0", "0", true);
+		journal.close();
+
+		final List journals = CacheJournal.findUnused(directory, PREFIX);
+		assertEquals(1, journals.size());
+		final CacheBuilder readBack = new CacheBuilder(builder, repFileMan);
+		assertEquals(2, ((CacheJournal) journals.get(0)).replay(readBack));
+		assertEquals(12, data.getLinesAdded());
+		assertEquals(7, data.getLinesRemoved());
+		final CacheContents contents = CacheContents.of(readBack);
+		assertEquals(2, contents.size());
+		assertEquals("12", contents.get(CacheFixture.ABSOLUTE_FILE).getAdded(0));
+		assertEquals(CacheConfiguration.BINARY, contents.get("/trunk/seg.jUCMNav/src/grl/GRLGraph.java").getRevisionStatus(0));
+	}
+
+	public void testRecordCutShortIsIgnored() throws IOException {
+		final CacheJournal journal = CacheJournal.create(directory, PREFIX);
+		journal.append(CacheFixture.ABSOLUTE_FILE, "20", "5", "1", CacheConfiguration.NOT_BINARY);
+		journal.append("/trunk/seg.jUCMNav/src/grl/GRLGraph.java", "20", "3", "0", CacheConfiguration.NOT_BINARY);
+		journal.close();
+		final File journalFile = directory.listFiles()[0];
+		final long length = journalFile.length();
+		final RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+		try {
+			file.setLength(length - 3);
+		} finally {
+			file.close();
+		}
+
+		final CacheJournal unused = (CacheJournal) CacheJournal.findUnused(directory, PREFIX).get(0);
+		assertEquals(1, unused.replay(new CacheBuilder(builder, repFileMan)));
+		unused.close();
+		assertTrue(journalFile.length() < length - 3);
+	}
+
+	public void testJournalClearedByCompactionIgnoresLateRevisions() throws IOException {
+		final CacheJournal journal = CacheJournal.create(directory, PREFIX);
+		assertEquals(0, journal.length());
+		journal.append(CacheFixture.ABSOLUTE_FILE, "20", "5", "1", CacheConfiguration.NOT_BINARY);
+		assertTrue(journal.length() > 0);
+		journal.clear();
+		journal.append(CacheFixture.ABSOLUTE_FILE, "30", "2", "2", CacheConfiguration.NOT_BINARY);
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	public void testJournalInUseIsNotReplayed() throws IOException {
+		final CacheJournal journal = CacheJournal.create(directory, PREFIX);
+		journal.append(CacheFixture.ABSOLUTE_FILE, "20", "5", "1", CacheConfiguration.NOT_BINARY);
+		assertEquals(0, CacheJournal.findUnused(directory, PREFIX).size());
+		assertEquals(0, CacheJournal.findUnused(directory, "cache_other.").size());
+		journal.clear();
+		assertEquals(0, directory.listFiles().length);
+	}
+}
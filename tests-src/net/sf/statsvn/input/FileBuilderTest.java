@@ -149,6 +149,18 @@ public class FileBuilderTest extends TestCase {
 	//		assertEquals("1.1", file.getInitialRevision().getRevisionNumber());
 	//	}
 
+	public void testUpdateRevision() throws Exception {
+		initBuilder("file", false);
+		fb.addRevisionData(rev1branch);
+		fb.addRevisionData(rev1);
+		fb.updateRevision("1", 10, 3);
+		fb.updateRevision("5", 20, 2);
+		assertEquals(10, rev1.getLinesAdded());
+		assertEquals(3, rev1.getLinesRemoved());
+		assertEquals(100, rev1branch.getLinesAdded());
+		assertFalse(rev1.hasNoLines());
+	}
+
 	private void initBuilder(final String filename, final boolean isBinary) {
 		fb = new FileBuilder(builder, filename, isBinary, new HashMap(), new HashMap());
 	}
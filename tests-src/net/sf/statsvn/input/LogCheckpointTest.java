@@ -0,0 +1,85 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LogCheckpoint}
+ *
+ * @version $Id$
+ */
+public class LogCheckpointTest extends TestCase {
+	private static final String FILE = CacheFixture.FILE;
+
+	private static final String COPY = "src/grl/GRLNodeCopy.java";
+
+	private RepositoryFileManager repFileMan;
+
+	private File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		repFileMan = new CacheFixture().repFileMan;
+		file = File.createTempFile("statsvn", ".checkpoint");
+		file.delete();
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+		new File(file.getPath() + ".tmp").delete();
+		super.tearDown();
+	}
+
+	public void testEntriesAreReadBack() throws IOException {
+		final List entries = new ArrayList();
+		entries.add(new RecordingLogBuilder.Entry(COPY, false, false, revision("30", FILE)));
+		entries.add(new RecordingLogBuilder.Entry(FILE, false, false, revision("20", null)));
+		entries.add(new RecordingLogBuilder.Entry(FILE, false, false, revision("10", null)));
+		final LogCheckpoint checkpoint = new LogCheckpoint("jUCMNav", "settings", true);
+		checkpoint.merge(entries, null, new HashMap(), new HashMap(), 30);
+		checkpoint.write(file);
+
+		final LogCheckpoint readBack = LogCheckpoint.read(file);
+		assertEquals(30, readBack.getRevision());
+		final Builder builder = new Builder(repFileMan, null, null, null);
+		builder.buildModule("jUCMNav");
+		readBack.replay(builder, repFileMan);
+		final List copyRevisions = ((FileBuilder) builder.getFileBuilders().get(COPY)).getRevisions();
+		assertEquals(1, copyRevisions.size());
+		assertEquals(FILE, ((RevisionData) copyRevisions.get(0)).getCopyfromPath());
+		final List fileRevisions = ((FileBuilder) builder.getFileBuilders().get(FILE)).getRevisions();
+		assertEquals(2, fileRevisions.size());
+		assertNull(((RevisionData) fileRevisions.get(1)).getCopyfromPath());
+	}
+
+	public void testInterruptedReplaceIsReadFromTemporaryFile() throws IOException {
+		final LogCheckpoint checkpoint = new LogCheckpoint("jUCMNav", "settings", true);
+		checkpoint.merge(new ArrayList(), null, new HashMap(), new HashMap(), 30);
+		checkpoint.write(file);
+		assertTrue(file.renameTo(new File(file.getPath() + ".tmp")));
+
+		final LogCheckpoint readBack = LogCheckpoint.read(file);
+		assertTrue(readBack.isValidFor("jUCMNav", "settings"));
+		assertEquals(30, readBack.getRevision());
+	}
+
+	private static RevisionData revision(final String number, final String copyfromPath) {
+		final RevisionData data = new RevisionData();
+		data.setRevisionNumber(number);
+		data.setLoginName("jkealey");
+		data.setDate(new Date(1136073600000L));
+		data.setStateExp(true);
+		data.setStateAdded(copyfromPath != null);
+		if (copyfromPath != null) {
+			data.setCopyfromPath(copyfromPath);
+			data.setCopyfromRevision("20");
+		}
+		return data;
+	}
+}
@@ -62,6 +62,12 @@ public class MockLogBuilder implements SvnLogBuilder {
 		Assert.assertEquals(expectedData.removeFirst(), Boolean.valueOf(isInAttic));
 	}
 
+	/* (non-Javadoc)
+	 * @see net.sf.statsvn.input.SvnLogBuilder#buildFilteredRevision(net.sf.statsvn.input.RevisionData)
+	 */
+	public void buildFilteredRevision(final RevisionData data) {
+	}
+
 	/* (non-Javadoc)
 	 * @see net.sf.statsvn.input.SvnLogBuilder#buildRevision(net.sf.statsvn.input.RevisionData)
 	 */
@@ -0,0 +1,130 @@
+package net.sf.statsvn.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link RevisionList}
+ *
+ * @version $Id$
+ */
+public class RevisionListTest extends TestCase {
+	private RevisionList list;
+
+	private RevisionData rev3;
+
+	private RevisionData rev2;
+
+	private RevisionData rev1;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		list = new RevisionList();
+		rev3 = createRevision("3");
+		rev2 = createRevision("2");
+		rev1 = createRevision("1");
+	}
+
+	private static RevisionData createRevision(final String revisionNumber) {
+		final RevisionData data = new RevisionData();
+		data.setRevisionNumber(revisionNumber);
+		return data;
+	}
+
+	private void assertRevisions(final int[] expected) {
+		assertEquals(expected.length, list.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], list.getRevision(i));
+			assertEquals(String.valueOf(expected[i]), ((RevisionData) list.get(i)).getRevisionNumber());
+		}
+	}
+
+	public void testAddKeepsRevisionColumn() {
+		list.add(rev3);
+		list.add(rev1);
+		list.add(1, rev2);
+		assertRevisions(new int[] { 3, 2, 1 });
+		assertSame(rev2, list.get(1));
+	}
+
+	public void testGrowsBeyondInitialCapacity() {
+		for (int i = 100; i > 0; i--) {
+			list.add(createRevision(String.valueOf(i)));
+		}
+		assertEquals(100, list.size());
+		assertEquals(100, list.getRevision(0));
+		assertEquals(1, list.getRevision(99));
+	}
+
+	public void testRemoveAllIsByIdentity() {
+		list.addAll(Arrays.asList(new Object[] { rev3, rev2, rev1 }));
+		final List toRemove = new ArrayList();
+		toRemove.add(rev2);
+		toRemove.add(createRevision("1"));
+		assertTrue(list.removeAll(toRemove));
+		assertRevisions(new int[] { 3, 1 });
+		assertFalse(list.removeAll(toRemove));
+	}
+
+	public void testSubListClear() {
+		list.addAll(Arrays.asList(new Object[] { rev3, rev2, rev1 }));
+		list.subList(1, 3).clear();
+		assertRevisions(new int[] { 3 });
+	}
+
+	public void testNonNumericRevision() {
+		list.add(createRevision("0.0"));
+		assertEquals(RevisionData.NO_REVISION, list.getRevision(0));
+	}
+
+	public void testBinarySearchInLogOrder() {
+		for (int i = 100; i > 0; i -= 2) {
+			list.add(createRevision(String.valueOf(i)));
+		}
+		assertTrue(list.isInLogOrder());
+		assertEquals(0, list.indexOfRevision(100));
+		assertEquals(49, list.indexOfRevision(2));
+		assertEquals(-1, list.indexOfRevision(51));
+		assertEquals(-1, list.indexOfRevision(RevisionData.NO_REVISION));
+		assertEquals(25, list.indexOfNotNewer(51, 0));
+		assertEquals(25, list.indexOfNotNewer(50, 0));
+		assertEquals(30, list.indexOfNotNewer(50, 30));
+		assertEquals(0, list.indexOfNotNewer(101, 0));
+		assertEquals(50, list.indexOfNotNewer(1, 0));
+	}
+
+	public void testInsertionKeepsLogOrder() {
+		list.add(rev3);
+		list.add(rev1);
+		list.add(list.indexOfNotNewer(2, 0), rev2);
+		assertTrue(list.isInLogOrder());
+		assertRevisions(new int[] { 3, 2, 1 });
+		list.subList(0, 2).clear();
+		assertTrue(list.isInLogOrder());
+	}
+
+	public void testLinearSearchOutOfLogOrder() {
+		list.add(rev1);
+		list.add(rev3);
+		list.add(rev2);
+		assertFalse(list.isInLogOrder());
+		assertEquals(1, list.indexOfRevision(3));
+		assertEquals(2, list.indexOfRevision(2));
+		list.clear();
+		assertTrue(list.isInLogOrder());
+		list.add(createRevision("0.0"));
+		assertFalse(list.isInLogOrder());
+	}
+
+	public void testOutOfBounds() {
+		try {
+			list.get(0);
+			fail("expected IndexOutOfBoundsException");
+		} catch (final IndexOutOfBoundsException expected) {
+			// expected
+		}
+	}
+}
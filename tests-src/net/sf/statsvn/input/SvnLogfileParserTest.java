@@ -1,13 +1,24 @@
 package net.sf.statsvn.input;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+import javax.xml.parsers.SAXParserFactory;
 
 import junit.framework.TestCase;
 import net.sf.statcvs.input.LogSyntaxException;
 import net.sf.statcvs.output.ConfigurationException;
 import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statcvs.util.FilePatternMatcher;
 import net.sf.statsvn.Main;
 import net.sf.statsvn.output.SvnCommandLineParser;
+import net.sf.statsvn.output.SvnConfigurationOptions;
 
 /**
  * High-level scenarios to verify parsing without actually needing a server.
@@ -19,13 +30,301 @@ public class SvnLogfileParserTest extends TestCase {
 
 	protected final static String sRoot = "./tests-src/net/sf/statsvn/input/samplefiles/";
 
+	private static final int NEW_LOG_ENTRIES = 5;
+
+	/** The cache directory of the tests, kept out of the sample files. */
+	private static final File CACHE_DIR = new File(System.getProperty("java.io.tmpdir"), "statsvn-parser-test");
+
 	protected RepositoryFileManager repFileMan;
 
+	protected void tearDown() throws Exception {
+		final File[] files = CACHE_DIR.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+		}
+		super.tearDown();
+	}
+
 	public void testJUCMNav1() throws ConfigurationException, IOException, LogSyntaxException {
-		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", sRoot };
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
 		new SvnCommandLineParser(args).parse();
 		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
 		        sRoot + "seg.jUCMNav.linecounts");
 		Main.generateDefaultHTMLSuite(repFileMan);
+
+		// the lock files are deleted once released
+		final String[] names = CACHE_DIR.list();
+		for (int i = 0; i < names.length; i++) {
+			assertFalse(names[i], names[i].endsWith(".lock"));
+		}
+	}
+
+	public void testCacheMigratesBetweenFormats() throws Exception {
+		final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "statsvn-cache-format-test");
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", cacheDir.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+		repFileMan.loadInfo();
+		final File xmlCache = new File(cacheDir, "cache_" + repFileMan.getRepositoryUuid() + ".xml");
+		final File binaryCache = new File(cacheDir, "cache_" + repFileMan.getRepositoryUuid() + ".bin");
+		final File repositories = new File(cacheDir, "repositories.xml");
+		repositories.delete();
+		xmlCache.delete();
+		binaryCache.delete();
+
+		try {
+			Main.generateDefaultHTMLSuite(repFileMan);
+			assertTrue(xmlCache.exists());
+			assertFalse(binaryCache.exists());
+
+			SvnConfigurationOptions.setCacheFormat(SvnConfigurationOptions.CACHE_FORMAT_BINARY);
+			Main.generateDefaultHTMLSuite(repFileMan);
+			assertFalse(xmlCache.exists());
+			assertTrue(binaryCache.exists());
+			assertEquals(SvnConfigurationOptions.CACHE_FORMAT_BINARY, readFormat(repositories));
+
+			SvnConfigurationOptions.setCacheFormat(SvnConfigurationOptions.CACHE_FORMAT_XML);
+			Main.generateDefaultHTMLSuite(repFileMan);
+			assertTrue(xmlCache.exists());
+			assertFalse(binaryCache.exists());
+			assertEquals(SvnConfigurationOptions.CACHE_FORMAT_XML, readFormat(repositories));
+		} finally {
+			SvnConfigurationOptions.setCacheFormat(null);
+			final File[] files = cacheDir.listFiles();
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+		}
+	}
+
+	private String readFormat(final File repositories) throws Exception {
+		final RepositoriesBuilder repositoriesBuilder = new RepositoriesBuilder();
+		final FileInputStream stream = new FileInputStream(repositories);
+		try {
+			SAXParserFactory.newInstance().newSAXParser().parse(stream, new SvnXmlRepositoriesFileHandler(repositoriesBuilder));
+		} finally {
+			stream.close();
+		}
+		return repositoriesBuilder.getFormat(repFileMan.getRepositoryUuid());
+	}
+
+	public void testParallelParseMatchesSequentialParse() throws ConfigurationException, IOException, LogSyntaxException {
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+
+		final String sequential = parseAndDescribe(1);
+		final String parallel;
+		try {
+			parallel = parseAndDescribe(4);
+		} finally {
+			SvnConfigurationOptions.setNumberParseThreads(1);
+		}
+		assertEquals(sequential, parallel);
+	}
+
+	public void testParallelVerificationMatchesSequentialVerification() throws ConfigurationException, IOException, LogSyntaxException {
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+
+		final Builder sequential = new Builder(repFileMan, null, null, null);
+		parseAndVerify(sequential);
+		final Builder parallel = new Builder(repFileMan, null, null, null);
+		try {
+			SvnConfigurationOptions.setNumberParseThreads(4);
+			parseAndVerify(parallel);
+		} finally {
+			SvnConfigurationOptions.setNumberParseThreads(1);
+		}
+		assertEquals(describe(sequential), describe(parallel));
+	}
+
+	public void testIncrementalParseMatchesFullParse() throws ConfigurationException, IOException, LogSyntaxException {
+		final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "statsvn-checkpoint-test");
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", cacheDir.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+
+		final File logFile = new File(sRoot + "seg.jUCMNav.log");
+		final File olderLog = File.createTempFile("statsvn-older", ".log");
+		writeWithoutNewestEntries(logFile, olderLog, NEW_LOG_ENTRIES);
+		final String full = parseAndDescribe(1, logFile);
+		final String older = parseAndDescribe(1, olderLog);
+		final File checkpoint = new File(cacheDir, "cache_" + repFileMan.getRepositoryUuid() + ".checkpoint");
+		checkpoint.delete();
+		SvnConfigurationOptions.setIncremental(true);
+		try {
+			assertEquals(older, parseAndDescribe(1, olderLog));
+			final int olderRevision = LogCheckpoint.read(checkpoint).getRevision();
+
+			// only the newest entries are parsed, the rest is replayed
+			assertEquals(full, parseAndDescribe(1, logFile));
+			assertTrue(LogCheckpoint.read(checkpoint).getRevision() > olderRevision);
+			assertEquals(full, parseAndDescribe(1, logFile));
+		} finally {
+			SvnConfigurationOptions.setIncremental(false);
+			checkpoint.delete();
+			olderLog.delete();
+		}
+	}
+
+	/**
+	 * Copies a log, leaving out its first, newest, log entries.
+	 */
+	private static void writeWithoutNewestEntries(final File logFile, final File copy, final int count) throws IOException {
+		final byte[] content = new byte[(int) logFile.length()];
+		final FileInputStream in = new FileInputStream(logFile);
+		try {
+			new DataInputStream(in).readFully(content);
+		} finally {
+			in.close();
+		}
+		final String log = new String(content, "UTF-8");
+		final int first = log.indexOf("<logentry");
+		int rest = first;
+		for (int i = 0; i < count; i++) {
+			rest = log.indexOf("<logentry", rest + 1);
+		}
+		final FileOutputStream out = new FileOutputStream(copy);
+		try {
+			out.write((log.substring(0, first) + log.substring(rest)).getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	public void testModelSnapshotRestoresModel() throws ConfigurationException, IOException, LogSyntaxException {
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+		final File logFile = new File(sRoot + "seg.jUCMNav.log");
+		final Builder builder = new Builder(repFileMan, null, null, null);
+		final SvnLogfileParser parser = new SvnLogfileParser(repFileMan, logFile, builder);
+		parser.parseSvnLog();
+		parser.verifyImplicitActions();
+		parser.removeDirectories();
+
+		final File file = File.createTempFile("statsvn", ".snapshot");
+		try {
+			final String hash = ModelSnapshot.hash(logFile);
+			new ModelSnapshot(file, hash, "settings").write(builder, new HashSet());
+
+			final Builder restored = new Builder(repFileMan, null, null, null);
+			assertFalse(new ModelSnapshot(file, hash, "other settings").restore(restored, repFileMan));
+			assertTrue(restored.getFileBuilders().isEmpty());
+			assertTrue(new ModelSnapshot(file, hash, "settings").restore(restored, repFileMan));
+			assertEquals(describe(builder), describe(restored));
+			assertEquals(builder.getAtticFileNames(), restored.getAtticFileNames());
+			assertEquals(builder.getStartDate(), restored.getStartDate());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testFilteredParseMatchesUnfilteredParse() throws ConfigurationException, IOException, LogSyntaxException {
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+		final FilePatternMatcher include = new FilePatternMatcher("src/seg/jUCMNav/views/**");
+		final FilePatternMatcher exclude = new FilePatternMatcher("**/stub/**");
+
+		final Builder unfiltered = new Builder(repFileMan, null, null, null);
+		parseAndVerify(unfiltered);
+		final Builder filtered = new Builder(repFileMan, include, exclude, null);
+		parseAndVerify(filtered);
+
+		assertTrue(filtered.getFileBuilders().size() < unfiltered.getFileBuilders().size());
+		for (final Iterator it = unfiltered.getFileBuilders().keySet().iterator(); it.hasNext();) {
+			if (!filtered.matchesPatterns((String) it.next())) {
+				it.remove();
+			}
+		}
+		for (final Iterator it = filtered.getFileBuilders().keySet().iterator(); it.hasNext();) {
+			if (!filtered.matchesPatterns((String) it.next())) {
+				it.remove();
+			}
+		}
+		assertEquals(describe(unfiltered), describe(filtered));
+		assertEquals(unfiltered.getStartDate(), filtered.getStartDate());
+	}
+
+	public void testWindowKeepsImplicitActionsOfEarlierFolders() throws ConfigurationException, IOException, LogSyntaxException {
+		final String[] args = { "-title", "jUCMNav", "-output-dir", sRoot + "stats", sRoot + "seg.jUCMNav.log", sRoot, "-cache-dir", CACHE_DIR.getPath() };
+		new SvnCommandLineParser(args).parse();
+		repFileMan = new DummyRepositoryFileManager(ConfigurationOptions.getCheckedOutDirectory(), sRoot + "seg.jUCMNav.info", sRoot + "seg.jUCMNav.propget",
+		        sRoot + "seg.jUCMNav.linecounts");
+		// the folders copied from the grl branch in r585 are before the window
+		final int fromRevision = 586;
+
+		final Builder unfiltered = new Builder(repFileMan, null, null, null);
+		parseAndVerify(unfiltered);
+		final Builder windowed = new Builder(repFileMan, null, null, null);
+		try {
+			SvnConfigurationOptions.setFromRevision(fromRevision);
+			parseAndVerify(windowed);
+		} finally {
+			SvnConfigurationOptions.setFromRevision(0);
+		}
+
+		for (final Iterator it = unfiltered.getFileBuilders().values().iterator(); it.hasNext();) {
+			final FileBuilder file = (FileBuilder) it.next();
+			for (final Iterator revisions = file.getRevisions().iterator(); revisions.hasNext();) {
+				if (((RevisionData) revisions.next()).getRevisionNumberAsInt() < fromRevision) {
+					revisions.remove();
+				}
+			}
+			if (!file.existRevision()) {
+				it.remove();
+			}
+		}
+		assertEquals(describe(unfiltered), describe(windowed));
+		// deleted with its folder in r669, last changed before the window
+		final FileBuilder file = (FileBuilder) windowed.getFileBuilders().get("src/seg/jUCMNav/views/resp/RespListItem.java");
+		assertEquals(1, file.getRevisions().size());
+		assertTrue(((RevisionData) file.getRevisions().get(0)).isDeletion());
+	}
+
+	private void parseAndVerify(final Builder builder) throws IOException, LogSyntaxException {
+		final SvnLogfileParser parser = new SvnLogfileParser(repFileMan, new File(sRoot + "seg.jUCMNav.log"), builder);
+		parser.parseSvnLog();
+		parser.verifyImplicitActions();
+		parser.removeDirectories();
+	}
+
+	private String parseAndDescribe(final int numberParseThreads) throws IOException, LogSyntaxException {
+		return parseAndDescribe(numberParseThreads, new File(sRoot + "seg.jUCMNav.log"));
+	}
+
+	private String parseAndDescribe(final int numberParseThreads, final File logFile) throws IOException, LogSyntaxException {
+		SvnConfigurationOptions.setNumberParseThreads(numberParseThreads);
+		final Builder builder = new Builder(repFileMan, null, null, null);
+		new SvnLogfileParser(repFileMan, logFile, builder).parseSvnLog();
+		return describe(builder);
+	}
+
+	private static String describe(final Builder builder) {
+		final StringBuffer description = new StringBuffer();
+		final Iterator files = new TreeMap(builder.getFileBuilders()).values().iterator();
+		while (files.hasNext()) {
+			final FileBuilder file = (FileBuilder) files.next();
+			description.append(file.getName()).append(' ').append(file.isBinary()).append('\n');
+			final Iterator revisions = file.getRevisions().iterator();
+			while (revisions.hasNext()) {
+				final RevisionData data = (RevisionData) revisions.next();
+				description.append(data.getRevisionNumber()).append(' ').append(data.getDate().getTime()).append(' ').append(data.getLoginName()).append(' ')
+				        .append(data.isCreationOrRestore()).append(data.isChange()).append(data.isDeletion()).append(' ').append(data.getCopyfromPath())
+				        .append(' ').append(data.getComment()).append('\n');
+			}
+		}
+		return description.toString();
 	}
 }
@@ -0,0 +1,70 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link XmlCacheFile}
+ *
+ * @version $Id$
+ */
+public class XmlCacheFileTest extends TestCase {
+	private static final String FILE = CacheFixture.FILE;
+
+	private CacheFixture fixture;
+
+	private RepositoryFileManager repFileMan;
+
+	private Builder builder;
+
+	private File cacheFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fixture = new CacheFixture();
+		builder = fixture.builder;
+		repFileMan = fixture.repFileMan;
+		cacheFile = File.createTempFile("statsvn-cache", ".xml");
+	}
+
+	protected void tearDown() throws Exception {
+		cacheFile.delete();
+		super.tearDown();
+	}
+
+	public void testWrittenCacheIsReadBack() throws Exception {
+		final RevisionData data = fixture.fileRevision;
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		cacheBuilder.newRevision(FILE, data.getRevisionNumber(), "12", "7", false);
+		cacheBuilder.newRevision("src/grl/<GRL> & \"Graph\".java", "20", "0", "0", true);
+		cacheBuilder.updateBinaryStatus(builder.getFileBuilders().values(), "847");
+		XmlCacheFile.write(cacheBuilder, cacheFile);
+		assertFalse(new File(cacheFile.getPath() + ".tmp").exists());
+
+		final CacheBuilder readBack = readCache(cacheFile);
+		assertEquals(12, data.getLinesAdded());
+		assertEquals(7, data.getLinesRemoved());
+
+		final CacheContents contents = CacheContents.of(readBack);
+		assertEquals(CacheContents.of(cacheBuilder).size(), contents.size());
+		final CacheContents.Path path = contents.get("/trunk/seg.jUCMNav/src/grl/<GRL> & \"Graph\".java");
+		assertNotNull(path);
+		assertEquals(1, path.getRevisionCount());
+		assertEquals(CacheConfiguration.BINARY, path.getRevisionStatus(0));
+	}
+
+	private CacheBuilder readCache(final File file) throws Exception {
+		final CacheBuilder cacheBuilder = new CacheBuilder(builder, repFileMan);
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			SAXParserFactory.newInstance().newSAXParser().parse(stream, new SvnXmlCacheFileHandler(cacheBuilder));
+		} finally {
+			stream.close();
+		}
+		return cacheBuilder;
+	}
+}
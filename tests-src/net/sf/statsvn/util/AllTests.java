@@ -45,6 +45,11 @@ public class AllTests {
 		//$JUnit-BEGIN$
 
 		suite.addTestSuite(SvnInfoUtilTest.class);
+		suite.addTestSuite(MappedFileInputStreamTest.class);
+		suite.addTestSuite(PathDictionaryTest.class);
+		suite.addTestSuite(XMLUtilTest.class);
+		suite.addTestSuite(ProcessUtilsTest.class);
+		suite.addTestSuite(DiffLineCounterTest.class);
 
 		//$JUnit-END$
 		return suite;
@@ -0,0 +1,112 @@
+package net.sf.statsvn.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link DiffLineCounter}
+ *
+ * @version $Id$
+ */
+public class DiffLineCounterTest extends TestCase {
+	private static final String DIFF = "Index: src/a.txt\r\n" + "===================================================================\r\n"
+	        + "--- src/a.txt\t(revision 1)\r\n" + "+++ src/a.txt\t(revision 2)\r\n" + "@@ -1,2 +1,3 @@\r\n" + " unchanged\r\n" + "-removed\r\n"
+	        + "+added\r\n" + "+added\r\n";
+
+	private static final String PROPERTY_DIFF = "\n" + "Property changes on: src/b.txt\n" + "___________________________________________________________________\n"
+	        + "Name: svn:eol-style\n" + "   + native\n";
+
+	private static final String BINARY_DIFF = "Index: lib/junit.jar\n" + "===================================================================\n"
+	        + "Cannot display: file marked as a binary type.\n" + "svn:mime-type = application/octet-stream\n" + "+not counted\n";
+
+	private int[] count(final String diff) throws IOException, BinaryDiffException {
+		final DiffLineCounter counter = new DiffLineCounter();
+		counter.readFully(new ByteArrayInputStream(diff.getBytes()));
+		counter.close();
+		return counter.getLineDiff();
+	}
+
+	public void testLinesAreCounted() throws Exception {
+		// the --- and +++ lines offset the initial -1
+		final int[] lineDiff = count(DIFF);
+		assertEquals(2, lineDiff[0]);
+		assertEquals(1, lineDiff[1]);
+	}
+
+	public void testEmptyDiff() throws Exception {
+		final int[] lineDiff = count("");
+		assertEquals(0, lineDiff[0]);
+		assertEquals(0, lineDiff[1]);
+	}
+
+	public void testPropertyChange() throws Exception {
+		final int[] lineDiff = count(PROPERTY_DIFF);
+		assertEquals(0, lineDiff[0]);
+		assertEquals(0, lineDiff[1]);
+	}
+
+	public void testBinaryDiff() throws Exception {
+		try {
+			count(BINARY_DIFF);
+			fail("binary diff expected");
+		} catch (final BinaryDiffException e) {
+			// expected
+		}
+	}
+
+	public void testLastLineWithoutTerminator() throws Exception {
+		final int[] lineDiff = count("--- a\r+++ a\r-x\r+y");
+		assertEquals(1, lineDiff[0]);
+		assertEquals(1, lineDiff[1]);
+	}
+
+	public void testResultPerFile() throws Exception {
+		final List results = new ArrayList();
+		final DiffLineCounter counter = new DiffLineCounter(collector(results));
+		final byte[] diff = (DIFF + BINARY_DIFF + "Index: src/c.txt\n" + PROPERTY_DIFF).getBytes();
+		// written in small pieces, as svnkit does
+		for (int i = 0; i < diff.length; i += 5) {
+			counter.write(diff, i, Math.min(5, diff.length - i));
+		}
+		// each file is passed on once the next one starts
+		assertEquals(2, results.size());
+		counter.close();
+
+		assertEquals(3, results.size());
+		assertResult((DiffResult) results.get(0), "src/a.txt", 2, 1, false);
+		assertResult((DiffResult) results.get(1), "lib/junit.jar", 0, 0, true);
+		assertResult((DiffResult) results.get(2), "src/c.txt", 0, 0, false);
+	}
+
+	public void testLongFilename() throws Exception {
+		final StringBuffer name = new StringBuffer();
+		for (int i = 0; i < 20; i++) {
+			name.append("directory/");
+		}
+		name.append("file.txt");
+		final List results = new ArrayList();
+		final DiffLineCounter counter = new DiffLineCounter(collector(results));
+		counter.readFully(new ByteArrayInputStream(("Index: " + name + "\n+x\n").getBytes()));
+		counter.close();
+		assertResult((DiffResult) results.get(0), name.toString(), 0, -1, false);
+	}
+
+	private IDiffResultHandler collector(final List results) {
+		return new IDiffResultHandler() {
+			public void handleResult(final DiffResult result) {
+				results.add(result);
+			}
+		};
+	}
+
+	private void assertResult(final DiffResult result, final String file, final int added, final int removed, final boolean binary) {
+		assertEquals(file, result.getFileName());
+		assertEquals(added, result.getLinesAdded());
+		assertEquals(removed, result.getLinesRemoved());
+		assertEquals(binary, result.isBinary());
+	}
+}
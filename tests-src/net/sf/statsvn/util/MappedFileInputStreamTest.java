@@ -0,0 +1,96 @@
+package net.sf.statsvn.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Verifies that reading through several mapped windows returns the bytes of
+ * the file.
+ */
+public class MappedFileInputStreamTest extends TestCase {
+	private static final int WINDOW_SIZE = 7;
+
+	private File file;
+
+	private byte[] content;
+
+	protected void setUp() throws Exception {
+		content = new byte[1000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		file = File.createTempFile("mapped", ".log");
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testReadWholeFile() throws IOException {
+		final InputStream in = new MappedFileInputStream(file, 0, file.length(), WINDOW_SIZE);
+		try {
+			assertTrue(Arrays.equals(content, readAll(in, 64)));
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testReadSingleBytes() throws IOException {
+		final InputStream in = new MappedFileInputStream(file, 0, file.length(), WINDOW_SIZE);
+		try {
+			for (int i = 0; i < content.length; i++) {
+				assertEquals(content[i] & 0xff, in.read());
+			}
+			assertEquals(-1, in.read());
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testReadRange() throws IOException {
+		final InputStream in = new MappedFileInputStream(file, 123, 877, WINDOW_SIZE);
+		try {
+			final byte[] expected = new byte[877 - 123];
+			System.arraycopy(content, 123, expected, 0, expected.length);
+			assertTrue(Arrays.equals(expected, readAll(in, 5)));
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testEmptyFile() throws IOException {
+		final File empty = File.createTempFile("mapped", ".log");
+		try {
+			final InputStream in = new MappedFileInputStream(empty);
+			try {
+				assertEquals(-1, in.read());
+			} finally {
+				in.close();
+			}
+		} finally {
+			empty.delete();
+		}
+	}
+
+	private static byte[] readAll(final InputStream in, final int bufferSize) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[bufferSize];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,75 @@
+package net.sf.statsvn.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PathDictionary}
+ *
+ * @version $Id$
+ */
+public class PathDictionaryTest extends TestCase {
+	private PathDictionary dictionary;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		dictionary = new PathDictionary();
+	}
+
+	public void testPrefixesAreShared() {
+		final int main = dictionary.getId("/trunk/src/Main.java");
+		final int test = dictionary.getId("/trunk/src/Test.java");
+		assertEquals(main, dictionary.getId("/trunk/src/Main.java/"));
+		assertEquals(dictionary.getParent(main), dictionary.getParent(test));
+		assertEquals(dictionary.getId("/trunk/src"), dictionary.getParent(main));
+		// the root, trunk, src and the two files
+		assertEquals(5, dictionary.size());
+	}
+
+	public void testDerivedForms() {
+		final int module = dictionary.getId("/trunk");
+		final int main = dictionary.getId(module, "src/Main.java");
+		assertEquals(main, dictionary.getId("/trunk/src/Main.java"));
+		assertEquals("src/Main.java", dictionary.getRelativePath(main, module));
+		assertEquals(".", dictionary.getRelativePath(module, module));
+		assertEquals(module, dictionary.getId(module, "."));
+		assertEquals("/trunk/src/Main.java", dictionary.getAbsolutePath(main));
+		assertEquals("/", dictionary.getAbsolutePath(PathDictionary.ROOT));
+		assertEquals("svn://host/repo/trunk/src/Main.java", dictionary.getUrl(main, module, "svn://host/repo/trunk"));
+		assertEquals("svn://host/repo/trunk", dictionary.getUrl(module, module, "svn://host/repo/trunk"));
+		assertNull(dictionary.getRelativePath(dictionary.getId("/branches/src"), module));
+	}
+
+	public void testFindIdDoesNotAdd() {
+		final int module = dictionary.getId("/trunk");
+		assertEquals(PathDictionary.NONE, dictionary.findId(module, "src/Main.java"));
+		assertEquals(2, dictionary.size());
+		final int main = dictionary.getId(module, "src/Main.java");
+		assertEquals(main, dictionary.findId(module, "src/Main.java"));
+	}
+
+	public void testConcurrentAddsKeepOneId() throws InterruptedException {
+		final int[][] ids = new int[4][1000];
+		final Thread[] threads = new Thread[ids.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int[] results = ids[t];
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < results.length; i++) {
+						results[i] = dictionary.getId("/dir" + (i % 10) + "/file" + i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		assertEquals(1 + 10 + 1000, dictionary.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("/dir" + (i % 10) + "/file" + i, dictionary.getAbsolutePath(ids[0][i]));
+			for (int t = 1; t < threads.length; t++) {
+				assertEquals(ids[0][i], ids[t][i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package net.sf.statsvn.util;
+
+import java.io.File;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Tests for {@link ProcessUtils}, launching java processes as svn would be.
+ *
+ * @version $Id$
+ */
+public class ProcessUtilsTest extends TestCase {
+	private static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ConfigurationOptions.setCheckedOutDirectory(System.getProperty("java.io.tmpdir"));
+	}
+
+	protected void tearDown() throws Exception {
+		SvnConfigurationOptions.setSvnTimeout(0);
+		super.tearDown();
+	}
+
+	public void testErrorStreamIsRead() throws Exception {
+		final ProcessUtils pUtils = ProcessUtils.call(JAVA + " -version");
+		try {
+			final InputStream in = pUtils.getInputStream();
+			while (in.read() != -1) {
+				// java -version only writes to its error stream
+			}
+			assertTrue(pUtils.hasErrorOccured());
+			assertTrue(pUtils.getErrorMessage().indexOf("version") >= 0);
+		} finally {
+			pUtils.close();
+		}
+	}
+
+	public void testProcessRunningTooLongIsKilled() throws Exception {
+		SvnConfigurationOptions.setSvnTimeout(1);
+		final long start = System.currentTimeMillis();
+		final ProcessUtils pUtils = ProcessUtils.call(JAVA + " -cp " + System.getProperty("java.class.path") + " " + Sleeper.class.getName());
+		try {
+			final InputStream in = pUtils.getInputStream();
+			while (in.read() != -1) {
+				// the sleeper writes nothing
+			}
+			assertTrue(System.currentTimeMillis() - start < Sleeper.SLEEP_MS);
+			assertTrue(pUtils.hasErrorOccured());
+			assertTrue(pUtils.getErrorMessage().startsWith("Killed after 1 s"));
+		} finally {
+			pUtils.close();
+		}
+	}
+
+	/**
+	 * A process that runs longer than the timeout of the test.
+	 */
+	public static final class Sleeper {
+		private static final long SLEEP_MS = 30000;
+
+		private Sleeper() {
+		}
+
+		public static void main(final String[] args) throws InterruptedException {
+			Thread.sleep(SLEEP_MS);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package net.sf.statsvn.util;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link XMLUtil}
+ *
+ * @version $Id$
+ */
+public class XMLUtilTest extends TestCase {
+	private static final String[] DATES = { "2006-03-31T18:01:00.467203Z", "2006-03-27T20:37:18.357348Z", "2006-03-27T18:27:05.081623Z",
+	        "2006-01-01T00:00:00.000000Z", "2005-12-31T23:59:59.999999Z", "2004-02-29T12:00:00.5Z", "2007-03-11T02:30:00.000001Z",
+	        "2007-11-04T01:30:00.999500Z", "2007-10-28T02:30:00.123456Z", "2007-03-25T01:30:00.654321Z", "2000-02-30T10:00:00Z",
+	        "1999-12-31T23:59:60.25Z", "2008-06-15T08:09:10Z", "2008-06-15T08:09:10.12345678Z", "2008-06-15T08:09:10.123456789Z",
+	        "2008-06-15T08:09:10+05:00", "2008-06-15T08:09:10.5-03:00", "2008-06-15T08:09:10" };
+
+	private static final String[] ZONES = { "GMT", "America/Montreal", "Europe/London", "Australia/Lord_Howe", "Asia/Kolkata" };
+
+	private TimeZone defaultZone;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		defaultZone = TimeZone.getDefault();
+	}
+
+	protected void tearDown() throws Exception {
+		TimeZone.setDefault(defaultZone);
+		super.tearDown();
+	}
+
+	public void testParseMatchesDateFormat() throws ParseException {
+		for (int i = 0; i < ZONES.length; i++) {
+			final TimeZone zone = TimeZone.getTimeZone(ZONES[i]);
+			TimeZone.setDefault(zone);
+			for (int j = 0; j < DATES.length; j++) {
+				assertEquals(ZONES[i] + " " + DATES[j], XMLUtil.parseXsdDateTimeWithFormat(DATES[j]), XMLUtil.parseXsdDateTime(new StringBuffer(DATES[j]),
+				        zone));
+				assertEquals(ZONES[i] + " " + DATES[j], XMLUtil.parseXsdDateTimeWithFormat(DATES[j]), XMLUtil.parseXsdDateTime(DATES[j]));
+			}
+		}
+	}
+
+	public void testEveryHourOfAYear() throws ParseException {
+		final TimeZone zone = TimeZone.getTimeZone("America/Montreal");
+		TimeZone.setDefault(zone);
+		for (int month = 1; month <= 12; month++) {
+			for (int day = 1; day <= 31; day++) {
+				for (int hour = 0; hour < 24; hour++) {
+					final String date = "2007-" + pad(month) + "-" + pad(day) + "T" + pad(hour) + ":30:15." + pad(day) + pad(hour) + "17Z";
+					assertEquals(date, XMLUtil.parseXsdDateTimeWithFormat(date), XMLUtil.parseXsdDateTime(date, zone));
+				}
+			}
+		}
+	}
+
+	public void testInvalidTimezone() {
+		try {
+			XMLUtil.parseXsdDateTime("2008-06-15T08:09:10.5X");
+			fail("expected ParseException");
+		} catch (final ParseException expected) {
+			// expected
+		}
+	}
+
+	private static String pad(final int value) {
+		return value < 10 ? "0" + value : String.valueOf(value);
+	}
+}
@@ -0,0 +1,26 @@
+package net.sf.statsvn.util.svnkit;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the svnkit classes.
+ *
+ * @version $Id$
+ */
+public class AllTests {
+
+	/**
+	 * Method suite.
+	 * @return Test Test suite
+	 */
+	public static Test suite() {
+		final TestSuite suite = new TestSuite("Test for net.sf.statsvn.util.svnkit");
+		//$JUnit-BEGIN$
+
+		suite.addTestSuite(SvnKitClientManagerPoolTest.class);
+
+		//$JUnit-END$
+		return suite;
+	}
+}
@@ -0,0 +1,81 @@
+package net.sf.statsvn.util.svnkit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import edu.emory.mathcs.backport.java.util.concurrent.CountDownLatch;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SvnKitClientManagerPool}
+ *
+ * @version $Id$
+ */
+public class SvnKitClientManagerPoolTest extends TestCase {
+	private static final int SIZE = 2;
+
+	private final List created = new ArrayList();
+
+	private SvnKitClientManagerPool pool;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		pool = new SvnKitClientManagerPool(new SvnKitProcessor() {
+			public synchronized SVNClientManager createManager() {
+				final SVNClientManager manager = SVNClientManager.newInstance();
+				created.add(manager);
+				return manager;
+			}
+		}, SIZE);
+	}
+
+	protected void tearDown() throws Exception {
+		pool.dispose();
+		super.tearDown();
+	}
+
+	public void testReleasedManagerIsReused() throws IOException {
+		final SVNClientManager manager = pool.lease();
+		pool.release(manager);
+		assertSame(manager, pool.lease());
+		assertEquals(1, created.size());
+	}
+
+	public void testAtMostSizeManagersAreLeased() throws Exception {
+		final SVNClientManager first = pool.lease();
+		final SVNClientManager second = pool.lease();
+		assertNotSame(first, second);
+
+		final SVNClientManager[] third = new SVNClientManager[1];
+		final CountDownLatch leased = new CountDownLatch(1);
+		final Thread thread = new Thread() {
+			public void run() {
+				try {
+					third[0] = pool.lease();
+					leased.countDown();
+				} catch (final IOException e) {
+					// the latch is never counted down
+				}
+			}
+		};
+		thread.start();
+		assertFalse(leased.await(200, TimeUnit.MILLISECONDS));
+		pool.release(first);
+		assertTrue(leased.await(5, TimeUnit.SECONDS));
+		assertSame(first, third[0]);
+		assertEquals(SIZE, created.size());
+	}
+
+	public void testDisposedManagersAreNotReused() throws IOException {
+		final SVNClientManager manager = pool.lease();
+		pool.release(manager);
+		pool.dispose();
+		assertNotSame(manager, pool.lease());
+		assertEquals(2, created.size());
+	}
+}